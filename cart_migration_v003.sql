@@ -0,0 +1,76 @@
+-- V003__Cart_Item_Unique_Article.sql - MySQL 5.7+ Compatible Version
+-- Enforces one line per article in a cart, so add-to-cart can rely on the
+-- unique key instead of scanning the cart's lines
+
+-- ===============================================
+-- DUPLICATE CLEANUP
+-- ===============================================
+
+-- Lines that share a (cart_id, article_id), with the most recent one to keep
+-- and the quantity of all of them together
+CREATE TEMPORARY TABLE duplicate_cart_lines AS
+SELECT cart_id, article_id, MAX(id) AS keep_id, SUM(quantity) AS quantity
+FROM cart_items
+GROUP BY cart_id, article_id
+HAVING COUNT(*) > 1;
+
+-- Fold the older lines' quantities into the kept line at its (most recent) price,
+-- so no ordered quantity is lost; capped at the 999 a single line may hold
+UPDATE cart_items ci
+JOIN duplicate_cart_lines d ON d.keep_id = ci.id
+SET ci.quantity = LEAST(d.quantity, 999),
+    ci.subtotal = ci.price * LEAST(d.quantity, 999),
+    ci.updated_at = NOW(),
+    ci.version = ci.version + 1;
+
+DELETE ci FROM cart_items ci
+JOIN duplicate_cart_lines d
+  ON d.cart_id = ci.cart_id
+ AND d.article_id = ci.article_id
+ AND ci.id < d.keep_id;
+
+-- Recalculate totals of the carts that had duplicates merged, and only those;
+-- the version bump makes copies of them read before the migration stale
+UPDATE carts c
+JOIN (SELECT DISTINCT cart_id FROM duplicate_cart_lines) affected ON affected.cart_id = c.id
+SET c.total = (
+        SELECT COALESCE(SUM(ci.price * ci.quantity), 0)
+        FROM cart_items ci
+        WHERE ci.cart_id = c.id
+    ),
+    c.version = c.version + 1;
+
+DROP TEMPORARY TABLE duplicate_cart_lines;
+
+-- ===============================================
+-- CONSTRAINTS (Add only if they don't exist)
+-- ===============================================
+
+SET @sql = (
+    SELECT IF(
+        (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+         WHERE TABLE_SCHEMA = DATABASE()
+         AND TABLE_NAME = 'cart_items'
+         AND INDEX_NAME = 'unique_cart_article') = 0,
+        'ALTER TABLE cart_items ADD CONSTRAINT unique_cart_article UNIQUE (cart_id, article_id);',
+        'SELECT "Constraint unique_cart_article already exists";'
+    )
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- The unique key covers (cart_id, article_id) lookups, so the plain index is redundant
+SET @sql = (
+    SELECT IF(
+        (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+         WHERE TABLE_SCHEMA = DATABASE()
+         AND TABLE_NAME = 'cart_items'
+         AND INDEX_NAME = 'idx_cart_items_cart_article') > 0,
+        'DROP INDEX idx_cart_items_cart_article ON cart_items;',
+        'SELECT "Index idx_cart_items_cart_article does not exist";'
+    )
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,51 @@
+-- V004__Cart_Single_Active_Per_User.sql - MySQL 5.7+ Compatible Version
+-- Lets the database guarantee at most one ACTIVE cart per user, so the active
+-- cart is read by a unique key and concurrent creates fail on insert
+
+-- ===============================================
+-- DUPLICATE CLEANUP
+-- ===============================================
+
+-- Abandon every active cart that has a more recent active cart for the same user
+UPDATE carts c
+JOIN carts newer
+  ON newer.user_id = c.user_id
+ AND newer.status = 'ACTIVE'
+ AND (newer.last_updated > c.last_updated
+      OR (newer.last_updated = c.last_updated AND newer.id > c.id))
+SET c.status = 'ABANDONED',
+    c.version = c.version + 1
+WHERE c.status = 'ACTIVE';
+
+-- ===============================================
+-- ACTIVE CART KEY (Add only if it doesn't exist)
+-- ===============================================
+
+-- user_id while the cart is ACTIVE, NULL otherwise; NULLs don't collide in a unique index
+SET @sql = (
+    SELECT IF(
+        (SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS
+         WHERE TABLE_SCHEMA = DATABASE()
+         AND TABLE_NAME = 'carts'
+         AND COLUMN_NAME = 'active_user_id') = 0,
+        'ALTER TABLE carts ADD COLUMN active_user_id VARCHAR(255) GENERATED ALWAYS AS (CASE WHEN status = ''ACTIVE'' THEN user_id END) VIRTUAL;',
+        'SELECT "Column active_user_id already exists";'
+    )
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @sql = (
+    SELECT IF(
+        (SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS
+         WHERE TABLE_SCHEMA = DATABASE()
+         AND TABLE_NAME = 'carts'
+         AND INDEX_NAME = 'uk_carts_active_user') = 0,
+        'CREATE UNIQUE INDEX uk_carts_active_user ON carts(active_user_id);',
+        'SELECT "Index uk_carts_active_user already exists";'
+    )
+);
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,15 @@
+-- V005__Maintenance_Leases.sql - MySQL 5.7+ Compatible Version
+-- One row per maintenance job; the node whose lease has not expired is the only
+-- one allowed to run that job
+
+-- ===============================================
+-- NEW TABLES
+-- ===============================================
+
+CREATE TABLE IF NOT EXISTS maintenance_leases (
+    lease_name VARCHAR(64) PRIMARY KEY,
+    owner_id VARCHAR(100) NOT NULL,
+    acquired_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    heartbeat_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
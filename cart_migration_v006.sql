@@ -0,0 +1,39 @@
+-- V006__Cart_Archive.sql - MySQL 5.7+ Compatible Version
+-- Cold tables for ABANDONED and COMPLETED carts moved out of carts/cart_items
+-- by the archiver. Rows keep their original ids; there are no foreign keys, so
+-- archiving never locks the hot tables' parents.
+
+-- ===============================================
+-- NEW TABLES
+-- ===============================================
+
+CREATE TABLE IF NOT EXISTS carts_archive (
+    id BIGINT PRIMARY KEY,
+    user_id VARCHAR(255) NOT NULL,
+    total DOUBLE NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    last_updated DATETIME(6) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    session_id VARCHAR(32) NOT NULL,
+    version INT,
+    expiry_warning_sent BIT,
+    archived_at DATETIME(6) NOT NULL,
+
+    INDEX idx_carts_archive_user (user_id)
+);
+
+CREATE TABLE IF NOT EXISTS cart_items_archive (
+    id BIGINT PRIMARY KEY,
+    cart_id BIGINT NOT NULL,
+    article_id BIGINT NOT NULL,
+    article_name VARCHAR(255) NOT NULL,
+    quantity INT NOT NULL,
+    price DOUBLE NOT NULL,
+    subtotal DOUBLE NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    version BIGINT,
+    archived_at DATETIME(6) NOT NULL,
+
+    INDEX idx_cart_items_archive_cart (cart_id)
+);
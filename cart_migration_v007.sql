@@ -0,0 +1,26 @@
+-- V007__Cart_Item_Id_Allocation.sql - MySQL 5.7+ Compatible Version
+-- cart_items ids are now reserved by Hibernate in blocks of 50 from this table
+-- (MySQL has no sequences), so item INSERTs can be sent as one JDBC batch.
+-- Run before deploying; the next value must start above every existing id.
+
+-- ===============================================
+-- NEW TABLES
+-- ===============================================
+
+CREATE TABLE IF NOT EXISTS cart_item_ids (
+    next_val BIGINT
+);
+
+INSERT INTO cart_item_ids (next_val)
+SELECT 1 FROM DUAL
+WHERE NOT EXISTS (SELECT 1 FROM cart_item_ids);
+
+-- ===============================================
+-- SEED FROM EXISTING ROWS
+-- ===============================================
+
+-- Archived items keep their ids, so they count too
+UPDATE cart_item_ids
+SET next_val = GREATEST(next_val,
+    (SELECT COALESCE(MAX(id), 0) + 1 FROM cart_items),
+    (SELECT COALESCE(MAX(id), 0) + 1 FROM cart_items_archive));
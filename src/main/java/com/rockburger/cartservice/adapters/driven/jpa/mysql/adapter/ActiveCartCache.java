@@ -0,0 +1,281 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.model.CartModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Active carts by user id, each with the version it was read or written at; only
+ * created when cart.cache.active.enabled is true. Bounded by cart.cache.active.max-size
+ * with Caffeine's W-TinyLFU eviction; an entry expires when its cart does, 24 hours
+ * after its last update.
+ *
+ * Carts go in and out as copies, since callers change the models they get. Nothing is
+ * cached before its transaction commits, and an entry is only replaced by a higher version
+ * of the same cart or by the user's next cart. Writes stamp the cart and its user: a read
+ * that started before a write to the same cart or user is not cached, so a slow read
+ * cannot put back what the write replaced.
+ *
+ * Other nodes' writes are not seen here. An entry counts as confirmed for
+ * cart.cache.active.max-staleness-ms after it was read, written or checked against the
+ * stored version; CachingCartAdapter checks older entries before serving them, so another
+ * node's write shows up here within that bound.
+ * Stats are published as cart.active.cache (cache.gets, cache.puts, cache.evictions).
+ */
+@Component
+@ConditionalOnProperty(name = "cart.cache.active.enabled", havingValue = "true")
+public class ActiveCartCache {
+    private static final Logger logger = LoggerFactory.getLogger(ActiveCartCache.class);
+
+    private static final String ACTIVE_STATUS = "ACTIVE";
+    private static final int CART_EXPIRY_HOURS = 24;
+    // Longer than any read transaction that could race a write
+    private static final Duration WRITE_STAMP_RETENTION = Duration.ofMinutes(5);
+
+    private final Cache<String, CartModel> carts;
+    // Users whose cached cart matched the database within the staleness bound
+    private final Cache<String, Boolean> confirmedUsers;
+    private final Cache<Long, Long> cartWriteStamps;
+    private final Cache<String, Long> userWriteStamps;
+    private final AtomicLong clock = new AtomicLong();
+
+    public ActiveCartCache(@Value("${cart.cache.active.max-size:10000}") long maxSize,
+                           @Value("${cart.cache.active.max-staleness-ms:1000}") long maxStalenessMs,
+                           MeterRegistry meterRegistry) {
+        if (maxStalenessMs < 0) {
+            throw new IllegalArgumentException("cart.cache.active.max-staleness-ms must not be negative");
+        }
+        this.carts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new CartExpiry())
+                .recordStats()
+                .build();
+        this.confirmedUsers = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(maxStalenessMs))
+                .build();
+        this.cartWriteStamps = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(WRITE_STAMP_RETENTION)
+                .build();
+        this.userWriteStamps = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(WRITE_STAMP_RETENTION)
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, carts, "cart.active.cache");
+        logger.info("Active cart cache enabled (max size: {}, max staleness: {} ms)", maxSize, maxStalenessMs);
+    }
+
+    /**
+     * Stamp taken before reading a cart from the database, handed back to putIfNewer
+     */
+    public long startRead() {
+        return clock.get();
+    }
+
+    /**
+     * A copy of the user's cached active cart
+     */
+    public Optional<CartModel> get(String userId) {
+        CartModel cached = carts.getIfPresent(userId);
+        // Guard against the small window between expiry and eviction
+        if (cached == null || cached.isExpired()) {
+            return Optional.empty();
+        }
+        return Optional.of(copy(cached));
+    }
+
+    /**
+     * Cache a cart read at readStamp once the read commits, unless it was written since
+     * or a newer copy is cached
+     */
+    public void putIfNewer(CartModel cart, long readStamp) {
+        CartModel copy = copy(cart);
+        afterCommit(() -> {
+            if (!isWrittenSince(copy, readStamp)) {
+                store(copy);
+            }
+        });
+    }
+
+    /**
+     * Replace the cached cart with one that was just written, once the write commits
+     */
+    public void written(CartModel cart) {
+        CartModel copy = copy(cart);
+        invalidateUser(copy.getUserId());
+        afterCommit(() -> {
+            stamp(copy.getId(), copy.getUserId());
+            store(copy);
+        });
+    }
+
+    /**
+     * Drop the users' carts, now and once the write commits; they changed or went away
+     * without a new copy of them
+     */
+    public void invalidateUsers(Collection<String> userIds) {
+        userIds.forEach(this::invalidateUser);
+        afterCommit(() -> userIds.forEach(this::invalidateUser));
+    }
+
+    /**
+     * Whether the user's cached cart matched the database within the staleness bound,
+     * so it can be served without checking its version
+     */
+    public boolean isConfirmed(String userId) {
+        return confirmedUsers.getIfPresent(userId) != null;
+    }
+
+    /**
+     * The user's cached cart was just found to match the stored version
+     */
+    public void confirmed(String userId) {
+        confirmedUsers.put(userId, Boolean.TRUE);
+    }
+
+    /**
+     * Drop a user's cart that is found behind the database. Nothing of this node's is
+     * waiting to commit, so a read started after this may cache the current cart.
+     */
+    public void evictStale(String userId) {
+        invalidateUser(userId);
+    }
+
+    public CacheStats getStats() {
+        return carts.stats();
+    }
+
+    private void invalidateUser(String userId) {
+        stamp(null, userId);
+        confirmedUsers.invalidate(userId);
+        carts.asMap().computeIfPresent(userId, (key, cached) -> {
+            stamp(cached.getId(), null);
+            return null;
+        });
+    }
+
+    /**
+     * Store a copy nobody else holds
+     */
+    private void store(CartModel cart) {
+        String userId = cart.getUserId();
+        if (!ACTIVE_STATUS.equals(cart.getStatus()) || cart.isExpired()) {
+            invalidateUser(userId);
+            return;
+        }
+
+        carts.asMap().compute(userId, (key, cached) -> {
+            if (cached != null && cached.getId().equals(cart.getId())
+                    && cached.getVersion() >= cart.getVersion()) {
+                return cached;
+            }
+            return cart;
+        });
+        // Just read from or written to the database
+        confirmedUsers.put(userId, Boolean.TRUE);
+    }
+
+    private boolean isWrittenSince(CartModel cart, long readStamp) {
+        Long cartWrite = cartWriteStamps.getIfPresent(cart.getId());
+        Long userWrite = userWriteStamps.getIfPresent(cart.getUserId());
+        return (cartWrite != null && cartWrite > readStamp) || (userWrite != null && userWrite > readStamp);
+    }
+
+    private void stamp(Long cartId, String userId) {
+        long stamp = clock.incrementAndGet();
+        if (cartId != null) {
+            cartWriteStamps.put(cartId, stamp);
+        }
+        if (userId != null) {
+            userWriteStamps.put(userId, stamp);
+        }
+    }
+
+    /**
+     * Run now outside a transaction, or once the current one commits
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * A copy sharing nothing mutable with the original, with its version as the stored baseline
+     */
+    private static CartModel copy(CartModel cart) {
+        CartModel copy = new CartModel();
+        copy.setId(cart.getId());
+        copy.setUserId(cart.getUserId());
+        copy.restoreItems(cart.getItems().stream().map(ActiveCartCache::copy).collect(Collectors.toList()));
+        copy.setTotal(cart.getTotal());
+        copy.setCreatedAt(cart.getCreatedAt());
+        copy.setLastUpdated(cart.getLastUpdated());
+        copy.setStatus(cart.getStatus());
+        copy.setSessionId(cart.getSessionId());
+        copy.setVersion(cart.getVersion());
+        copy.setExpiryWarningSent(cart.getExpiryWarningSent());
+        copy.markPersisted();
+        return copy;
+    }
+
+    private static CartItemModel copy(CartItemModel item) {
+        CartItemModel copy = new CartItemModel();
+        copy.setId(item.getId());
+        copy.setArticleId(item.getArticleId());
+        copy.setArticleName(item.getArticleName());
+        copy.setQuantity(item.getQuantity());
+        copy.setPrice(item.getPrice());
+        copy.setSubtotal(item.getSubtotal());
+        return copy;
+    }
+
+    /**
+     * Expires each entry when its cart expires
+     */
+    private static class CartExpiry implements Expiry<String, CartModel> {
+        @Override
+        public long expireAfterCreate(String userId, CartModel cart, long currentTime) {
+            Duration left = Duration.between(LocalDateTime.now(), cart.getLastUpdated().plusHours(CART_EXPIRY_HOURS));
+            return Math.max(0, left.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String userId, CartModel cart, long currentTime, long currentDuration) {
+            return expireAfterCreate(userId, cart, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String userId, CartModel cart, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.domain.model.CartModel;
+import com.rockburger.cartservice.domain.spi.ICartPersistencePort;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+/**
+ * ICartPersistencePort that answers active cart reads from ActiveCartCache.
+ * Saves write through and put the saved version; deletes and status changes drop the
+ * user's entry. Item writes keep it current through CachingCartItemAdapter.
+ * Other nodes write the same carts. A hit the cache confirmed within
+ * cart.cache.active.max-staleness-ms is served without SQL; an older one is served only
+ * once a lookup of the active cart's id and version confirms it, and read through otherwise.
+ */
+public class CachingCartAdapter implements ICartPersistencePort {
+    private static final String ACTIVE_STATUS = "ACTIVE";
+
+    private final ICartPersistencePort delegate;
+    private final ActiveCartCache cache;
+
+    public CachingCartAdapter(ICartPersistencePort delegate, ActiveCartCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public CartModel save(CartModel cartModel) {
+        CartModel saved;
+        try {
+            saved = delegate.save(cartModel);
+        } catch (RuntimeException e) {
+            // Most likely a version conflict, so the cached copy is behind
+            cache.invalidateUsers(List.of(cartModel.getUserId()));
+            throw e;
+        }
+        cache.written(saved);
+        return saved;
+    }
+
+    @Override
+    public Optional<CartModel> findByUserIdAndStatus(String userId, String status) {
+        if (!ACTIVE_STATUS.equals(status)) {
+            return delegate.findByUserIdAndStatus(userId, status);
+        }
+
+        Optional<CartModel> cached = validCached(userId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        long readStamp = cache.startRead();
+        Optional<CartModel> cart = delegate.findByUserIdAndStatus(userId, status);
+        cart.ifPresent(found -> cache.putIfNewer(found, readStamp));
+        return cart;
+    }
+
+    @Override
+    public CartModel findOrCreateActive(String userId) {
+        // A cached cart is active and not stale, so there is nothing to abandon or create
+        Optional<CartModel> cached = validCached(userId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long readStamp = cache.startRead();
+        CartModel cart = delegate.findOrCreateActive(userId);
+        cache.putIfNewer(cart, readStamp);
+        return cart;
+    }
+
+    @Override
+    public boolean isActiveCartAt(String userId, Long cartId, Integer version) {
+        return delegate.isActiveCartAt(userId, cartId, version);
+    }
+
+    @Override
+    public void deleteByUserId(String userId) {
+        delegate.deleteByUserId(userId);
+        cache.invalidateUsers(List.of(userId));
+    }
+
+    @Override
+    public int deleteByUserIds(Collection<String> userIds) {
+        int deleted = delegate.deleteByUserIds(userIds);
+        cache.invalidateUsers(userIds);
+        return deleted;
+    }
+
+    @Override
+    public boolean existsByUserIdAndStatus(String userId, String status) {
+        return delegate.existsByUserIdAndStatus(userId, status);
+    }
+
+    @Override
+    public void updateCartStatus(String userId, String oldStatus, String newStatus) {
+        delegate.updateCartStatus(userId, oldStatus, newStatus);
+        cache.invalidateUsers(List.of(userId));
+    }
+
+    /**
+     * Only abandons carts past their 24 hours, which the cache has already expired
+     */
+    @Override
+    public int cleanupExpiredCarts(BooleanSupplier stop) {
+        return delegate.cleanupExpiredCarts(stop);
+    }
+
+    @Override
+    public long countByStatus(String status) {
+        return delegate.countByStatus(status);
+    }
+
+    @Override
+    public long countActiveCartsSince(LocalDateTime since) {
+        return delegate.countActiveCartsSince(since);
+    }
+
+    /**
+     * The cached cart, if it was confirmed within the staleness bound or the database still
+     * holds it as the user's active cart at the cached version; a cart another node changed,
+     * replaced or ended is dropped
+     */
+    private Optional<CartModel> validCached(String userId) {
+        Optional<CartModel> cached = cache.get(userId);
+        if (cached.isEmpty() || cache.isConfirmed(userId)) {
+            return cached;
+        }
+        if (!delegate.isActiveCartAt(userId, cached.get().getId(), cached.get().getVersion())) {
+            cache.evictStale(userId);
+            return Optional.empty();
+        }
+        cache.confirmed(userId);
+        return cached;
+    }
+}
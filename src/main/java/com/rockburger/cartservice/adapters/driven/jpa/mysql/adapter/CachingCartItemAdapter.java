@@ -0,0 +1,66 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.model.CartModel;
+import com.rockburger.cartservice.domain.spi.ICartItemPersistencePort;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * ICartItemPersistencePort that keeps ActiveCartCache in step with item writes. A write that
+ * returns the cart replaces the cached copy; one that fails or finds no cart drops the user's
+ * cart, and the next read of it goes to the database.
+ */
+public class CachingCartItemAdapter implements ICartItemPersistencePort {
+
+    private final ICartItemPersistencePort delegate;
+    private final ActiveCartCache cache;
+
+    public CachingCartItemAdapter(ICartItemPersistencePort delegate, ActiveCartCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public Optional<CartModel> addItem(String userId, CartItemModel item) {
+        Optional<CartModel> cart;
+        try {
+            cart = delegate.addItem(userId, item);
+        } catch (RuntimeException e) {
+            cache.invalidateUsers(List.of(userId));
+            throw e;
+        }
+
+        if (cart.isPresent()) {
+            cache.written(cart.get());
+        } else {
+            // The cached cart, if any, is stale or full; the caller resolves it from the database
+            cache.invalidateUsers(List.of(userId));
+        }
+        return cart;
+    }
+
+    @Override
+    public CartModel updateItemQuantity(String userId, Long articleId, int quantity) {
+        return written(userId, () -> delegate.updateItemQuantity(userId, articleId, quantity));
+    }
+
+    @Override
+    public CartModel removeItem(String userId, Long articleId) {
+        return written(userId, () -> delegate.removeItem(userId, articleId));
+    }
+
+    private CartModel written(String userId, Supplier<CartModel> write) {
+        CartModel cart;
+        try {
+            cart = write.get();
+        } catch (RuntimeException e) {
+            cache.invalidateUsers(List.of(userId));
+            throw e;
+        }
+        cache.written(cart);
+        return cart;
+    }
+}
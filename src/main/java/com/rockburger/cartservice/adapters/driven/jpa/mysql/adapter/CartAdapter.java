@@ -1,24 +1,41 @@
 package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
 
 import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartItemEntity;
 import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapper;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapper;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.CartSummary;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.CartVersion;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartItemRepository;
 import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartRepository;
+import com.rockburger.cartservice.configuration.datasource.MaintenanceWorkload;
+import com.rockburger.cartservice.configuration.datasource.ReadYourWritesGuard;
 import com.rockburger.cartservice.domain.exception.CartNotFoundException;
 import com.rockburger.cartservice.domain.exception.ConcurrentCartModificationException;
+import com.rockburger.cartservice.domain.model.CartItemModel;
 import com.rockburger.cartservice.domain.model.CartModel;
 import com.rockburger.cartservice.domain.spi.ICartPersistencePort;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.dao.OptimisticLockingFailureException;
-import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.persistence.OptimisticLockException;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,19 +43,42 @@ public class CartAdapter implements ICartPersistencePort {
     private static final Logger logger = LoggerFactory.getLogger(CartAdapter.class);
 
     private final ICartRepository cartRepository;
+    private final ICartItemRepository cartItemRepository;
     private final ICartEntityMapper cartEntityMapper;
+    private final ICartItemEntityMapper cartItemEntityMapper;
+    private final CartCleanupMetrics cleanupMetrics;
+    private final ReadYourWritesGuard readYourWritesGuard;
+    private final TransactionTemplate primaryReadTemplate;
+    private final int cleanupBatchSize;
 
     // Session management constants
     private static final String ACTIVE_STATUS = "ACTIVE";
     private static final String ABANDONED_STATUS = "ABANDONED";
     private static final String COMPLETED_STATUS = "COMPLETED";
     private static final int CART_EXPIRY_HOURS = 24;
-    private static final int MAX_OPTIMISTIC_LOCK_RETRIES = 3;
-    private static final long RETRY_DELAY_MS = 100;
 
-    public CartAdapter(ICartRepository cartRepository, ICartEntityMapper cartEntityMapper) {
+    public CartAdapter(ICartRepository cartRepository,
+                       ICartItemRepository cartItemRepository,
+                       ICartEntityMapper cartEntityMapper,
+                       ICartItemEntityMapper cartItemEntityMapper,
+                       CartCleanupMetrics cleanupMetrics,
+                       ReadYourWritesGuard readYourWritesGuard,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${cart.cleanup.batch.size:100}") int cleanupBatchSize) {
+        if (cleanupBatchSize <= 0) {
+            throw new IllegalArgumentException("cart.cleanup.batch.size must be positive");
+        }
         this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
         this.cartEntityMapper = cartEntityMapper;
+        this.cartItemEntityMapper = cartItemEntityMapper;
+        this.cleanupMetrics = cleanupMetrics;
+        this.readYourWritesGuard = readYourWritesGuard;
+        // Re-reads a cart the replica has not caught up on, outside the replica transaction
+        this.primaryReadTemplate = new TransactionTemplate(transactionManager);
+        this.primaryReadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.primaryReadTemplate.setReadOnly(true);
+        this.cleanupBatchSize = cleanupBatchSize;
     }
 
     @Override
@@ -50,7 +90,15 @@ public class CartAdapter implements ICartPersistencePort {
             // Validate cart before saving
             validateCartForSave(cartModel);
 
-            return saveWithOptimisticLockRetry(cartModel);
+            CartModel savedModel = cartModel.getId() == null
+                    ? insertCart(cartModel)
+                    : saveChanges(cartModel);
+
+            // Log cart summary for debugging
+            logger.debug("Saved cart summary: User: {}, Items: {}, Status: {}",
+                    savedModel.getUserId(), savedModel.getItemCount(), savedModel.getStatus());
+
+            return savedModel;
 
         } catch (ConcurrentCartModificationException e) {
             // Re-throw concurrency exceptions as-is
@@ -62,163 +110,130 @@ public class CartAdapter implements ICartPersistencePort {
     }
 
     /**
-     * Save cart with automatic retry on optimistic locking failures
+     * Insert a new cart together with its items
      */
-    private CartModel saveWithOptimisticLockRetry(CartModel cartModel) {
-        Exception lastException = null;
-
-        for (int attempt = 1; attempt <= MAX_OPTIMISTIC_LOCK_RETRIES; attempt++) {
-            try {
-                logger.debug("Attempting to save cart for user {} (attempt {})", cartModel.getUserId(), attempt);
-
-                CartEntity cartEntity = cartEntityMapper.toEntity(cartModel);
-
-                // Special handling for optimistic locking
-                CartEntity savedEntity;
-                try {
-                    savedEntity = cartRepository.save(cartEntity);
-                    logger.debug("Successfully saved cart with ID: {} on attempt {}", savedEntity.getId(), attempt);
-                } catch (ObjectOptimisticLockingFailureException e) {
-                    handleOptimisticLockingFailure(e, cartModel.getUserId(), attempt);
-                    if (attempt == MAX_OPTIMISTIC_LOCK_RETRIES) {
-                        throw new ConcurrentCartModificationException(
-                                "Cart was modified by another session. Please refresh and try again.");
-                    }
-                    waitAndRetry(attempt);
-                    cartModel = refreshCartModelForRetry(cartModel);
-                    continue;
-                } catch (OptimisticLockException e) {
-                    handleOptimisticLockingFailure(e, cartModel.getUserId(), attempt);
-                    if (attempt == MAX_OPTIMISTIC_LOCK_RETRIES) {
-                        throw new ConcurrentCartModificationException(
-                                "Cart was modified by another session. Please refresh and try again.");
-                    }
-                    waitAndRetry(attempt);
-                    cartModel = refreshCartModelForRetry(cartModel);
-                    continue;
-                } catch (OptimisticLockingFailureException e) {
-                    handleOptimisticLockingFailure(e, cartModel.getUserId(), attempt);
-                    if (attempt == MAX_OPTIMISTIC_LOCK_RETRIES) {
-                        throw new ConcurrentCartModificationException(
-                                "Cart was modified by another session. Please refresh and try again.");
-                    }
-                    waitAndRetry(attempt);
-                    cartModel = refreshCartModelForRetry(cartModel);
-                    continue;
-                }
-
-                CartModel savedModel = cartEntityMapper.toModel(savedEntity);
-
-                // Log cart summary for debugging
-                logger.debug("Saved cart summary: User: {}, Items: {}, Status: {}",
-                        savedModel.getUserId(),
-                        savedModel.getItems() != null ? savedModel.getItems().size() : 0,
-                        savedModel.getStatus());
+    private CartModel insertCart(CartModel cartModel) {
+        CartEntity cartEntity = cartEntityMapper.toEntity(cartModel);
+        // A null version lets JPA persist the row instead of merging it
+        cartEntity.setVersion(null);
+        cartEntity.setItems(cartModel.getItems().stream()
+                .map(this::toNewItemEntity)
+                .collect(Collectors.toList()));
+
+        CartEntity savedEntity = cartRepository.save(cartEntity);
+        readYourWritesGuard.recordCartVersionOnCommit(savedEntity.getId(), savedEntity.getVersion());
+        logger.debug("Inserted cart with ID: {} and {} item(s)", savedEntity.getId(), savedEntity.getItems().size());
+        return toModelWithItems(savedEntity);
+    }
 
-                return savedModel;
+    /**
+     * Write only what changed since the cart was loaded: one versioned UPDATE on carts,
+     * then DELETE/UPDATE/INSERT statements for the affected cart_items rows.
+     * A version mismatch is reported to the caller; CartServiceTransactions runs the whole
+     * operation again on a fresh copy, since retrying here would drop the caller's change.
+     */
+    private CartModel saveChanges(CartModel cartModel) {
+        Long cartId = cartModel.getId();
+        Integer expectedVersion = cartModel.isTracked() ? cartModel.getPersistedVersion() : cartModel.getVersion();
+
+        int updated = cartRepository.updateIfVersionMatches(cartId, expectedVersion, cartModel.getTotal(),
+                cartModel.getLastUpdated(), cartModel.getStatus(), cartModel.getSessionId());
+        if (updated == 0) {
+            logger.warn("Cart ID {} for user {} was modified by another session (expected version {})",
+                    cartId, cartModel.getUserId(), expectedVersion);
+            throw new ConcurrentCartModificationException(
+                    "Cart was modified by another session. Please refresh and try again.");
+        }
 
-            } catch (ObjectOptimisticLockingFailureException e) {
-                lastException = e;
-                logger.warn("Optimistic locking failure on attempt {} for user {}: {}",
-                        attempt, cartModel.getUserId(), e.getMessage());
-                if (attempt == MAX_OPTIMISTIC_LOCK_RETRIES) {
-                    break;
-                }
-            } catch (OptimisticLockException e) {
-                lastException = e;
-                logger.warn("Optimistic lock exception on attempt {} for user {}: {}",
-                        attempt, cartModel.getUserId(), e.getMessage());
-                if (attempt == MAX_OPTIMISTIC_LOCK_RETRIES) {
-                    break;
-                }
-            } catch (OptimisticLockingFailureException e) {
-                lastException = e;
-                logger.warn("Spring optimistic locking failure on attempt {} for user {}: {}",
-                        attempt, cartModel.getUserId(), e.getMessage());
-                if (attempt == MAX_OPTIMISTIC_LOCK_RETRIES) {
-                    break;
-                }
-            } catch (Exception e) {
-                logger.error("Unexpected error on attempt {} for user {}: {}",
-                        attempt, cartModel.getUserId(), e.getMessage(), e);
-                throw e;
-            }
+        if (cartModel.isTracked()) {
+            applyItemChanges(cartModel);
+        } else {
+            // No stored baseline to diff against, so the item lines are replaced
+            logger.debug("Cart ID {} has no tracked baseline, rewriting its items", cartId);
+            cartItemRepository.deleteByCartId(cartId);
+            insertItems(cartId, cartModel.getItems());
         }
 
-        // If we get here, all retry attempts failed
-        logger.error("Failed to save cart after {} attempts for user {}",
-                MAX_OPTIMISTIC_LOCK_RETRIES, cartModel.getUserId());
-        throw new ConcurrentCartModificationException(
-                "Unable to save cart due to concurrent modifications. Please refresh and try again.");
+        cartModel.setVersion(expectedVersion + 1);
+        cartModel.markPersisted();
+        readYourWritesGuard.recordCartVersionOnCommit(cartId, cartModel.getVersion());
+        return cartModel;
     }
 
     /**
-     * Wait before retry with exponential backoff
+     * Apply tracked item changes; removals first so a re-added article never hits the unique key
      */
-    private void waitAndRetry(int attempt) {
-        try {
-            Thread.sleep(RETRY_DELAY_MS * attempt);
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Save operation interrupted", ie);
+    private void applyItemChanges(CartModel cartModel) {
+        if (!cartModel.hasItemChanges()) {
+            return;
         }
-    }
 
-    /**
-     * Handle optimistic locking failure with detailed logging
-     */
-    private void handleOptimisticLockingFailure(Exception e, String userId, int attempt) {
-        String errorDetails = extractOptimisticLockErrorDetails(e);
-        logger.warn("Optimistic locking failure for cart user {} on attempt {}: {} - Details: {}",
-                userId, attempt, e.getMessage(), errorDetails);
+        Long cartId = cartModel.getId();
+        Map<Long, CartItemModel> itemsByArticleId = cartModel.getItems().stream()
+                .collect(Collectors.toMap(CartItemModel::getArticleId, Function.identity()));
+
+        if (!cartModel.getRemovedArticleIds().isEmpty()) {
+            cartItemRepository.deleteByCartIdAndArticleIdIn(cartId, cartModel.getRemovedArticleIds());
+        }
+
+        // Changed lines go out as one JDBC batch rather than one UPDATE each
+        List<CartItemEntity> changedLines = cartModel.getChangedArticleIds().stream()
+                .map(itemsByArticleId::get)
+                .map(item -> {
+                    CartItemEntity line = cartItemEntityMapper.toEntity(item);
+                    line.setSubtotal(item.getQuantity() * item.getPrice());
+                    return line;
+                })
+                .collect(Collectors.toList());
+        if (!cartItemRepository.updateLines(cartId, changedLines, LocalDateTime.now())) {
+            throw new ConcurrentCartModificationException(
+                    "Cart was modified by another session. Please refresh and try again.");
+        }
+
+        if (!cartModel.getAddedArticleIds().isEmpty()) {
+            insertItems(cartId, cartModel.getAddedArticleIds().stream()
+                    .map(itemsByArticleId::get)
+                    .collect(Collectors.toList()));
+        }
+
+        logger.debug("Applied item changes to cart ID {}: {} added, {} changed, {} removed", cartId,
+                cartModel.getAddedArticleIds().size(), cartModel.getChangedArticleIds().size(),
+                cartModel.getRemovedArticleIds().size());
     }
 
-    /**
-     * Extract meaningful details from optimistic locking exceptions
-     */
-    private String extractOptimisticLockErrorDetails(Exception e) {
-        StringBuilder details = new StringBuilder();
-
-        if (e instanceof ObjectOptimisticLockingFailureException) {
-            ObjectOptimisticLockingFailureException ex = (ObjectOptimisticLockingFailureException) e;
-            details.append("Object: ").append(ex.getPersistentClassName());
-            if (ex.getIdentifier() != null) {
-                details.append(", ID: ").append(ex.getIdentifier());
-            }
-        } else if (e instanceof OptimisticLockException) {
-            OptimisticLockException ex = (OptimisticLockException) e;
-            if (ex.getEntity() != null) {
-                details.append("Entity: ").append(ex.getEntity().getClass().getSimpleName());
-            }
-        } else if (e instanceof OptimisticLockingFailureException) {
-            details.append("Spring OptimisticLockingFailureException");
+    private void insertItems(Long cartId, List<CartItemModel> items) {
+        if (items.isEmpty()) {
+            return;
         }
 
-        return details.toString();
+        // A reference avoids loading the cart just to set the foreign key
+        CartEntity cartReference = cartRepository.getReferenceById(cartId);
+        List<CartItemEntity> itemEntities = items.stream()
+                .map(item -> {
+                    CartItemEntity itemEntity = toNewItemEntity(item);
+                    itemEntity.setCart(cartReference);
+                    return itemEntity;
+                })
+                .collect(Collectors.toList());
+        cartItemRepository.saveAll(itemEntities);
+    }
+
+    private CartItemEntity toNewItemEntity(CartItemModel item) {
+        CartItemEntity itemEntity = cartItemEntityMapper.toEntity(item);
+        itemEntity.setId(null);
+        return itemEntity;
     }
 
     /**
-     * Refresh cart model for retry attempt
+     * Map a stored cart with its items and mark it as the baseline for change tracking
      */
-    private CartModel refreshCartModelForRetry(CartModel cartModel) {
-        try {
-            // Try to fetch the latest version of the cart from database
-            Optional<CartModel> latestCart = findByUserIdAndStatus(cartModel.getUserId(), cartModel.getStatus());
-
-            if (latestCart.isPresent()) {
-                logger.debug("Refreshed cart model for retry - found existing cart with ID: {}",
-                        latestCart.get().getId());
-                return latestCart.get();
-            } else {
-                logger.debug("No existing cart found during refresh, will create new one");
-                // Return the original model but reset ID to null for fresh creation
-                cartModel.setId(null);
-                return cartModel;
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to refresh cart model for retry, using original: {}", e.getMessage());
-            return cartModel;
-        }
+    private CartModel toModelWithItems(CartEntity cartEntity) {
+        CartModel cartModel = cartEntityMapper.toModel(cartEntity);
+        cartModel.restoreItems(cartEntity.getItems().stream()
+                .map(cartItemEntityMapper::toModel)
+                .collect(Collectors.toList()));
+        cartModel.markPersisted();
+        return cartModel;
     }
 
     @Override
@@ -230,30 +245,28 @@ public class CartAdapter implements ICartPersistencePort {
             validateUserId(userId);
             validateStatus(status);
 
-            List<CartEntity> cartEntities = cartRepository.findByUserIdAndStatus(userId, status);
+            Optional<CartEntity> cartEntity = findWithItems(userId, status);
+            if (cartEntity.isPresent()
+                    && readYourWritesGuard.isBehind(cartEntity.get().getId(), cartEntity.get().getVersion())) {
+                logger.debug("Cart {} read at version {} is behind this node's writes, reading it from the primary",
+                        cartEntity.get().getId(), cartEntity.get().getVersion());
+                cartEntity = readYourWritesGuard.onPrimary(() ->
+                        primaryReadTemplate.execute(transaction -> findWithItems(userId, status)));
+            }
 
-            if (cartEntities.isEmpty()) {
+            if (cartEntity.isEmpty()) {
                 logger.debug("No cart found for user {} with status {}", userId, status);
                 return Optional.empty();
             }
 
-            // Handle multiple active carts (cleanup scenario)
-            if (cartEntities.size() > 1) {
-                logger.warn("Found {} carts for user {} with status {}. Cleaning up duplicates.",
-                        cartEntities.size(), userId, status);
-                return handleMultipleCarts(cartEntities, userId, status);
-            }
-
-            CartEntity cartEntity = cartEntities.get(0);
-            CartModel cartModel = cartEntityMapper.toModel(cartEntity);
-
-            // Fixed: Check if cart entity is expired (using entity's lastUpdated field)
-            if (isCartEntityExpired(cartEntity) && ACTIVE_STATUS.equals(status)) {
-                logger.info("Found expired active cart for user {}, abandoning it", userId);
-                abandonExpiredCart(cartEntity);
+            // An expired active cart is not returned; the expiry sweep or the next
+            // findOrCreateActive abandons it, since this read may run read-only
+            if (ACTIVE_STATUS.equals(status) && isCartEntityExpired(cartEntity.get())) {
+                logger.info("Found expired active cart for user {}, not returning it", userId);
                 return Optional.empty();
             }
 
+            CartModel cartModel = toModelWithItems(cartEntity.get());
             logger.debug("Found cart: User: {}, Items: {}, Status: {}",
                     cartModel.getUserId(),
                     cartModel.getItems() != null ? cartModel.getItems().size() : 0,
@@ -266,6 +279,76 @@ public class CartAdapter implements ICartPersistencePort {
         }
     }
 
+    private Optional<CartEntity> findWithItems(String userId, String status) {
+        return ACTIVE_STATUS.equals(status)
+                ? findActiveWithItems(userId)
+                : findLatestWithItems(userId, status);
+    }
+
+    /**
+     * At most one active cart exists per user, so it is read with its items by its unique key.
+     * With the second-level cache on, only the cart's id and version are read and the cart
+     * and items come from the cache if it holds them at that version.
+     */
+    private Optional<CartEntity> findActiveWithItems(String userId) {
+        if (!cartRepository.isSecondLevelCacheEnabled()) {
+            return cartRepository.findWithItemsByActiveUserId(userId);
+        }
+
+        Optional<CartVersion> active = cartRepository.findVersionByActiveUserId(userId);
+        if (active.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<CartEntity> cached = cartRepository.findCachedWithItems(active.get().getId(), active.get().getVersion());
+        return cached.isPresent() ? cached : cartRepository.findWithItemsByActiveUserId(userId);
+    }
+
+    /**
+     * The most recent cart in a non-active status; several can exist, so the
+     * summaries pick one and only that cart is loaded with its items
+     */
+    private Optional<CartEntity> findLatestWithItems(String userId, String status) {
+        List<CartSummary> latest = cartRepository.findSummariesByUserIdAndStatus(userId, status, PageRequest.of(0, 1));
+        if (latest.isEmpty()) {
+            return Optional.empty();
+        }
+        return cartRepository.findWithItemsById(latest.get(0).getId());
+    }
+
+    /**
+     * Resolve the active cart in one short transaction with a fixed statement budget:
+     * one UPDATE abandoning stale carts, one SELECT joining its items, and one INSERT
+     * only when there is no active cart left.
+     */
+    @Override
+    @Transactional
+    public CartModel findOrCreateActive(String userId) {
+        logger.debug("Finding or creating active cart for user: {}", userId);
+        validateUserId(userId);
+
+        LocalDateTime now = LocalDateTime.now();
+        int abandoned = cartRepository.abandonStaleActiveCarts(userId, now.minusHours(CART_EXPIRY_HOURS), now);
+        if (abandoned > 0) {
+            logger.info("Abandoned {} stale cart(s) for user {}", abandoned, userId);
+        }
+
+        Optional<CartEntity> activeCart = findActiveWithItems(userId);
+        if (activeCart.isPresent()) {
+            return toModelWithItems(activeCart.get());
+        }
+
+        try {
+            CartModel created = insertCart(new CartModel(userId));
+            logger.info("Created new cart with ID {} for user {}", created.getId(), userId);
+            return created;
+        } catch (DataIntegrityViolationException e) {
+            // Another request created the user's active cart first (uk_carts_active_user)
+            logger.info("Active cart for user {} was created concurrently", userId);
+            throw new ConcurrentCartModificationException(
+                    "Cart was created by another session. Please try again.");
+        }
+    }
+
     /**
      * Fixed: Check if cart entity is expired using entity's timestamp
      */
@@ -281,97 +364,51 @@ public class CartAdapter implements ICartPersistencePort {
     @Override
     @Transactional
     public void deleteByUserId(String userId) {
-        logger.debug("Deleting carts for user: {}", userId);
-
-        try {
-            validateUserId(userId);
-
-            // Find all carts for the user
-            List<CartEntity> userCarts = cartRepository.findByUserId(userId);
-
-            if (userCarts.isEmpty()) {
-                logger.info("No carts found to delete for user: {}", userId);
-                return;
-            }
-
-            // Log what we're about to delete
-            userCarts.forEach(cart ->
-                    logger.debug("Deleting cart ID {} with status {} for user {}",
-                            cart.getId(), cart.getStatus(), userId));
-
-            // Delete all carts for the user with retry logic for optimistic locking
-            deleteCartsWithRetry(userCarts, userId);
-
-            logger.info("Successfully deleted {} cart(s) for user: {}", userCarts.size(), userId);
+        validateUserId(userId);
+        deleteCarts(List.of(userId));
+    }
 
-        } catch (Exception e) {
-            logger.error("Error deleting carts for user {}: {}", userId, e.getMessage(), e);
-            throw new RuntimeException("Failed to delete carts for user", e);
-        }
+    /**
+     * Bulk deletes are maintenance and run on the maintenance pool
+     */
+    @Override
+    @Transactional
+    public int deleteByUserIds(Collection<String> userIds) {
+        return MaintenanceWorkload.call(() -> deleteCarts(userIds));
     }
 
     /**
-     * Delete carts with retry logic for optimistic locking failures
+     * Delete the carts of the given users with two set-based statements: their
+     * lines first, then the carts. Callers bound the list size.
      */
-    private void deleteCartsWithRetry(List<CartEntity> userCarts, String userId) {
-        for (CartEntity cart : userCarts) {
-            boolean deleted = false;
-            Exception lastException = null;
-
-            for (int attempt = 1; attempt <= MAX_OPTIMISTIC_LOCK_RETRIES && !deleted; attempt++) {
-                try {
-                    cartRepository.delete(cart);
-                    deleted = true;
-                    logger.debug("Successfully deleted cart ID {} on attempt {}", cart.getId(), attempt);
-                } catch (ObjectOptimisticLockingFailureException e) {
-                    lastException = e;
-                    logger.warn("Optimistic locking failure deleting cart ID {} on attempt {}: {}",
-                            cart.getId(), attempt, e.getMessage());
-                    handleDeleteRetry(cart, attempt);
-                } catch (OptimisticLockException e) {
-                    lastException = e;
-                    logger.warn("Optimistic lock exception deleting cart ID {} on attempt {}: {}",
-                            cart.getId(), attempt, e.getMessage());
-                    handleDeleteRetry(cart, attempt);
-                } catch (OptimisticLockingFailureException e) {
-                    lastException = e;
-                    logger.warn("Spring optimistic locking failure deleting cart ID {} on attempt {}: {}",
-                            cart.getId(), attempt, e.getMessage());
-                    handleDeleteRetry(cart, attempt);
-                } catch (Exception e) {
-                    logger.error("Unexpected error deleting cart ID {}: {}", cart.getId(), e.getMessage());
-                    throw e;
-                }
-            }
+    private int deleteCarts(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        logger.debug("Deleting carts for {} user(s)", userIds.size());
 
-            if (!deleted) {
-                logger.error("Failed to delete cart ID {} after {} attempts due to optimistic locking",
-                        cart.getId(), MAX_OPTIMISTIC_LOCK_RETRIES);
-                // Continue with other carts rather than failing the entire operation
-            }
+        try {
+            int deletedItems = cartItemRepository.deleteByCartUserIdIn(userIds);
+            int deletedCarts = cartRepository.deleteByUserIdIn(userIds);
+
+            logger.info("Deleted {} cart(s) and {} item(s) for {} user(s)",
+                    deletedCarts, deletedItems, userIds.size());
+            return deletedCarts;
+        } catch (Exception e) {
+            logger.error("Error deleting carts for {} user(s): {}", userIds.size(), e.getMessage(), e);
+            throw new RuntimeException("Failed to delete carts for user", e);
         }
     }
 
     /**
-     * Handle retry logic for delete operations
+     * Only the id and version of the active cart, from its unique key
      */
-    private void handleDeleteRetry(CartEntity cart, int attempt) {
-        if (attempt < MAX_OPTIMISTIC_LOCK_RETRIES) {
-            try {
-                Thread.sleep(RETRY_DELAY_MS * attempt);
-                // Refresh the entity for retry
-                Optional<CartEntity> refreshedCart = cartRepository.findById(cart.getId());
-                if (refreshedCart.isPresent()) {
-                    cart = refreshedCart.get();
-                } else {
-                    // Cart was already deleted by another transaction
-                    logger.info("Cart ID {} was already deleted by another transaction", cart.getId());
-                }
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Delete operation interrupted", ie);
-            }
-        }
+    @Override
+    @Transactional(readOnly = true)
+    public boolean isActiveCartAt(String userId, Long cartId, Integer version) {
+        return cartRepository.findVersionByActiveUserId(userId)
+                .filter(active -> active.getId().equals(cartId) && active.getVersion().equals(version))
+                .isPresent();
     }
 
     @Override
@@ -404,20 +441,12 @@ public class CartAdapter implements ICartPersistencePort {
             validateStatus(oldStatus);
             validateStatus(newStatus);
 
-            List<CartEntity> carts = cartRepository.findByUserIdAndStatus(userId, oldStatus);
-
-            if (carts.isEmpty()) {
+            int updatedCount = cartRepository.updateStatusByUserId(userId, oldStatus, newStatus, LocalDateTime.now());
+            if (updatedCount == 0) {
                 logger.info("No carts found with status {} for user {}", oldStatus, userId);
                 return;
             }
 
-            int updatedCount = 0;
-            for (CartEntity cart : carts) {
-                if (updateCartStatusWithRetry(cart, newStatus)) {
-                    updatedCount++;
-                }
-            }
-
             logger.info("Successfully updated {} cart(s) status from {} to {} for user {}",
                     updatedCount, oldStatus, newStatus, userId);
 
@@ -428,126 +457,67 @@ public class CartAdapter implements ICartPersistencePort {
     }
 
     /**
-     * Update cart status with retry logic for optimistic locking
-     */
-    private boolean updateCartStatusWithRetry(CartEntity cart, String newStatus) {
-        for (int attempt = 1; attempt <= MAX_OPTIMISTIC_LOCK_RETRIES; attempt++) {
-            try {
-                cart.setStatus(newStatus);
-                cart.setLastUpdated(LocalDateTime.now());
-                cartRepository.save(cart);
-                logger.debug("Updated cart ID {} status to {} on attempt {}", cart.getId(), newStatus, attempt);
-                return true;
-            } catch (ObjectOptimisticLockingFailureException e) {
-                handleStatusUpdateRetry(cart, attempt, e);
-            } catch (OptimisticLockException e) {
-                handleStatusUpdateRetry(cart, attempt, e);
-            } catch (OptimisticLockingFailureException e) {
-                handleStatusUpdateRetry(cart, attempt, e);
-            } catch (Exception e) {
-                logger.error("Unexpected error updating cart ID {} status: {}", cart.getId(), e.getMessage());
-                return false;
-            }
-        }
-
-        logger.error("Failed to update cart ID {} status after {} attempts",
-                cart.getId(), MAX_OPTIMISTIC_LOCK_RETRIES);
-        return false;
-    }
-
-    /**
-     * Handle retry logic for status update operations
+     * Clean up expired carts for all users in chunks of cart.cleanup.batch.size.
+     * Each chunk reads the oldest expired ids and abandons them in one UPDATE that
+     * commits on its own, so memory and lock time don't grow with the backlog.
+     * Abandoned carts leave the ACTIVE range of the index, so the next chunk starts
+     * where the previous one stopped. Stops before the next chunk once stop returns true.
+     * Runs on the maintenance pool.
      */
-    private void handleStatusUpdateRetry(CartEntity cart, int attempt, Exception e) {
-        logger.warn("Optimistic locking failure updating cart ID {} status on attempt {}: {}",
-                cart.getId(), attempt, e.getMessage());
-
-        if (attempt < MAX_OPTIMISTIC_LOCK_RETRIES) {
-            try {
-                Thread.sleep(RETRY_DELAY_MS * attempt);
-                // Refresh the entity
-                Optional<CartEntity> refreshedCart = cartRepository.findById(cart.getId());
-                if (refreshedCart.isPresent()) {
-                    cart = refreshedCart.get();
-                } else {
-                    logger.warn("Cart ID {} no longer exists", cart.getId());
-                }
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Update operation interrupted", ie);
-            }
-        }
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int cleanupExpiredCarts(BooleanSupplier stop) {
+        return MaintenanceWorkload.call(() -> abandonExpiredCarts(stop));
     }
 
-    /**
-     * Clean up expired carts for all users
-     */
-    @Transactional
-    public int cleanupExpiredCarts() {
+    private int abandonExpiredCarts(BooleanSupplier stop) {
         logger.info("Starting cleanup of expired carts");
 
-        try {
-            LocalDateTime cutoffTime = LocalDateTime.now().minusHours(CART_EXPIRY_HOURS);
+        long sweepStart = System.nanoTime();
+        cleanupMetrics.sweepStarted();
+        LocalDateTime cutoffTime = LocalDateTime.now().minusHours(CART_EXPIRY_HOURS);
+        Pageable chunk = PageRequest.of(0, cleanupBatchSize);
+        int cleanedCount = 0;
 
-            // Find active carts that are older than the cutoff time
-            List<CartEntity> expiredCarts = cartRepository.findActiveCartsOlderThan(cutoffTime);
-
-            if (expiredCarts.isEmpty()) {
-                logger.info("No expired carts found for cleanup");
-                return 0;
-            }
-
-            logger.info("Found {} expired carts to clean up", expiredCarts.size());
-
-            int cleanedCount = 0;
-            for (CartEntity cart : expiredCarts) {
-                if (updateCartStatusWithRetry(cart, ABANDONED_STATUS)) {
-                    cleanedCount++;
-                    logger.debug("Abandoned expired cart ID {} for user {}", cart.getId(), cart.getUserId());
+        try {
+            List<Long> expiredIds;
+            do {
+                if (stop.getAsBoolean()) {
+                    // Another node owns the sweep now
+                    break;
+                }
+                long chunkStart = System.nanoTime();
+                expiredIds = cartRepository.findExpiredActiveCartIds(cutoffTime, chunk);
+                if (expiredIds.isEmpty()) {
+                    break;
                 }
-            }
 
-            logger.info("Successfully cleaned up {} expired carts", cleanedCount);
-            return cleanedCount;
+                int abandoned = cartRepository.abandonExpiredCarts(expiredIds, cutoffTime, LocalDateTime.now());
+                cleanedCount += abandoned;
+                cleanupMetrics.recordChunk(abandoned, System.nanoTime() - chunkStart);
+                logger.debug("Abandoned {} of {} expired carts in chunk", abandoned, expiredIds.size());
+            } while (expiredIds.size() == cleanupBatchSize && !Thread.currentThread().isInterrupted());
 
+            logger.info("Successfully cleaned up {} expired carts", cleanedCount);
         } catch (Exception e) {
-            logger.error("Error during expired cart cleanup: {}", e.getMessage(), e);
-            return 0;
+            logger.error("Error during expired cart cleanup after {} carts: {}", cleanedCount, e.getMessage(), e);
+        } finally {
+            cleanupMetrics.recordSweep(System.nanoTime() - sweepStart);
         }
+        return cleanedCount;
     }
 
-    /**
-     * Handle multiple carts scenario (should not happen but defensive programming)
-     */
-    private Optional<CartModel> handleMultipleCarts(List<CartEntity> cartEntities, String userId, String status) {
-        // Sort by last updated, keep the most recent
-        List<CartEntity> sortedCarts = cartEntities.stream()
-                .sorted((c1, c2) -> c2.getLastUpdated().compareTo(c1.getLastUpdated()))
-                .collect(Collectors.toList());
-
-        CartEntity latestCart = sortedCarts.get(0);
-
-        // Mark older carts as abandoned with retry logic
-        for (int i = 1; i < sortedCarts.size(); i++) {
-            CartEntity oldCart = sortedCarts.get(i);
-            if (updateCartStatusWithRetry(oldCart, ABANDONED_STATUS)) {
-                logger.info("Abandoned duplicate cart ID {} for user {}", oldCart.getId(), userId);
-            }
-        }
-
-        return Optional.of(cartEntityMapper.toModel(latestCart));
+    @Override
+    @Transactional(readOnly = true)
+    public long countByStatus(String status) {
+        validateStatus(status);
+        return cartRepository.countByStatus(status);
     }
 
-    /**
-     * Abandon an expired cart with retry logic
-     */
-    private void abandonExpiredCart(CartEntity cartEntity) {
-        if (updateCartStatusWithRetry(cartEntity, ABANDONED_STATUS)) {
-            logger.info("Abandoned expired cart ID {} for user {}", cartEntity.getId(), cartEntity.getUserId());
-        } else {
-            logger.error("Failed to abandon expired cart ID {} for user {}",
-                    cartEntity.getId(), cartEntity.getUserId());
-        }
+    @Override
+    @Transactional(readOnly = true)
+    public long countActiveCartsSince(LocalDateTime since) {
+        return cartRepository.countActiveCartsSince(since);
     }
 
     /**
@@ -0,0 +1,121 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartArchiveRepository;
+import com.rockburger.cartservice.configuration.datasource.MaintenanceWorkload;
+import com.rockburger.cartservice.domain.spi.ICartArchivePersistencePort;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Moves terminal carts to the archive tables in chunks of cart.archive.batch.size.
+ * Each chunk is copied and deleted in its own transaction. Between chunks the
+ * archiver sleeps long enough to stay under cart.archive.max-rows-per-second,
+ * counting cart and item rows moved, so it never competes with request traffic.
+ * Its connections come from the maintenance pool.
+ *
+ * Only carts and items are archived. cart_history rows of an archived cart are dropped
+ * with it by their ON DELETE CASCADE foreign key; nothing in this service writes that
+ * table, so there is no history to keep. cart_sessions rows keep their cart_id set to NULL.
+ */
+@Service
+public class CartArchiveAdapter implements ICartArchivePersistencePort {
+    private static final Logger logger = LoggerFactory.getLogger(CartArchiveAdapter.class);
+
+    private final ICartArchiveRepository cartArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxRowsPerSecond;
+
+    public CartArchiveAdapter(ICartArchiveRepository cartArchiveRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${cart.archive.batch.size:200}") int batchSize,
+                              @Value("${cart.archive.max-rows-per-second:1000}") int maxRowsPerSecond) {
+        if (batchSize <= 0 || maxRowsPerSecond <= 0) {
+            throw new IllegalArgumentException("cart.archive batch size and rate must be positive");
+        }
+        this.cartArchiveRepository = cartArchiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+    }
+
+    @Override
+    public int archiveTerminalCarts(LocalDateTime olderThan, BooleanSupplier stop) {
+        return MaintenanceWorkload.call(() -> archiveChunks(olderThan, stop));
+    }
+
+    private int archiveChunks(LocalDateTime olderThan, BooleanSupplier stop) {
+        logger.info("Archiving terminal carts last updated before {}", olderThan);
+
+        Pageable chunk = PageRequest.of(0, batchSize);
+        int archivedCarts = 0;
+        long archivedItems = 0;
+
+        // Another node owns the archive once this node's lease is lost
+        while (!Thread.currentThread().isInterrupted() && !stop.getAsBoolean()) {
+            long chunkStart = System.nanoTime();
+            int[] moved = transactionTemplate.execute(status -> archiveChunk(olderThan, chunk));
+            if (moved == null || moved[0] == 0) {
+                break;
+            }
+
+            archivedCarts += moved[0];
+            archivedItems += moved[1];
+            logger.debug("Archived chunk of {} carts and {} items", moved[0], moved[1]);
+
+            if (moved[0] < batchSize) {
+                break;
+            }
+            throttle(moved[0] + moved[1], chunkStart);
+        }
+
+        logger.info("Archived {} carts and {} items", archivedCarts, archivedItems);
+        return archivedCarts;
+    }
+
+    /**
+     * Copy one chunk of carts and their items to the archive, then delete them.
+     * Returns {carts, items} moved.
+     */
+    private int[] archiveChunk(LocalDateTime olderThan, Pageable chunk) {
+        List<Long> cartIds = cartArchiveRepository.findArchivableCartIds(olderThan, chunk);
+        if (cartIds.isEmpty()) {
+            return new int[]{0, 0};
+        }
+
+        LocalDateTime archivedAt = LocalDateTime.now();
+        int items = cartArchiveRepository.copyItemsToArchive(cartIds, archivedAt);
+        cartArchiveRepository.copyCartsToArchive(cartIds, archivedAt);
+        cartArchiveRepository.deleteItemsOfCarts(cartIds);
+        int carts = cartArchiveRepository.deleteCarts(cartIds);
+        return new int[]{carts, items};
+    }
+
+    /**
+     * Sleep for whatever is left of the time the moved rows are allowed to take
+     */
+    private void throttle(long rowsMoved, long chunkStartNanos) {
+        long budgetNanos = TimeUnit.SECONDS.toNanos(rowsMoved) / maxRowsPerSecond;
+        long remainingNanos = budgetNanos - (System.nanoTime() - chunkStartNanos);
+        if (remainingNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(remainingNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer meters for the expired cart sweep.
+ *
+ * cart.cleanup.abandoned         - carts abandoned, incremented after every committed chunk
+ * cart.cleanup.chunks            - chunks committed
+ * cart.cleanup.chunk.duration    - read plus update of one chunk
+ * cart.cleanup.duration          - one full sweep
+ * cart.cleanup.last.abandoned    - carts abandoned by the current or most recent sweep
+ */
+@Component
+public class CartCleanupMetrics {
+
+    private final Counter abandonedCounter;
+    private final Counter chunkCounter;
+    private final Timer chunkTimer;
+    private final Timer sweepTimer;
+    private final AtomicLong lastSweepAbandoned = new AtomicLong();
+
+    public CartCleanupMetrics(MeterRegistry meterRegistry) {
+        this.abandonedCounter = Counter.builder("cart.cleanup.abandoned")
+                .description("Expired carts abandoned by the cleanup sweep")
+                .register(meterRegistry);
+        this.chunkCounter = Counter.builder("cart.cleanup.chunks")
+                .description("Cleanup chunks committed")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("cart.cleanup.chunk.duration")
+                .description("Time to read and abandon one chunk of expired carts")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("cart.cleanup.duration")
+                .description("Time of one full expired cart sweep")
+                .register(meterRegistry);
+        Gauge.builder("cart.cleanup.last.abandoned", lastSweepAbandoned, AtomicLong::get)
+                .description("Carts abandoned by the current or most recent sweep")
+                .register(meterRegistry);
+    }
+
+    public void sweepStarted() {
+        lastSweepAbandoned.set(0);
+    }
+
+    public void recordChunk(int abandoned, long nanos) {
+        abandonedCounter.increment(abandoned);
+        chunkCounter.increment();
+        chunkTimer.record(nanos, TimeUnit.NANOSECONDS);
+        lastSweepAbandoned.addAndGet(abandoned);
+    }
+
+    public void recordSweep(long nanos) {
+        sweepTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -1,10 +1,19 @@
 package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
 
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
 import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartItemEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapper;
 import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapper;
 import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartItemRepository;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartRepository;
+import com.rockburger.cartservice.configuration.datasource.ReadYourWritesGuard;
 import com.rockburger.cartservice.domain.exception.CartItemNotFoundException;
+import com.rockburger.cartservice.domain.exception.CartNotFoundException;
+import com.rockburger.cartservice.domain.exception.ConcurrentCartModificationException;
+import com.rockburger.cartservice.domain.exception.DuplicateArticleException;
 import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.model.CartModel;
+import com.rockburger.cartservice.domain.spi.ICartItemPersistencePort;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,19 +22,186 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.validation.ConstraintViolationException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
-public class CartItemAdapter {
+public class CartItemAdapter implements ICartItemPersistencePort {
     private static final Logger logger = LoggerFactory.getLogger(CartItemAdapter.class);
 
     private final ICartItemRepository cartItemRepository;
+    private final ICartRepository cartRepository;
+    private final ICartEntityMapper cartEntityMapper;
     private final ICartItemEntityMapper cartItemEntityMapper;
+    private final ReadYourWritesGuard readYourWritesGuard;
+
+    private static final String UNIQUE_CART_ARTICLE = "unique_cart_article";
+    private static final int CART_EXPIRY_HOURS = 24;
 
     public CartItemAdapter(ICartItemRepository cartItemRepository,
-                           ICartItemEntityMapper cartItemEntityMapper) {
+                           ICartRepository cartRepository,
+                           ICartEntityMapper cartEntityMapper,
+                           ICartItemEntityMapper cartItemEntityMapper,
+                           ReadYourWritesGuard readYourWritesGuard) {
         this.cartItemRepository = cartItemRepository;
+        this.cartRepository = cartRepository;
+        this.cartEntityMapper = cartEntityMapper;
         this.cartItemEntityMapper = cartItemEntityMapper;
+        this.readYourWritesGuard = readYourWritesGuard;
+    }
+
+    /**
+     * Add an item to the user's active cart in three statements, without scanning its lines:
+     * one guarded UPDATE adding the subtotal, one SELECT of the cart with its items, and the
+     * INSERT of the line. The cart row is updated first so concurrent adds to the same cart
+     * queue on its row lock instead of deadlocking on the foreign key check; a duplicate
+     * article is rejected by unique_cart_article and the transaction rolls back the total change.
+     * Empty when the user has no fresh active cart with room for another line.
+     */
+    @Override
+    @Transactional
+    public Optional<CartModel> addItem(String userId, CartItemModel item) {
+        logger.debug("Adding article {} to the active cart of user {}", item.getArticleId(), userId);
+
+        LocalDateTime now = LocalDateTime.now();
+        double subtotal = item.getQuantity() * item.getPrice();
+
+        int updated = cartRepository.addToActiveCartIfAccepting(userId, subtotal,
+                now.minusHours(CART_EXPIRY_HOURS), now, CartModel.MAX_ITEMS_PER_CART);
+        if (updated == 0) {
+            logger.debug("User {} has no fresh active cart with room for another line", userId);
+            return Optional.empty();
+        }
+
+        // The UPDATE above holds the row lock, so this reads the version it wrote
+        CartEntity cartEntity = cartRepository.findWithItemsByActiveUserId(userId)
+                .orElseThrow(() -> new ConcurrentCartModificationException(
+                        "Cart was modified by another session. Please refresh and try again."));
+
+        CartItemEntity itemEntity = cartItemEntityMapper.toEntity(item, cartEntity);
+        itemEntity.setId(null);
+        try {
+            cartItemRepository.saveAndFlush(itemEntity);
+        } catch (DataIntegrityViolationException e) {
+            if (!violatesConstraint(e, UNIQUE_CART_ARTICLE)) {
+                throw e;
+            }
+            logger.debug("Article {} already in cart {}", item.getArticleId(), cartEntity.getId());
+            throw new DuplicateArticleException("Item already exists in cart. Use update quantity instead.");
+        }
+        readYourWritesGuard.recordCartVersionOnCommit(cartEntity.getId(), cartEntity.getVersion());
+
+        List<CartItemModel> items = cartEntity.getItems().stream()
+                .map(cartItemEntityMapper::toModel)
+                .collect(Collectors.toCollection(ArrayList::new));
+        items.add(cartItemEntityMapper.toModel(itemEntity));
+        return Optional.of(toPersistedModel(cartEntity, items));
+    }
+
+    /**
+     * Whether the named constraint caused the failure; the name is looked for in the
+     * Hibernate exception and in the driver's message, whichever the dialect fills in
+     */
+    private static boolean violatesConstraint(Throwable failure, String constraintName) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof org.hibernate.exception.ConstraintViolationException) {
+                String violated = ((org.hibernate.exception.ConstraintViolationException) cause).getConstraintName();
+                if (violated != null && violated.toLowerCase(Locale.ROOT).contains(constraintName)) {
+                    return true;
+                }
+            }
+            String message = cause.getMessage();
+            if (message != null && message.toLowerCase(Locale.ROOT).contains(constraintName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Set a line's quantity in the user's active cart without reading the cart first: the
+     * cart row is moved to the new subtotal in the UPDATE that checks the line is there, then
+     * the line is updated and the cart is read back once with its items. Nothing is read before
+     * the writes, so there is no version to go stale and nothing to retry.
+     */
+    @Override
+    @Transactional(noRollbackFor = CartNotFoundException.class)
+    public CartModel updateItemQuantity(String userId, Long articleId, int quantity) {
+        logger.debug("Setting quantity of article {} in the active cart of user {} to {}", articleId, userId, quantity);
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoffTime = now.minusHours(CART_EXPIRY_HOURS);
+        if (cartRepository.setLineQuantityInActiveCart(userId, articleId, quantity, cutoffTime, now) == 0) {
+            throw missingCartOrLine(userId, articleId, cutoffTime);
+        }
+        if (cartItemRepository.updateQuantityInActiveCart(userId, articleId, quantity, now) == 0) {
+            throw new ConcurrentCartModificationException(
+                    "Cart was modified by another session. Please refresh and try again.");
+        }
+        return readBackActiveCart(userId);
+    }
+
+    /**
+     * Remove a line from the user's active cart without reading the cart first, in the same
+     * three statements as updateItemQuantity
+     */
+    @Override
+    @Transactional(noRollbackFor = CartNotFoundException.class)
+    public CartModel removeItem(String userId, Long articleId) {
+        logger.debug("Removing article {} from the active cart of user {}", articleId, userId);
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoffTime = now.minusHours(CART_EXPIRY_HOURS);
+        if (cartRepository.removeLineFromActiveCart(userId, articleId, cutoffTime, now) == 0) {
+            throw missingCartOrLine(userId, articleId, cutoffTime);
+        }
+        if (cartItemRepository.deleteFromActiveCart(userId, articleId) == 0) {
+            throw new ConcurrentCartModificationException(
+                    "Cart was modified by another session. Please refresh and try again.");
+        }
+        return readBackActiveCart(userId);
+    }
+
+    /**
+     * Why a guarded line write matched nothing; only failed writes pay for this lookup.
+     * CartNotFoundException leaves the transaction committable, as the cart service expects.
+     */
+    private RuntimeException missingCartOrLine(String userId, Long articleId, LocalDateTime cutoffTime) {
+        Optional<LocalDateTime> lastUpdated = cartRepository.findLastUpdatedByActiveUserId(userId);
+        if (lastUpdated.isEmpty()) {
+            return new CartNotFoundException("No active cart found for user");
+        }
+        if (lastUpdated.get().isBefore(cutoffTime)) {
+            return new CartNotFoundException("Cart session has expired, please create a new cart");
+        }
+        logger.debug("Article {} is not in the active cart of user {}", articleId, userId);
+        return new CartItemNotFoundException("Article not found in cart");
+    }
+
+    /**
+     * The cart row was written first in this transaction, so this reads the version it wrote
+     */
+    private CartModel readBackActiveCart(String userId) {
+        CartEntity cartEntity = cartRepository.findWithItemsByActiveUserId(userId)
+                .orElseThrow(() -> new ConcurrentCartModificationException(
+                        "Cart was modified by another session. Please refresh and try again."));
+        readYourWritesGuard.recordCartVersionOnCommit(cartEntity.getId(), cartEntity.getVersion());
+
+        List<CartItemModel> items = cartEntity.getItems().stream()
+                .map(cartItemEntityMapper::toModel)
+                .collect(Collectors.toCollection(ArrayList::new));
+        return toPersistedModel(cartEntity, items);
+    }
+
+    private CartModel toPersistedModel(CartEntity cartEntity, List<CartItemModel> items) {
+        CartModel cart = cartEntityMapper.toModel(cartEntity);
+        cart.restoreItems(items);
+        cart.markPersisted();
+        return cart;
     }
 
     /**
@@ -3,64 +3,92 @@ package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
 import com.rockburger.cartservice.configuration.security.JwtCartKeyProvider;
 import com.rockburger.cartservice.domain.exception.CartTokensException;
 import com.rockburger.cartservice.domain.model.CartUserModel;
+import com.rockburger.cartservice.domain.model.TokenVerificationResult;
 import com.rockburger.cartservice.domain.spi.ICartJwtPersistencePort;
 import io.jsonwebtoken.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
+
 @Component
 public class CartJwtAdapter implements ICartJwtPersistencePort {
     private static final Logger logger = LoggerFactory.getLogger(CartJwtAdapter.class);
 
     private final JwtCartKeyProvider jwtCartKeyProvider;
-    private final String jwtSecret;
 
-    public CartJwtAdapter(
-            JwtCartKeyProvider jwtCartKeyProvider,
-            String jwtCartSecretKey) {
+    public CartJwtAdapter(JwtCartKeyProvider jwtCartKeyProvider) {
         this.jwtCartKeyProvider = jwtCartKeyProvider;
-        this.jwtSecret = jwtCartSecretKey;
     }
 
     @Override
     public CartUserModel validateToken(String token) {
         try {
-            Claims claims = getClaimsFromToken(token);
-
-            // Extract user details from claims
-            Long userId = null;
-            try {
-                // Handle the case where userId might be an Integer or Long
-                Object userIdObj = claims.get("userId");
-                if (userIdObj instanceof Integer) {
-                    userId = ((Integer) userIdObj).longValue();
-                } else if (userIdObj instanceof Long) {
-                    userId = (Long) userIdObj;
-                }
-            } catch (Exception e) {
-                logger.warn("Error extracting userId from token: {}", e.getMessage());
-            }
+            return toUserModel(getClaimsFromToken(token));
+        } catch (Exception e) {
+            logger.error("Error validating token", e);
+            throw new CartTokensException("Failed to validate token: " + e.getMessage());
+        }
+    }
 
-            String email = claims.getSubject(); // This is the username/email
-            String role = claims.get("role", String.class);
+    @Override
+    public TokenVerificationResult verifyToken(String token) {
+        try {
+            Claims claims = jwtCartKeyProvider.getJwtParser()
+                    .parseClaimsJws(token)
+                    .getBody();
+            Instant expiresAt = claims.getExpiration() != null ? claims.getExpiration().toInstant() : null;
+            return TokenVerificationResult.valid(toUserModel(claims), expiresAt);
+        } catch (ExpiredJwtException e) {
+            // Rejections are logged (rate-limited) by the authentication filter
+            logger.debug("JWT token expired: {}", e.getMessage());
+            return TokenVerificationResult.expired();
+        } catch (SignatureException e) {
+            logger.debug("JWT token signature invalid: {}", e.getMessage());
+            return TokenVerificationResult.badSignature();
+        } catch (MalformedJwtException e) {
+            logger.debug("JWT token malformed: {}", e.getMessage());
+            return TokenVerificationResult.malformed();
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("JWT token validation failed: {}", e.getMessage());
+            return TokenVerificationResult.invalid("Invalid token");
+        }
+    }
 
-            // Normalize role format between services
-            if (role != null && !role.startsWith("ROLE_")) {
-                role = "ROLE_" + role;
+    /**
+     * Build the cart user from already verified claims
+     */
+    private CartUserModel toUserModel(Claims claims) {
+        // Extract user details from claims
+        Long userId = null;
+        try {
+            // Handle the case where userId might be an Integer or Long
+            Object userIdObj = claims.get("userId");
+            if (userIdObj instanceof Integer) {
+                userId = ((Integer) userIdObj).longValue();
+            } else if (userIdObj instanceof Long) {
+                userId = (Long) userIdObj;
             }
+        } catch (Exception e) {
+            logger.warn("Error extracting userId from token: {}", e.getMessage());
+        }
 
-            logger.debug("Extracted from token - email: {}, userId: {}, role: {}", email, userId, role);
+        String email = claims.getSubject(); // This is the username/email
+        String role = claims.get("role", String.class);
 
-            return new CartUserModel(
-                    userId,
-                    email, // email/username
-                    role
-            );
-        } catch (Exception e) {
-            logger.error("Error validating token", e);
-            throw new CartTokensException("Failed to validate token: " + e.getMessage());
+        // Normalize role format between services
+        if (role != null && !role.startsWith("ROLE_")) {
+            role = "ROLE_" + role;
         }
+
+        logger.debug("Extracted from token - email: {}, userId: {}, role: {}", email, userId, role);
+
+        return new CartUserModel(
+                userId,
+                email, // email/username
+                role
+        );
     }
 
     @Override
@@ -83,9 +111,7 @@ public class CartJwtAdapter implements ICartJwtPersistencePort {
     @Override
     public boolean isTokenValid(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(jwtCartKeyProvider.getSigningKey(jwtSecret))
-                    .build()
+            jwtCartKeyProvider.getJwtParser()
                     .parseClaimsJws(token);
             return true;
         } catch (ExpiredJwtException e) {
@@ -99,9 +125,7 @@ public class CartJwtAdapter implements ICartJwtPersistencePort {
 
     private Claims getClaimsFromToken(String token) {
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(jwtCartKeyProvider.getSigningKey(jwtSecret))
-                    .build()
+            return jwtCartKeyProvider.getJwtParser()
                     .parseClaimsJws(token)
                     .getBody();
         } catch (ExpiredJwtException e) {
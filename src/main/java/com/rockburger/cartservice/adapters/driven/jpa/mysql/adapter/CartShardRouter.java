@@ -0,0 +1,49 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Places users and carts on shards.
+ *
+ * A user lives on shard CRC32(userId) mod N, which is the same on every node and across
+ * restarts; changing N (or the order of the shard list) moves users, so it needs a data
+ * migration. Cart ids are assigned per shard, so the sharded adapters hand out
+ * localId * N + shard instead, which is unique across shards and names its own shard.
+ */
+public final class CartShardRouter {
+
+    private final int shardCount;
+
+    public CartShardRouter(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("At least one cart shard is required");
+        }
+        this.shardCount = shardCount;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(String userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(userId.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shardCount);
+    }
+
+    public int shardOfCart(Long globalCartId) {
+        return (int) Math.floorMod(globalCartId, (long) shardCount);
+    }
+
+    public Long localCartId(Long globalCartId) {
+        return globalCartId == null ? null : Math.floorDiv(globalCartId, (long) shardCount);
+    }
+
+    public Long globalCartId(int shard, Long localCartId) {
+        return localCartId == null ? null : localCartId * shardCount + shard;
+    }
+}
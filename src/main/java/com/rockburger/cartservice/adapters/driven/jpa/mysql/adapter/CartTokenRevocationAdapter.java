@@ -0,0 +1,31 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartSessionRepository;
+import com.rockburger.cartservice.domain.spi.ICartTokenRevocationPersistencePort;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+public class CartTokenRevocationAdapter implements ICartTokenRevocationPersistencePort {
+    private static final Logger logger = LoggerFactory.getLogger(CartTokenRevocationAdapter.class);
+
+    private final ICartSessionRepository cartSessionRepository;
+
+    public CartTokenRevocationAdapter(ICartSessionRepository cartSessionRepository) {
+        this.cartSessionRepository = cartSessionRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> findRevokedTokenHashesSince(LocalDateTime since) {
+        List<String> hashes = cartSessionRepository.findRevokedTokenHashesSince(since, LocalDateTime.now());
+        logger.debug("Found {} revoked token hash(es) changed since {}", hashes.size(), since);
+        return hashes;
+    }
+}
@@ -0,0 +1,65 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.IMaintenanceLeaseRepository;
+import com.rockburger.cartservice.configuration.datasource.MaintenanceWorkload;
+import com.rockburger.cartservice.domain.spi.IMaintenanceLeasePersistencePort;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Lease rows in maintenance_leases. Every statement commits on its own, so a lease
+ * is visible to the other nodes as soon as it is taken. Leases belong to maintenance
+ * jobs, so they use the maintenance pool.
+ */
+@Service
+public class MaintenanceLeaseAdapter implements IMaintenanceLeasePersistencePort {
+    private static final Logger logger = LoggerFactory.getLogger(MaintenanceLeaseAdapter.class);
+
+    private final IMaintenanceLeaseRepository leaseRepository;
+
+    public MaintenanceLeaseAdapter(IMaintenanceLeaseRepository leaseRepository) {
+        this.leaseRepository = leaseRepository;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean tryAcquire(String leaseName, String ownerId, int ttlSeconds) {
+        return MaintenanceWorkload.call(() -> claimOrCreate(leaseName, ownerId, ttlSeconds));
+    }
+
+    private boolean claimOrCreate(String leaseName, String ownerId, int ttlSeconds) {
+        if (leaseRepository.claim(leaseName, ownerId, ttlSeconds) == 1) {
+            return true;
+        }
+        if (leaseRepository.existsById(leaseName)) {
+            // Held by another node and not expired
+            return false;
+        }
+
+        try {
+            leaseRepository.insert(leaseName, ownerId, ttlSeconds);
+            logger.info("Created maintenance lease '{}' for {}", leaseName, ownerId);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Maintenance lease '{}' was created by another node", leaseName);
+            return false;
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean renew(String leaseName, String ownerId, int ttlSeconds) {
+        return MaintenanceWorkload.call(() -> leaseRepository.renew(leaseName, ownerId, ttlSeconds) == 1);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void release(String leaseName, String ownerId) {
+        MaintenanceWorkload.run(() -> leaseRepository.release(leaseName, ownerId));
+    }
+}
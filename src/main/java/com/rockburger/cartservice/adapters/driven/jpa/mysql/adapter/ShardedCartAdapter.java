@@ -0,0 +1,165 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.domain.model.CartModel;
+import com.rockburger.cartservice.domain.spi.ICartPersistencePort;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * ICartPersistencePort over several databases, one CartAdapter per shard.
+ * Operations on one user touch only the user's shard. Maintenance and counts run on
+ * every shard in parallel and add up the results. Cart ids leaving this adapter are
+ * the global ids of CartShardRouter.
+ */
+public class ShardedCartAdapter implements ICartPersistencePort {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedCartAdapter.class);
+
+    private final List<ICartPersistencePort> shards;
+    private final CartShardRouter router;
+    private final ExecutorService fanOutExecutor;
+
+    public ShardedCartAdapter(List<ICartPersistencePort> shards, CartShardRouter router,
+                              ExecutorService fanOutExecutor) {
+        if (shards.size() != router.shardCount()) {
+            throw new IllegalArgumentException("Expected " + router.shardCount() + " shards, got " + shards.size());
+        }
+        this.shards = List.copyOf(shards);
+        this.router = router;
+        this.fanOutExecutor = fanOutExecutor;
+    }
+
+    @Override
+    public CartModel save(CartModel cartModel) {
+        int shard = router.shardOf(cartModel.getUserId());
+        Long globalId = cartModel.getId();
+        cartModel.setId(router.localCartId(globalId));
+        try {
+            return withGlobalId(shard, shards.get(shard).save(cartModel));
+        } catch (RuntimeException e) {
+            cartModel.setId(globalId);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<CartModel> findByUserIdAndStatus(String userId, String status) {
+        int shard = router.shardOf(userId);
+        return shards.get(shard).findByUserIdAndStatus(userId, status)
+                .map(cart -> withGlobalId(shard, cart));
+    }
+
+    @Override
+    public void deleteByUserId(String userId) {
+        shards.get(router.shardOf(userId)).deleteByUserId(userId);
+    }
+
+    @Override
+    public int deleteByUserIds(Collection<String> userIds) {
+        Map<Integer, List<String>> usersByShard = userIds.stream()
+                .collect(Collectors.groupingBy(router::shardOf));
+        return (int) sumOverShards(usersByShard.keySet(),
+                shard -> shards.get(shard).deleteByUserIds(usersByShard.get(shard)));
+    }
+
+    @Override
+    public CartModel findOrCreateActive(String userId) {
+        int shard = router.shardOf(userId);
+        return withGlobalId(shard, shards.get(shard).findOrCreateActive(userId));
+    }
+
+    @Override
+    public boolean isActiveCartAt(String userId, Long cartId, Integer version) {
+        int shard = router.shardOf(userId);
+        return router.shardOfCart(cartId) == shard
+                && shards.get(shard).isActiveCartAt(userId, router.localCartId(cartId), version);
+    }
+
+    @Override
+    public boolean existsByUserIdAndStatus(String userId, String status) {
+        return shards.get(router.shardOf(userId)).existsByUserIdAndStatus(userId, status);
+    }
+
+    @Override
+    public void updateCartStatus(String userId, String oldStatus, String newStatus) {
+        shards.get(router.shardOf(userId)).updateCartStatus(userId, oldStatus, newStatus);
+    }
+
+    @Override
+    public int cleanupExpiredCarts(BooleanSupplier stop) {
+        // Each shard is swept on a fan-out thread, so the stop condition travels with the task
+        int cleaned = (int) sumOverShards(allShards(), shard -> shards.get(shard).cleanupExpiredCarts(stop));
+        logger.info("Cleaned up {} expired carts across {} shards", cleaned, shards.size());
+        return cleaned;
+    }
+
+    @Override
+    public long countByStatus(String status) {
+        return sumOverShards(allShards(), shard -> shards.get(shard).countByStatus(status));
+    }
+
+    @Override
+    public long countActiveCartsSince(LocalDateTime since) {
+        return sumOverShards(allShards(), shard -> shards.get(shard).countActiveCartsSince(since));
+    }
+
+    private List<Integer> allShards() {
+        return IntStream.range(0, shards.size()).boxed().collect(Collectors.toList());
+    }
+
+    private CartModel withGlobalId(int shard, CartModel cartModel) {
+        cartModel.setId(router.globalCartId(shard, cartModel.getId()));
+        return cartModel;
+    }
+
+    /**
+     * Run the call on each shard concurrently and add up the results.
+     * Every shard is waited for; the first failure is rethrown after that.
+     */
+    private long sumOverShards(Collection<Integer> shardIndexes, ToLongFunction<Integer> call) {
+        if (shardIndexes.size() == 1) {
+            return call.applyAsLong(shardIndexes.iterator().next());
+        }
+
+        List<Future<Long>> results = new ArrayList<>(shardIndexes.size());
+        for (Integer shard : shardIndexes) {
+            results.add(fanOutExecutor.submit(() -> call.applyAsLong(shard)));
+        }
+
+        long total = 0;
+        RuntimeException failure = null;
+        for (Future<Long> result : results) {
+            try {
+                total += result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.forEach(pending -> pending.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for cart shards", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause()
+                            : new IllegalStateException("Cart shard operation failed", e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return total;
+    }
+}
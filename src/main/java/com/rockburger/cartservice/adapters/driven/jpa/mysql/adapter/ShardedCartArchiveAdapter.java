@@ -0,0 +1,35 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.domain.spi.ICartArchivePersistencePort;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * ICartArchivePersistencePort over the same shards as ShardedCartAdapter, each shard
+ * moving its carts to its own archive tables. Shards are archived one after another,
+ * so cart.archive.max-rows-per-second also bounds the run as a whole.
+ */
+public class ShardedCartArchiveAdapter implements ICartArchivePersistencePort {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedCartArchiveAdapter.class);
+
+    private final List<ICartArchivePersistencePort> shards;
+
+    public ShardedCartArchiveAdapter(List<ICartArchivePersistencePort> shards) {
+        this.shards = List.copyOf(shards);
+    }
+
+    @Override
+    public int archiveTerminalCarts(LocalDateTime olderThan, BooleanSupplier stop) {
+        int archived = 0;
+        for (ICartArchivePersistencePort shard : shards) {
+            archived += shard.archiveTerminalCarts(olderThan, stop);
+        }
+        logger.info("Archived {} carts across {} shards", archived, shards.size());
+        return archived;
+    }
+}
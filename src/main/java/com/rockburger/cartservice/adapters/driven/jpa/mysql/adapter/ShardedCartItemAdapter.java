@@ -0,0 +1,50 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.model.CartModel;
+import com.rockburger.cartservice.domain.spi.ICartItemPersistencePort;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * ICartItemPersistencePort over the same shards as ShardedCartAdapter.
+ * The user id names the shard, so every call touches exactly one database.
+ */
+public class ShardedCartItemAdapter implements ICartItemPersistencePort {
+
+    private final List<ICartItemPersistencePort> shards;
+    private final CartShardRouter router;
+
+    public ShardedCartItemAdapter(List<ICartItemPersistencePort> shards, CartShardRouter router) {
+        if (shards.size() != router.shardCount()) {
+            throw new IllegalArgumentException("Expected " + router.shardCount() + " shards, got " + shards.size());
+        }
+        this.shards = List.copyOf(shards);
+        this.router = router;
+    }
+
+    @Override
+    public Optional<CartModel> addItem(String userId, CartItemModel item) {
+        int shard = router.shardOf(userId);
+        return shards.get(shard).addItem(userId, item)
+                .map(cart -> withGlobalId(shard, cart));
+    }
+
+    @Override
+    public CartModel updateItemQuantity(String userId, Long articleId, int quantity) {
+        int shard = router.shardOf(userId);
+        return withGlobalId(shard, shards.get(shard).updateItemQuantity(userId, articleId, quantity));
+    }
+
+    @Override
+    public CartModel removeItem(String userId, Long articleId) {
+        int shard = router.shardOf(userId);
+        return withGlobalId(shard, shards.get(shard).removeItem(userId, articleId));
+    }
+
+    private CartModel withGlobalId(int shard, CartModel cart) {
+        cart.setId(router.globalCartId(shard, cart.getId()));
+        return cart;
+    }
+}
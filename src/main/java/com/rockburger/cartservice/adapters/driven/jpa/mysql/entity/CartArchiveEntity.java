@@ -0,0 +1,51 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Archived copy of a terminal cart; rows are only written by the archiver's INSERT ... SELECT
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "carts_archive", indexes = {
+        @Index(name = "idx_carts_archive_user", columnList = "user_id")
+})
+public class CartArchiveEntity {
+    // Keeps the id the cart had in carts
+    @Id
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private double total;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_updated", nullable = false)
+    private LocalDateTime lastUpdated;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "session_id", nullable = false, length = 32)
+    private String sessionId;
+
+    @Column(name = "version")
+    private Integer version;
+
+    @Column(name = "expiry_warning_sent")
+    private Boolean expiryWarningSent;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -2,7 +2,11 @@ package com.rockburger.cartservice.adapters.driven.jpa.mysql.entity;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -14,8 +18,16 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "carts")
+@Table(name = "carts", indexes = {
+        @Index(name = "uk_carts_active_user", columnList = "active_user_id", unique = true)
+})
+// Only used when cart.cache.second-level.enabled is true
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CartEntity.CACHE_REGION)
 public class CartEntity {
+    public static final String CACHE_REGION = "carts";
+    public static final String ITEMS_CACHE_REGION = "carts.items";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -24,7 +36,11 @@ public class CartEntity {
     @Column(name = "user_id", nullable = false)
     private String userId;
 
-    @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    // Loaded only by the repository's WithItems finders, which fetch it through an entity graph
+    @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CartEntity.ITEMS_CACHE_REGION)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<CartItemEntity> items = new ArrayList<>();
 
     @Column(nullable = false)
@@ -40,6 +56,12 @@ public class CartEntity {
     @Column(nullable = false, length = 20)
     private String status;
 
+    // Set by the database to user_id while the cart is ACTIVE, NULL otherwise.
+    // The unique index on it allows at most one active cart per user.
+    @Column(name = "active_user_id", insertable = false, updatable = false,
+            columnDefinition = "VARCHAR(255) GENERATED ALWAYS AS (CASE WHEN status = 'ACTIVE' THEN user_id END)")
+    private String activeUserId;
+
     @Column(name = "session_id", nullable = false, length = 32)
     private String sessionId;
 
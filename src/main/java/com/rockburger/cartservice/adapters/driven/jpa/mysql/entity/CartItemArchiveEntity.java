@@ -0,0 +1,54 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Archived copy of a cart line; rows are only written by the archiver's INSERT ... SELECT
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "cart_items_archive", indexes = {
+        @Index(name = "idx_cart_items_archive_cart", columnList = "cart_id")
+})
+public class CartItemArchiveEntity {
+    // Keeps the id the line had in cart_items
+    @Id
+    private Long id;
+
+    @Column(name = "cart_id", nullable = false)
+    private Long cartId;
+
+    @Column(name = "article_id", nullable = false)
+    private Long articleId;
+
+    @Column(name = "article_name", nullable = false)
+    private String articleName;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(nullable = false)
+    private double price;
+
+    @Column(nullable = false)
+    private double subtotal;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "version")
+    private Long version;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
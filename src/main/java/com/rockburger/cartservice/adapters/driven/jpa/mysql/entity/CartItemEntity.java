@@ -4,6 +4,10 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.Min;
@@ -15,10 +19,26 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints = {
+        @UniqueConstraint(name = "unique_cart_article", columnNames = {"cart_id", "article_id"})
+})
+// Only used when cart.cache.second-level.enabled is true
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CartItemEntity.CACHE_REGION)
 public class CartItemEntity {
+    public static final String CACHE_REGION = "cart_items";
+
+    // Ids are reserved 50 at a time (a sequence, or the cart_item_ids table on MySQL),
+    // so Hibernate can batch item INSERTs; IDENTITY would force one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "cart_item_ids")
+    @GenericGenerator(name = "cart_item_ids",
+            strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "cart_item_ids"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "pooled-lo")
+            })
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
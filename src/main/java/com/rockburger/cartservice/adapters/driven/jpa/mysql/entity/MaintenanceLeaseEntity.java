@@ -0,0 +1,32 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "maintenance_leases")
+public class MaintenanceLeaseEntity {
+    @Id
+    @Column(name = "lease_name", length = 64)
+    private String leaseName;
+
+    @Column(name = "owner_id", nullable = false, length = 100)
+    private String ownerId;
+
+    @Column(name = "acquired_at", nullable = false)
+    private LocalDateTime acquiredAt;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+
+    // Times are set from the database clock, so nodes with skewed clocks agree on expiry
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
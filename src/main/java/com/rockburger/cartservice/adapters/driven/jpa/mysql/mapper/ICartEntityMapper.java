@@ -16,11 +16,13 @@ public interface ICartEntityMapper {
     // Model to Entity mapping - only map fields that exist in both
     @Mapping(target = "items", ignore = true) // Items handled separately
     @Mapping(target = "expiryWarningSent", ignore = true) // Not in CartModel yet
+    @Mapping(target = "activeUserId", ignore = true) // Generated by the database
     CartEntity toEntity(CartModel model);
 
     // Update entity from model
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "items", ignore = true)
     @Mapping(target = "expiryWarningSent", ignore = true)
+    @Mapping(target = "activeUserId", ignore = true)
     void updateEntity(@MappingTarget CartEntity entity, CartModel model);
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cart header columns plus the number of lines, for lookups that must not load items
+ */
+public interface CartSummary {
+    Long getId();
+
+    String getUserId();
+
+    String getStatus();
+
+    Integer getVersion();
+
+    double getTotal();
+
+    LocalDateTime getLastUpdated();
+
+    int getItemCount();
+}
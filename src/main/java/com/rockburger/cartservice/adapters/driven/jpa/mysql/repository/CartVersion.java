@@ -0,0 +1,10 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.repository;
+
+/**
+ * A cart's id and current version, read to check a cached copy of the cart
+ */
+public interface CartVersion {
+    Long getId();
+
+    Integer getVersion();
+}
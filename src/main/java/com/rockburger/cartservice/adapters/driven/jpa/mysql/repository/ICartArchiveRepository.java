@@ -0,0 +1,52 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.repository;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartArchiveEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves terminal carts from carts/cart_items to carts_archive/cart_items_archive.
+ * The copy and delete statements of one chunk are meant to run in one transaction.
+ */
+@Repository
+public interface ICartArchiveRepository extends JpaRepository<CartArchiveEntity, Long> {
+
+    /**
+     * Ids of terminal carts last updated before the cutoff. There is no ORDER BY, so
+     * MySQL can stop after the first rows found in the two idx_carts_status_last_updated ranges.
+     */
+    @Query("SELECT c.id FROM CartEntity c " +
+            "WHERE c.status IN ('ABANDONED', 'COMPLETED') AND c.lastUpdated < :cutoffTime")
+    List<Long> findArchivableCartIds(@Param("cutoffTime") LocalDateTime cutoffTime, Pageable pageable);
+
+    @Modifying
+    @Query(value = "INSERT INTO cart_items_archive (id, cart_id, article_id, article_name, quantity, price, " +
+            "subtotal, created_at, updated_at, version, archived_at) " +
+            "SELECT id, cart_id, article_id, article_name, quantity, price, subtotal, created_at, updated_at, " +
+            "version, :archivedAt FROM cart_items WHERE cart_id IN :cartIds",
+            nativeQuery = true)
+    int copyItemsToArchive(@Param("cartIds") List<Long> cartIds, @Param("archivedAt") LocalDateTime archivedAt);
+
+    @Modifying
+    @Query(value = "INSERT INTO carts_archive (id, user_id, total, created_at, last_updated, status, session_id, " +
+            "version, expiry_warning_sent, archived_at) " +
+            "SELECT id, user_id, total, created_at, last_updated, status, session_id, version, " +
+            "expiry_warning_sent, :archivedAt FROM carts WHERE id IN :cartIds",
+            nativeQuery = true)
+    int copyCartsToArchive(@Param("cartIds") List<Long> cartIds, @Param("archivedAt") LocalDateTime archivedAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM cart_items WHERE cart_id IN :cartIds", nativeQuery = true)
+    int deleteItemsOfCarts(@Param("cartIds") List<Long> cartIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM carts WHERE id IN :cartIds", nativeQuery = true)
+    int deleteCarts(@Param("cartIds") List<Long> cartIds);
+}
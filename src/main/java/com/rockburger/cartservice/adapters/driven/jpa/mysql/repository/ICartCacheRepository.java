@@ -0,0 +1,26 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.repository;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+
+import java.util.Optional;
+
+/**
+ * Reads through the Hibernate second-level cache (cart.cache.second-level.enabled).
+ *
+ * Cached carts are never trusted on their own: the caller reads the cart's current version
+ * from the database and a cached copy is only used at that version. Per-cart writes are
+ * native statements in the WRITE_SPACE query space, which no entity maps to, so Hibernate
+ * does not empty the cart regions on each of them the way it does for bulk JPQL.
+ */
+public interface ICartCacheRepository {
+
+    String WRITE_SPACE = "cart_versioned_writes";
+
+    boolean isSecondLevelCacheEnabled();
+
+    /**
+     * The cart with its items if both are cached at the given version. Otherwise
+     * empty, and the stale copies are evicted so the caller's database read replaces them.
+     */
+    Optional<CartEntity> findCachedWithItems(Long id, Integer version);
+}
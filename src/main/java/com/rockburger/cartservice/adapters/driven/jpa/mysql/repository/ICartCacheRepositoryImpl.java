@@ -0,0 +1,54 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.repository;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.persistence.EntityManager;
+import java.util.Objects;
+import java.util.Optional;
+
+public class ICartCacheRepositoryImpl implements ICartCacheRepository {
+
+    private static final String ITEMS_ROLE = CartEntity.class.getName() + ".items";
+
+    private final EntityManager entityManager;
+    private final Cache cache;
+    private final boolean enabled;
+
+    public ICartCacheRepositoryImpl(EntityManager entityManager) {
+        SessionFactoryImplementor sessionFactory =
+                entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        this.entityManager = entityManager;
+        this.cache = sessionFactory.getCache();
+        this.enabled = sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled();
+    }
+
+    @Override
+    public boolean isSecondLevelCacheEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Optional<CartEntity> findCachedWithItems(Long id, Integer version) {
+        // A miss on either region would cost more statements than the joined SELECT
+        if (!cache.containsEntity(CartEntity.class, id) || !cache.containsCollection(ITEMS_ROLE, id)) {
+            return Optional.empty();
+        }
+
+        CartEntity cart = entityManager.find(CartEntity.class, id);
+        if (cart != null && Objects.equals(cart.getVersion(), version)) {
+            Hibernate.initialize(cart.getItems());
+            return Optional.of(cart);
+        }
+
+        // Written since it was cached, by this node's native writes or another node
+        if (cart != null) {
+            entityManager.detach(cart);
+        }
+        cache.evictEntityData(CartEntity.class, id);
+        cache.evictCollectionData(ITEMS_ROLE, id);
+        return Optional.empty();
+    }
+}
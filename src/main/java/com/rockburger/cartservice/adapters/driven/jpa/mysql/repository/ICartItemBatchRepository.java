@@ -0,0 +1,18 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.repository;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartItemEntity;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Writes several lines of one cart in a single JDBC batch instead of one statement each
+ */
+public interface ICartItemBatchRepository {
+
+    /**
+     * Overwrite name, quantity, price and subtotal of the cart's lines matching the
+     * given article ids. Returns false when any of those lines no longer exists.
+     */
+    boolean updateLines(Long cartId, Collection<CartItemEntity> lines, LocalDateTime updatedAt);
+}
@@ -0,0 +1,56 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.repository;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartItemEntity;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public class ICartItemBatchRepositoryImpl implements ICartItemBatchRepository {
+
+    private static final String UPDATE_LINE = "UPDATE cart_items SET article_name = ?, quantity = ?, price = ?, "
+            + "subtotal = ?, updated_at = ?, version = version + 1 WHERE cart_id = ? AND article_id = ?";
+
+    private final EntityManager entityManager;
+
+    public ICartItemBatchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public boolean updateLines(Long cartId, Collection<CartItemEntity> lines, LocalDateTime updatedAt) {
+        if (lines.isEmpty()) {
+            return true;
+        }
+
+        // Plain JDBC neither auto-flushes nor evicts cache regions; the cart version guards cached reads
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPDATE_LINE)) {
+                Timestamp updatedAtTimestamp = Timestamp.valueOf(updatedAt);
+                for (CartItemEntity line : lines) {
+                    statement.setString(1, line.getArticleName());
+                    statement.setInt(2, line.getQuantity());
+                    statement.setDouble(3, line.getPrice());
+                    statement.setDouble(4, line.getSubtotal());
+                    statement.setTimestamp(5, updatedAtTimestamp);
+                    statement.setLong(6, cartId);
+                    statement.setLong(7, line.getArticleId());
+                    statement.addBatch();
+                }
+
+                // SUCCESS_NO_INFO (-2) means the driver ran the row but did not count it
+                for (int updated : statement.executeBatch()) {
+                    if (updated == 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        });
+    }
+}
@@ -4,17 +4,60 @@ import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartItemEntit
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
 
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+
+/**
+ * Per-cart line writes are native statements in ICartCacheRepository.WRITE_SPACE, so they
+ * don't empty the second-level cache regions; the cart version they travel with guards reads
+ */
 @Repository
-public interface ICartItemRepository extends JpaRepository<CartItemEntity, Long> {
+public interface ICartItemRepository extends JpaRepository<CartItemEntity, Long>, ICartItemBatchRepository {
     Optional<CartItemEntity> findByCartIdAndArticleId(Long cartId, Long articleId);
 
     @Modifying
-    @Query("DELETE FROM CartItemEntity ci WHERE ci.cart.id = ?1 AND ci.articleId = ?2")
-    void deleteByCartIdAndArticleId(Long cartId, Long articleId);
+    @Query(value = "DELETE FROM cart_items WHERE cart_id = ?1 AND article_id = ?2", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = ICartCacheRepository.WRITE_SPACE))
+    int deleteByCartIdAndArticleId(Long cartId, Long articleId);
 
     boolean existsByCartIdAndArticleId(Long cartId, Long articleId);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query(value = "UPDATE cart_items SET quantity = :quantity, subtotal = price * :quantity, " +
+            "updated_at = :updatedAt, version = version + 1 WHERE article_id = :articleId " +
+            "AND cart_id = (SELECT c.id FROM carts c WHERE c.active_user_id = :userId)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = ICartCacheRepository.WRITE_SPACE))
+    int updateQuantityInActiveCart(@Param("userId") String userId,
+                                   @Param("articleId") Long articleId,
+                                   @Param("quantity") int quantity,
+                                   @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM cart_items WHERE article_id = :articleId " +
+            "AND cart_id = (SELECT c.id FROM carts c WHERE c.active_user_id = :userId)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = ICartCacheRepository.WRITE_SPACE))
+    int deleteFromActiveCart(@Param("userId") String userId, @Param("articleId") Long articleId);
+
+    @Modifying
+    @Query(value = "DELETE FROM cart_items WHERE cart_id = :cartId AND article_id IN (:articleIds)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = ICartCacheRepository.WRITE_SPACE))
+    int deleteByCartIdAndArticleIdIn(@Param("cartId") Long cartId, @Param("articleIds") Collection<Long> articleIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM cart_items WHERE cart_id = :cartId", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = ICartCacheRepository.WRITE_SPACE))
+    int deleteByCartId(@Param("cartId") Long cartId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CartItemEntity ci WHERE ci.cart.id IN " +
+            "(SELECT c.id FROM CartEntity c WHERE c.userId IN :userIds)")
+    int deleteByCartUserIdIn(@Param("userIds") Collection<String> userIds);
+}
@@ -1,33 +1,92 @@
 package com.rockburger.cartservice.adapters.driven.jpa.mysql.repository;
 
 import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
 
 @Repository
-public interface ICartRepository extends JpaRepository<CartEntity, Long> {
+public interface ICartRepository extends JpaRepository<CartEntity, Long>, ICartCacheRepository {
+
+    /**
+     * The user's active cart with its items in one joined SELECT, as a point lookup on the unique active_user_id key
+     */
+    @EntityGraph(attributePaths = "items")
+    Optional<CartEntity> findWithItemsByActiveUserId(String userId);
+
+    /**
+     * Id and version of the user's active cart, from the unique active_user_id key without touching items
+     */
+    @Query("SELECT c.id AS id, c.version AS version FROM CartEntity c WHERE c.activeUserId = :userId")
+    Optional<CartVersion> findVersionByActiveUserId(@Param("userId") String userId);
+
+    /**
+     * A cart with its items in one joined SELECT
+     */
+    @EntityGraph(attributePaths = "items")
+    Optional<CartEntity> findWithItemsById(Long id);
 
-    // Existing methods (keep these)
-    List<CartEntity> findByUserIdAndStatus(String userId, String status);
+    /**
+     * Summaries of the user's carts in a status, most recent first; no entities or items are loaded
+     */
+    @Query("SELECT c.id AS id, c.userId AS userId, c.status AS status, c.version AS version, c.total AS total, " +
+            "c.lastUpdated AS lastUpdated, SIZE(c.items) AS itemCount " +
+            "FROM CartEntity c WHERE c.userId = :userId AND c.status = :status " +
+            "ORDER BY c.lastUpdated DESC, c.id DESC")
+    List<CartSummary> findSummariesByUserIdAndStatus(@Param("userId") String userId,
+                                                     @Param("status") String status,
+                                                     Pageable pageable);
+
+    /**
+     * Move all of the user's carts from one status to another
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CartEntity c SET c.status = :newStatus, c.lastUpdated = :now, c.version = c.version + 1 " +
+            "WHERE c.userId = :userId AND c.status = :oldStatus")
+    int updateStatusByUserId(@Param("userId") String userId,
+                             @Param("oldStatus") String oldStatus,
+                             @Param("newStatus") String newStatus,
+                             @Param("now") LocalDateTime now);
     boolean existsByUserIdAndStatus(String userId, String status);
 
-    // Add these missing methods:
+    /**
+     * Ids of the oldest active carts not updated since the cutoff, read from idx_carts_status_last_updated
+     */
+    @Query("SELECT c.id FROM CartEntity c WHERE c.status = 'ACTIVE' AND c.lastUpdated < :cutoffTime " +
+            "ORDER BY c.lastUpdated, c.id")
+    List<Long> findExpiredActiveCartIds(@Param("cutoffTime") LocalDateTime cutoffTime, Pageable pageable);
 
     /**
-     * Find all carts for a specific user
+     * Abandon one chunk of expired carts in its own transaction; carts touched since the read are skipped
      */
-    List<CartEntity> findByUserId(String userId);
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CartEntity c SET c.status = 'ABANDONED', c.lastUpdated = :now, c.version = c.version + 1 " +
+            "WHERE c.id IN :ids AND c.status = 'ACTIVE' AND c.lastUpdated < :cutoffTime")
+    int abandonExpiredCarts(@Param("ids") List<Long> ids,
+                            @Param("cutoffTime") LocalDateTime cutoffTime,
+                            @Param("now") LocalDateTime now);
 
     /**
-     * Find active carts older than the specified cutoff time
+     * Delete every cart of the given users; their items must be deleted first
      */
-    @Query("SELECT c FROM CartEntity c WHERE c.status = 'ACTIVE' AND c.lastUpdated < :cutoffTime")
-    List<CartEntity> findActiveCartsOlderThan(@Param("cutoffTime") LocalDateTime cutoffTime);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CartEntity c WHERE c.userId IN :userIds")
+    int deleteByUserIdIn(@Param("userIds") Collection<String> userIds);
 
     /**
      * Count carts by status
@@ -39,4 +98,87 @@ public interface ICartRepository extends JpaRepository<CartEntity, Long> {
      */
     @Query("SELECT COUNT(c) FROM CartEntity c WHERE c.status = 'ACTIVE' AND c.lastUpdated >= :since")
     long countActiveCartsSince(@Param("since") LocalDateTime since);
-}
\ No newline at end of file
+
+    /**
+     * Abandon the user's active carts that have not been updated since the cutoff
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE carts SET status = 'ABANDONED', last_updated = :now, version = version + 1 " +
+            "WHERE user_id = :userId AND status = 'ACTIVE' AND last_updated < :cutoffTime", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = ICartCacheRepository.WRITE_SPACE))
+    int abandonStaleActiveCarts(@Param("userId") String userId,
+                                @Param("cutoffTime") LocalDateTime cutoffTime,
+                                @Param("now") LocalDateTime now);
+
+    /**
+     * Add an item subtotal to the user's active cart if it was updated since the cutoff and
+     * still has room for another line. Returns 0 when the user has no such cart.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE carts SET total = total + :delta, last_updated = :lastUpdated, " +
+            "version = version + 1 WHERE active_user_id = :userId AND status = 'ACTIVE' " +
+            "AND last_updated >= :cutoffTime " +
+            "AND (SELECT COUNT(*) FROM cart_items ci WHERE ci.cart_id = carts.id) < :maxItems", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = ICartCacheRepository.WRITE_SPACE))
+    int addToActiveCartIfAccepting(@Param("userId") String userId,
+                                   @Param("delta") double delta,
+                                   @Param("cutoffTime") LocalDateTime cutoffTime,
+                                   @Param("lastUpdated") LocalDateTime lastUpdated,
+                                   @Param("maxItems") long maxItems);
+
+    /**
+     * Move the total of the user's fresh active cart to one line at a new quantity, in the
+     * statement that checks the line is there. Returns 0 when there is no such cart or line.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE carts SET total = total + (SELECT ci.price * :quantity - ci.subtotal FROM cart_items ci " +
+            "WHERE ci.cart_id = carts.id AND ci.article_id = :articleId), last_updated = :lastUpdated, " +
+            "version = version + 1 WHERE active_user_id = :userId AND status = 'ACTIVE' " +
+            "AND last_updated >= :cutoffTime " +
+            "AND EXISTS (SELECT 1 FROM cart_items ci WHERE ci.cart_id = carts.id AND ci.article_id = :articleId)",
+            nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = ICartCacheRepository.WRITE_SPACE))
+    int setLineQuantityInActiveCart(@Param("userId") String userId,
+                                    @Param("articleId") Long articleId,
+                                    @Param("quantity") int quantity,
+                                    @Param("cutoffTime") LocalDateTime cutoffTime,
+                                    @Param("lastUpdated") LocalDateTime lastUpdated);
+
+    /**
+     * Take one line's subtotal off the user's fresh active cart, in the statement that checks
+     * the line is there. Returns 0 when there is no such cart or line.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE carts SET total = total - (SELECT ci.subtotal FROM cart_items ci " +
+            "WHERE ci.cart_id = carts.id AND ci.article_id = :articleId), last_updated = :lastUpdated, " +
+            "version = version + 1 WHERE active_user_id = :userId AND status = 'ACTIVE' " +
+            "AND last_updated >= :cutoffTime " +
+            "AND EXISTS (SELECT 1 FROM cart_items ci WHERE ci.cart_id = carts.id AND ci.article_id = :articleId)",
+            nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = ICartCacheRepository.WRITE_SPACE))
+    int removeLineFromActiveCart(@Param("userId") String userId,
+                                 @Param("articleId") Long articleId,
+                                 @Param("cutoffTime") LocalDateTime cutoffTime,
+                                 @Param("lastUpdated") LocalDateTime lastUpdated);
+
+    /**
+     * When the user's active cart was last updated, without touching items
+     */
+    @Query("SELECT c.lastUpdated FROM CartEntity c WHERE c.activeUserId = :userId")
+    Optional<LocalDateTime> findLastUpdatedByActiveUserId(@Param("userId") String userId);
+
+    /**
+     * Write the cart row only if nobody else changed it since it was read.
+     * Returns 0 when the version no longer matches.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE carts SET total = :total, last_updated = :lastUpdated, status = :status, " +
+            "session_id = :sessionId, version = version + 1 WHERE id = :id AND version = :version", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = ICartCacheRepository.WRITE_SPACE))
+    int updateIfVersionMatches(@Param("id") Long id,
+                               @Param("version") Integer version,
+                               @Param("total") double total,
+                               @Param("lastUpdated") LocalDateTime lastUpdated,
+                               @Param("status") String status,
+                               @Param("sessionId") String sessionId);
+}
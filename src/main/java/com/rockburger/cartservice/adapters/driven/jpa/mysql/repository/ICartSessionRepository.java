@@ -0,0 +1,23 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.repository;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartSessionEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ICartSessionRepository extends JpaRepository<CartSessionEntity, Long> {
+
+    /**
+     * Token hashes of terminated, not yet expired sessions changed since the given time
+     */
+    @Query("SELECT s.jwtTokenHash FROM CartSessionEntity s " +
+            "WHERE s.status = 'TERMINATED' AND s.jwtTokenHash IS NOT NULL " +
+            "AND s.expiresAt > :now AND s.lastActivity >= :since")
+    List<String> findRevokedTokenHashesSince(@Param("since") LocalDateTime since,
+                                             @Param("now") LocalDateTime now);
+}
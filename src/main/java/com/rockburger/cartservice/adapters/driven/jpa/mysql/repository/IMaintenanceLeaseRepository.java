@@ -0,0 +1,65 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.repository;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.MaintenanceLeaseEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface IMaintenanceLeaseRepository extends JpaRepository<MaintenanceLeaseEntity, String> {
+
+    /**
+     * Take over an expired lease or renew our own. acquired_at is assigned before
+     * owner_id because MySQL evaluates SET assignments left to right.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE maintenance_leases SET " +
+            "acquired_at = CASE WHEN owner_id = :ownerId THEN acquired_at ELSE CURRENT_TIMESTAMP END, " +
+            "owner_id = :ownerId, heartbeat_at = CURRENT_TIMESTAMP, " +
+            "expires_at = TIMESTAMPADD(SECOND, :ttlSeconds, CURRENT_TIMESTAMP) " +
+            "WHERE lease_name = :leaseName AND (owner_id = :ownerId OR expires_at < CURRENT_TIMESTAMP)",
+            nativeQuery = true)
+    int claim(@Param("leaseName") String leaseName,
+              @Param("ownerId") String ownerId,
+              @Param("ttlSeconds") int ttlSeconds);
+
+    /**
+     * Heartbeat: extend the lease only while the caller still owns it
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE maintenance_leases SET heartbeat_at = CURRENT_TIMESTAMP, " +
+            "expires_at = TIMESTAMPADD(SECOND, :ttlSeconds, CURRENT_TIMESTAMP) " +
+            "WHERE lease_name = :leaseName AND owner_id = :ownerId",
+            nativeQuery = true)
+    int renew(@Param("leaseName") String leaseName,
+              @Param("ownerId") String ownerId,
+              @Param("ttlSeconds") int ttlSeconds);
+
+    /**
+     * Create the lease row; fails on the primary key when another node created it first
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO maintenance_leases (lease_name, owner_id, acquired_at, heartbeat_at, expires_at) " +
+            "VALUES (:leaseName, :ownerId, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, " +
+            "TIMESTAMPADD(SECOND, :ttlSeconds, CURRENT_TIMESTAMP))",
+            nativeQuery = true)
+    int insert(@Param("leaseName") String leaseName,
+               @Param("ownerId") String ownerId,
+               @Param("ttlSeconds") int ttlSeconds);
+
+    /**
+     * Expire our lease immediately
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE maintenance_leases SET expires_at = TIMESTAMPADD(SECOND, -1, CURRENT_TIMESTAMP) " +
+            "WHERE lease_name = :leaseName AND owner_id = :ownerId",
+            nativeQuery = true)
+    int release(@Param("leaseName") String leaseName, @Param("ownerId") String ownerId);
+}
@@ -1,6 +1,10 @@
 package com.rockburger.cartservice.configuration;
 
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.ActiveCartCache;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CachingCartAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CachingCartItemAdapter;
 import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartCleanupMetrics;
 import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartJwtAdapter;
 import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapper;
 import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapper;
@@ -10,42 +14,67 @@ import com.rockburger.cartservice.adapters.driving.http.dto.response.CartItemRes
 import com.rockburger.cartservice.adapters.driving.http.dto.response.CartResponse;
 import com.rockburger.cartservice.adapters.driving.http.mapper.ICartItemRequestMapper;
 import com.rockburger.cartservice.adapters.driving.http.mapper.ICartResponseMapper;
+import com.rockburger.cartservice.configuration.datasource.CartShardTransactionManagers;
+import com.rockburger.cartservice.configuration.datasource.ReadYourWritesGuard;
 import com.rockburger.cartservice.configuration.security.JwtCartKeyProvider;
 import com.rockburger.cartservice.domain.api.ICartServicePort;
 import com.rockburger.cartservice.domain.api.usecase.CartUseCase;
 import com.rockburger.cartservice.domain.model.CartItemModel;
 import com.rockburger.cartservice.domain.model.CartModel;
+import com.rockburger.cartservice.domain.spi.ICartItemPersistencePort;
 import com.rockburger.cartservice.domain.spi.ICartJwtPersistencePort;
 import com.rockburger.cartservice.domain.spi.ICartPersistencePort;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.stream.Collectors;
 
 @Configuration
 public class BeanConfigurationCart {
-    @Value("${jwt.secret}")
-    private String jwtSecret;
-
-    // Persistence beans - UPDATED: Only 2 parameters now
+    // Persistence beans; CartShardingConfig provides them instead when carts are sharded
     @Bean
+    @ConditionalOnProperty(name = "cart.sharding.enabled", havingValue = "false", matchIfMissing = true)
     public ICartPersistencePort cartPersistencePort(
             ICartRepository cartRepository,
-            ICartEntityMapper cartEntityMapper) {
-        return new CartAdapter(cartRepository, cartEntityMapper);
+            ICartItemRepository cartItemRepository,
+            ICartEntityMapper cartEntityMapper,
+            ICartItemEntityMapper cartItemEntityMapper,
+            CartCleanupMetrics cleanupMetrics,
+            ReadYourWritesGuard readYourWritesGuard,
+            PlatformTransactionManager transactionManager,
+            @Value("${cart.cleanup.batch.size:100}") int cleanupBatchSize) {
+        return new CartAdapter(cartRepository, cartItemRepository, cartEntityMapper, cartItemEntityMapper,
+                cleanupMetrics, readYourWritesGuard, transactionManager, cleanupBatchSize);
     }
 
-    // Service beans
+    // Service beans; with sharding on, each operation's transaction runs on the user's shard.
+    // With the active cart cache on, both ports go through it, so every cart write reaches it
     @Bean
-    public ICartServicePort cartServicePort(ICartPersistencePort cartPersistencePort) {
-        return new CartUseCase(cartPersistencePort);
+    public ICartServicePort cartServicePort(ICartPersistencePort cartPersistencePort,
+                                            ICartItemPersistencePort cartItemPersistencePort,
+                                            ObjectProvider<ActiveCartCache> activeCartCache,
+                                            PlatformTransactionManager transactionManager,
+                                            ObjectProvider<CartShardTransactionManagers> shardTransactionManagers) {
+        ActiveCartCache cache = activeCartCache.getIfAvailable();
+        if (cache != null) {
+            cartPersistencePort = new CachingCartAdapter(cartPersistencePort, cache);
+            cartItemPersistencePort = new CachingCartItemAdapter(cartItemPersistencePort, cache);
+        }
+        ICartServicePort cartService = new CartUseCase(cartPersistencePort, cartItemPersistencePort);
+        CartShardTransactionManagers shards = shardTransactionManagers.getIfAvailable();
+        return shards != null
+                ? CartServiceTransactions.transactional(cartService, shards)
+                : CartServiceTransactions.transactional(cartService, transactionManager);
     }
 
     // JWT beans
     @Bean
     public ICartJwtPersistencePort cartJwtPersistencePort(JwtCartKeyProvider jwtCartKeyProvider) {
-        return new CartJwtAdapter(jwtCartKeyProvider, jwtSecret);
+        return new CartJwtAdapter(jwtCartKeyProvider);
     }
 
     // Mapper beans
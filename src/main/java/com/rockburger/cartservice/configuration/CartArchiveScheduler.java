@@ -0,0 +1,47 @@
+package com.rockburger.cartservice.configuration;
+
+import com.rockburger.cartservice.domain.spi.ICartArchivePersistencePort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Periodically moves ABANDONED and COMPLETED carts older than the retention out of
+ * the hot tables. Only the node holding the cart-archive lease runs it.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class CartArchiveScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(CartArchiveScheduler.class);
+
+    static final String ARCHIVE_LEASE = "cart-archive";
+
+    private final ICartArchivePersistencePort cartArchivePersistencePort;
+    private final MaintenanceLease maintenanceLease;
+    private final int retentionDays;
+
+    public CartArchiveScheduler(ICartArchivePersistencePort cartArchivePersistencePort,
+                                MaintenanceLease maintenanceLease,
+                                @Value("${cart.archive.retention-days:30}") int retentionDays) {
+        this.cartArchivePersistencePort = cartArchivePersistencePort;
+        this.maintenanceLease = maintenanceLease;
+        this.retentionDays = retentionDays;
+    }
+
+    @Scheduled(initialDelayString = "${cart.archive.interval-ms:3600000}",
+            fixedDelayString = "${cart.archive.interval-ms:3600000}")
+    public void archiveTerminalCarts() {
+        maintenanceLease.runExclusively(ARCHIVE_LEASE, leaseLost -> {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            int archived = cartArchivePersistencePort.archiveTerminalCarts(cutoff, leaseLost);
+            if (archived > 0) {
+                logger.info("Archived {} terminal carts older than {} days", archived, retentionDays);
+            }
+        });
+    }
+}
@@ -0,0 +1,39 @@
+package com.rockburger.cartservice.configuration;
+
+import com.rockburger.cartservice.domain.api.ICartServicePort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically abandons ACTIVE carts that outlived the cart expiry.
+ * Only the node holding the cart-cleanup lease sweeps; disabled with cart.cleanup.enabled=false.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.cleanup.enabled", havingValue = "true", matchIfMissing = true)
+public class CartCleanupScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(CartCleanupScheduler.class);
+
+    static final String CLEANUP_LEASE = "cart-cleanup";
+
+    private final ICartServicePort cartServicePort;
+    private final MaintenanceLease maintenanceLease;
+
+    public CartCleanupScheduler(ICartServicePort cartServicePort, MaintenanceLease maintenanceLease) {
+        this.cartServicePort = cartServicePort;
+        this.maintenanceLease = maintenanceLease;
+    }
+
+    @Scheduled(initialDelayString = "${cart.cleanup.interval-ms:300000}",
+            fixedDelayString = "${cart.cleanup.interval-ms:300000}")
+    public void sweepExpiredCarts() {
+        maintenanceLease.runExclusively(CLEANUP_LEASE, leaseLost -> {
+            int abandoned = cartServicePort.cleanupExpiredCarts(leaseLost);
+            if (abandoned > 0) {
+                logger.info("Expired cart sweep abandoned {} carts", abandoned);
+            }
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package com.rockburger.cartservice.configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartItemEntity;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.SharedCacheMode;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns on the Hibernate second-level cache for carts and their items when
+ * cart.cache.second-level.enabled is true, on Caffeine through JCache.
+ *
+ * Only the regions of the @Cache-annotated cart entities exist, each bounded in size and
+ * time, and a missing region fails startup instead of being created unbounded. A cached
+ * cart is only used at the version the database has (see ICartCacheRepository), so
+ * another node's writes are never served stale. Each region publishes the cache.*
+ * metrics under its name. Cart shards keep their own EntityManagerFactories without it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "cart.cache.second-level.enabled", havingValue = "true")
+public class CartSecondLevelCacheConfig {
+
+    private static final List<String> REGIONS =
+            List.of(CartEntity.CACHE_REGION, CartEntity.ITEMS_CACHE_REGION, CartItemEntity.CACHE_REGION);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager cartSecondLevelCacheManager(
+            @Value("${cart.cache.second-level.max-carts:10000}") long maxCarts,
+            @Value("${cart.cache.second-level.max-items:100000}") long maxItems,
+            @Value("${cart.cache.second-level.ttl-seconds:300}") long ttlSeconds) {
+        // A manager of its own, so the regions below are the only ones it has
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("cart-second-level-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(CartEntity.CACHE_REGION, region(maxCarts, ttlSeconds));
+        cacheManager.createCache(CartEntity.ITEMS_CACHE_REGION, region(maxCarts, ttlSeconds));
+        cacheManager.createCache(CartItemEntity.CACHE_REGION, region(maxItems, ttlSeconds));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cartSecondLevelCache(CacheManager cartSecondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, cartSecondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.JPA_SHARED_CACHE_MODE, SharedCacheMode.ENABLE_SELECTIVE);
+        };
+    }
+
+    @Bean
+    public MeterBinder cartSecondLevelCacheMetrics(CacheManager cartSecondLevelCacheManager) {
+        return registry -> REGIONS.forEach(region -> CaffeineCacheMetrics.monitor(registry,
+                cartSecondLevelCacheManager.getCache(region)
+                        .unwrap(com.github.benmanes.caffeine.cache.Cache.class),
+                "hibernate.l2." + region));
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maximumSize, long ttlSeconds) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        // Hibernate stores its own disassembled copies, so there is nothing to copy again
+        configuration.setStoreByValue(false);
+        configuration.setNativeStatisticsEnabled(true);
+        return configuration;
+    }
+}
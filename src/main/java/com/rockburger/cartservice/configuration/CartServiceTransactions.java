@@ -0,0 +1,156 @@
+package com.rockburger.cartservice.configuration;
+
+import com.rockburger.cartservice.configuration.datasource.CartShardTransactionManagers;
+import com.rockburger.cartservice.domain.api.ICartServicePort;
+import com.rockburger.cartservice.domain.exception.CartNotFoundException;
+import com.rockburger.cartservice.domain.exception.ConcurrentCartModificationException;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.NameMatchTransactionAttributeSource;
+import org.springframework.transaction.interceptor.NoRollbackRuleAttribute;
+import org.springframework.transaction.interceptor.RuleBasedTransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The one transaction each ICartServicePort operation runs in. The persistence adapters'
+ * own @Transactional methods join it, so an operation commits once:
+ * - cart writes run read-write at READ_COMMITTED;
+ * - reads run read-only and may be served by the replica;
+ * - maintenance runs without one, since the adapters commit each chunk on their own.
+ * CartNotFoundException is an answer rather than a failure and commits. A write that loses
+ * a version race is rolled back and run again in a new transaction on a fresh copy of the
+ * cart, outside the failed one. Every operation of the port must be listed here.
+ */
+public final class CartServiceTransactions {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartServiceTransactions.class);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BASE_DELAY_MS = 100;
+
+    private static final Map<String, TransactionAttribute> OPERATIONS = Map.of(
+            "createCart", readWrite(),
+            "addItem", readWrite(),
+            "updateItemQuantity", readWrite(),
+            "removeItem", readWrite(),
+            "clearCart", readWrite(),
+            "abandonCart", readWrite(),
+            "getActiveCart", readOnly(),
+            "getCartByUserAndStatus", readOnly(),
+            "cleanupExpiredCarts", chunked(),
+            "deleteCartsOfUsers", chunked());
+
+    private CartServiceTransactions() {
+    }
+
+    public static ICartServicePort transactional(ICartServicePort cartService,
+                                                 PlatformTransactionManager transactionManager) {
+        return proxy(cartService, new TransactionInterceptor(transactionManager, attributes()));
+    }
+
+    /**
+     * The same transactions over sharded carts, each on the transaction manager of the
+     * user's shard. Only the chunked operations take no user, and they run without one.
+     */
+    public static ICartServicePort transactional(ICartServicePort cartService,
+                                                 CartShardTransactionManagers shards) {
+        NameMatchTransactionAttributeSource attributes = attributes();
+        List<TransactionInterceptor> shardTransactions = IntStream.range(0, shards.shardCount())
+                .mapToObj(shard -> new TransactionInterceptor(shards.forShard(shard), attributes))
+                .collect(Collectors.toList());
+
+        MethodInterceptor onUsersShard = invocation -> {
+            Object[] arguments = invocation.getArguments();
+            if (arguments.length == 0 || !(arguments[0] instanceof String)) {
+                return invocation.proceed();
+            }
+            return shardTransactions.get(shards.shardOf((String) arguments[0])).invoke(invocation);
+        };
+        return proxy(cartService, onUsersShard);
+    }
+
+    private static ICartServicePort proxy(ICartServicePort cartService, MethodInterceptor transactions) {
+        for (Method operation : ICartServicePort.class.getMethods()) {
+            if (!OPERATIONS.containsKey(operation.getName())) {
+                throw new IllegalStateException("No transaction defined for ICartServicePort." + operation.getName());
+            }
+        }
+
+        ProxyFactory proxyFactory = new ProxyFactory(cartService);
+        proxyFactory.setInterfaces(ICartServicePort.class);
+        // Outermost, so every attempt gets a transaction of its own
+        proxyFactory.addAdvice((MethodInterceptor) CartServiceTransactions::retryOnConflict);
+        proxyFactory.addAdvice(transactions);
+        return (ICartServicePort) proxyFactory.getProxy();
+    }
+
+    private static NameMatchTransactionAttributeSource attributes() {
+        NameMatchTransactionAttributeSource attributes = new NameMatchTransactionAttributeSource();
+        attributes.setNameMap(OPERATIONS);
+        return attributes;
+    }
+
+    /**
+     * Runs the operation again after a version conflict, once its transaction has rolled back
+     * and released its connection. Inside a caller's transaction the conflict is the caller's
+     * to handle, since that transaction is already marked rollback-only.
+     */
+    private static Object retryOnConflict(MethodInvocation invocation) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return invocation.proceed();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+            } catch (ConcurrentCartModificationException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    logger.error("{} failed after {} attempts", invocation.getMethod().getName(), MAX_ATTEMPTS);
+                    throw e;
+                }
+                logger.warn("{} attempt {} hit a concurrent modification, retrying",
+                        invocation.getMethod().getName(), attempt);
+                try {
+                    Thread.sleep(RETRY_BASE_DELAY_MS * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while retrying cart operation", ie);
+                }
+            }
+        }
+    }
+
+    private static TransactionAttribute readWrite() {
+        RuleBasedTransactionAttribute attribute = committingNotFound();
+        attribute.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        return attribute;
+    }
+
+    private static TransactionAttribute readOnly() {
+        RuleBasedTransactionAttribute attribute = committingNotFound();
+        attribute.setReadOnly(true);
+        return attribute;
+    }
+
+    private static RuleBasedTransactionAttribute committingNotFound() {
+        return new RuleBasedTransactionAttribute(TransactionDefinition.PROPAGATION_REQUIRED,
+                List.of(new NoRollbackRuleAttribute(CartNotFoundException.class)));
+    }
+
+    private static TransactionAttribute chunked() {
+        return new RuleBasedTransactionAttribute(TransactionDefinition.PROPAGATION_NOT_SUPPORTED, List.of());
+    }
+}
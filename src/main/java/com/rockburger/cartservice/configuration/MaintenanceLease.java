@@ -0,0 +1,139 @@
+package com.rockburger.cartservice.configuration;
+
+import com.rockburger.cartservice.domain.spi.IMaintenanceLeasePersistencePort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Runs maintenance jobs on at most one node of the cluster at a time.
+ * The node that takes the lease renews it from a heartbeat thread while the job
+ * runs. If the node dies, the lease expires and another node takes it over on its
+ * next attempt. The job is handed a condition that turns true once its lease was taken
+ * over or could not be renewed within its TTL; chunked jobs check it and stop at their
+ * next chunk, on whichever thread runs the chunk.
+ */
+@Component
+public class MaintenanceLease {
+    private static final Logger logger = LoggerFactory.getLogger(MaintenanceLease.class);
+
+    private final IMaintenanceLeasePersistencePort leasePersistencePort;
+    private final int ttlSeconds;
+    private final String ownerId;
+    private final ScheduledExecutorService heartbeatExecutor;
+
+    public MaintenanceLease(IMaintenanceLeasePersistencePort leasePersistencePort,
+                            @Value("${cart.maintenance.lease.ttl-seconds:60}") int ttlSeconds,
+                            @Value("${cart.maintenance.lease.owner-id:}") String ownerId) {
+        if (ttlSeconds < 3) {
+            throw new IllegalArgumentException("cart.maintenance.lease.ttl-seconds must be at least 3");
+        }
+        this.leasePersistencePort = leasePersistencePort;
+        this.ttlSeconds = ttlSeconds;
+        this.ownerId = ownerId.isBlank() ? defaultOwnerId() : ownerId;
+        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "maintenance-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run the task if this node can take the named lease, passing it whether the lease
+     * was lost. Returns false without running it when another node holds the lease.
+     */
+    public boolean runExclusively(String leaseName, Consumer<BooleanSupplier> task) {
+        // Timed from before the acquire, so this node gives the lease up no later than the database does
+        HeldLease held = new HeldLease(TimeUnit.SECONDS.toNanos(ttlSeconds));
+        if (!leasePersistencePort.tryAcquire(leaseName, ownerId, ttlSeconds)) {
+            logger.debug("Maintenance lease '{}' is held by another node, skipping", leaseName);
+            return false;
+        }
+
+        // Renew three times per TTL, so one missed heartbeat does not lose the lease
+        long heartbeatMs = TimeUnit.SECONDS.toMillis(ttlSeconds) / 3;
+        ScheduledFuture<?> heartbeat = heartbeatExecutor.scheduleWithFixedDelay(
+                () -> heartbeat(leaseName, held), heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        try {
+            logger.debug("Running '{}' as lease owner {}", leaseName, ownerId);
+            task.accept(held::isLost);
+            if (held.isLost()) {
+                logger.warn("'{}' lost its maintenance lease and stopped at a chunk boundary", leaseName);
+            }
+            return true;
+        } finally {
+            heartbeat.cancel(false);
+            leasePersistencePort.release(leaseName, ownerId);
+        }
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    private void heartbeat(String leaseName, HeldLease held) {
+        if (held.isLost()) {
+            return;
+        }
+        try {
+            if (leasePersistencePort.renew(leaseName, ownerId, ttlSeconds)) {
+                held.renewed();
+            } else {
+                held.lost = true;
+                logger.warn("Maintenance lease '{}' was taken over by another node; stopping at the next chunk",
+                        leaseName);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to renew maintenance lease '{}': {}", leaseName, e.getMessage());
+        }
+    }
+
+    private static String defaultOwnerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown-host";
+        }
+        return host + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * A lease taken by this node. Lost once another node owns it, or once it went a TTL
+     * without a renewal, since another node may take it over from then on.
+     */
+    private static final class HeldLease {
+        private final long ttlNanos;
+        private volatile long renewedAtNanos = System.nanoTime();
+        private volatile boolean lost;
+
+        private HeldLease(long ttlNanos) {
+            this.ttlNanos = ttlNanos;
+        }
+
+        private void renewed() {
+            renewedAtNanos = System.nanoTime();
+        }
+
+        private boolean isLost() {
+            return lost || System.nanoTime() - renewedAtNanos >= ttlNanos;
+        }
+    }
+}
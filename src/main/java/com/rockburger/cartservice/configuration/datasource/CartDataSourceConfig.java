@@ -0,0 +1,86 @@
+package com.rockburger.cartservice.configuration.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the auto-configured DataSource with separate Hikari pools:
+ * cart-request for request traffic (spring.datasource.hikari) and cart-maintenance
+ * for sweeps, archival and bulk deletes (cart.datasource.maintenance.hikari), both
+ * on spring.datasource. When cart.datasource.replica.enabled is true, read-only
+ * transactions go to a cart-replica pool as well; the replica reuses the primary's
+ * credentials unless cart.datasource.replica.username/password are set.
+ * Each pool publishes its hikaricp.connections.* metrics under its pool name.
+ */
+@Configuration
+public class CartDataSourceConfig {
+    private static final Logger logger = LoggerFactory.getLogger(CartDataSourceConfig.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource requestDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("cart-request");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("cart.datasource.maintenance.hikari")
+    public HikariDataSource maintenanceDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("cart-maintenance");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cart.datasource.replica.enabled", havingValue = "true")
+    @ConfigurationProperties("cart.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            DataSourceProperties dataSourceProperties,
+            @Value("${cart.datasource.replica.url}") String url,
+            @Value("${cart.datasource.replica.username:}") String username,
+            @Value("${cart.datasource.replica.password:}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username.isEmpty() ? dataSourceProperties.determineUsername() : username)
+                .password(password.isEmpty() ? dataSourceProperties.determinePassword() : password)
+                .build();
+        dataSource.setPoolName("cart-replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("requestDataSource") DataSource requestDataSource,
+                                 @Qualifier("maintenanceDataSource") DataSource maintenanceDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+                                 ReadYourWritesGuard readYourWritesGuard) {
+        DataSource primary = new WorkloadRoutingDataSource(requestDataSource, maintenanceDataSource);
+        DataSource replica = replicaDataSource.getIfAvailable();
+        if (replica == null) {
+            return new LazyConnectionDataSourceProxy(primary);
+        }
+        logger.info("Routing read-only transactions to the cart replica");
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, readYourWritesGuard));
+    }
+}
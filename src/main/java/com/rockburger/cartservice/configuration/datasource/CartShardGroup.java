@@ -0,0 +1,58 @@
+package com.rockburger.cartservice.configuration.datasource;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartShardRouter;
+import com.rockburger.cartservice.domain.spi.ICartArchivePersistencePort;
+import com.rockburger.cartservice.domain.spi.ICartItemPersistencePort;
+import com.rockburger.cartservice.domain.spi.ICartPersistencePort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The per-shard adapters and transaction managers built by CartShardingConfig, index i being shard i.
+ * Closing the group stops the fan-out threads and closes every shard's
+ * EntityManagerFactory and connection pool.
+ */
+class CartShardGroup implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CartShardGroup.class);
+
+    final CartShardRouter router;
+    final List<ICartPersistencePort> cartPorts = new ArrayList<>();
+    final List<ICartItemPersistencePort> cartItemPorts = new ArrayList<>();
+    final List<ICartArchivePersistencePort> cartArchivePorts = new ArrayList<>();
+    final List<PlatformTransactionManager> transactionManagers = new ArrayList<>();
+    final ExecutorService fanOutExecutor;
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    CartShardGroup(CartShardRouter router, ExecutorService fanOutExecutor) {
+        this.router = router;
+        this.fanOutExecutor = fanOutExecutor;
+    }
+
+    void add(ICartPersistencePort cartPort, ICartItemPersistencePort cartItemPort,
+             ICartArchivePersistencePort cartArchivePort, PlatformTransactionManager transactionManager,
+             AutoCloseable... shardResources) {
+        cartPorts.add(cartPort);
+        cartItemPorts.add(cartItemPort);
+        cartArchivePorts.add(cartArchivePort);
+        transactionManagers.add(transactionManager);
+        Collections.addAll(resources, shardResources);
+    }
+
+    @Override
+    public void close() {
+        fanOutExecutor.shutdownNow();
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            try {
+                resources.get(i).close();
+            } catch (Exception e) {
+                logger.warn("Failed to close cart shard resource: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.rockburger.cartservice.configuration.datasource;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartShardRouter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+/**
+ * The transaction manager of every cart shard, index i being shard i, with the router
+ * that names a user's shard. CartServiceTransactions runs each operation on the
+ * transaction manager of its user's shard.
+ */
+public final class CartShardTransactionManagers {
+
+    private final CartShardRouter router;
+    private final List<PlatformTransactionManager> transactionManagers;
+
+    CartShardTransactionManagers(CartShardRouter router, List<PlatformTransactionManager> transactionManagers) {
+        if (transactionManagers.size() != router.shardCount()) {
+            throw new IllegalArgumentException(
+                    "Expected " + router.shardCount() + " transaction managers, got " + transactionManagers.size());
+        }
+        this.router = router;
+        this.transactionManagers = List.copyOf(transactionManagers);
+    }
+
+    public int shardCount() {
+        return router.shardCount();
+    }
+
+    public int shardOf(String userId) {
+        return router.shardOf(userId);
+    }
+
+    public PlatformTransactionManager forShard(int shard) {
+        return transactionManagers.get(shard);
+    }
+}
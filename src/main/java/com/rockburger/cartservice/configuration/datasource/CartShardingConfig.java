@@ -0,0 +1,245 @@
+package com.rockburger.cartservice.configuration.datasource;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartArchiveAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartCleanupMetrics;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartItemAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartShardRouter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.ShardedCartAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.ShardedCartArchiveAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.ShardedCartItemAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapper;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapper;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartArchiveRepository;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartCacheRepositoryImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartItemBatchRepositoryImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartItemRepository;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartRepository;
+import com.rockburger.cartservice.domain.spi.ICartArchivePersistencePort;
+import com.rockburger.cartservice.domain.spi.ICartItemPersistencePort;
+import com.rockburger.cartservice.domain.spi.ICartPersistencePort;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.support.PersistenceExceptionTranslationInterceptor;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads carts over the databases in cart.sharding.urls when cart.sharding.enabled is true.
+ *
+ * Every shard gets its own request and maintenance pools, EntityManagerFactory, transaction manager and
+ * repositories, and a CartAdapter/CartItemAdapter on top whose @Transactional methods
+ * run on that shard's transaction manager. ShardedCartAdapter and ShardedCartItemAdapter
+ * then replace the single-database ports, and CartShardTransactionManagers gives the cart
+ * service the transaction manager of each user's shard. Archival runs on each shard too,
+ * through a CartArchiveAdapter per shard behind ShardedCartArchiveAdapter, so every shard
+ * needs the archive tables. spring.datasource stays the database for everything else
+ * (maintenance leases, cart sessions); shard pools use its credentials and
+ * the spring.datasource.hikari or cart.datasource.maintenance.hikari settings.
+ */
+@Configuration
+@ConditionalOnProperty(name = "cart.sharding.enabled", havingValue = "true")
+public class CartShardingConfig {
+    private static final Logger logger = LoggerFactory.getLogger(CartShardingConfig.class);
+
+    @Bean
+    CartShardGroup cartShardGroup(@Value("${cart.sharding.urls}") String[] urls,
+                                  @Value("${cart.datasource.replica.enabled:false}") boolean replicaEnabled,
+                                  @Value("${cart.datasource.replica.read-your-writes-ms:5000}") long readYourWritesMs,
+                                  @Value("${cart.datasource.replica.version-retention-ms:600000}") long versionRetentionMs,
+                                  @Value("${cart.datasource.replica.tracked-carts:100000}") long trackedCarts,
+                                  @Value("${cart.cleanup.batch.size:100}") int cleanupBatchSize,
+                                  @Value("${cart.archive.batch.size:200}") int archiveBatchSize,
+                                  @Value("${cart.archive.max-rows-per-second:1000}") int archiveMaxRowsPerSecond,
+                                  DataSourceProperties dataSourceProperties,
+                                  JpaProperties jpaProperties,
+                                  HibernateProperties hibernateProperties,
+                                  EntityManagerFactoryBuilder entityManagerFactoryBuilder,
+                                  Environment environment,
+                                  ICartEntityMapper cartEntityMapper,
+                                  ICartItemEntityMapper cartItemEntityMapper,
+                                  CartCleanupMetrics cleanupMetrics,
+                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        if (replicaEnabled) {
+            throw new IllegalStateException("cart.sharding and cart.datasource.replica cannot be enabled together");
+        }
+        List<String> shardUrls = Arrays.stream(urls).map(String::trim).filter(url -> !url.isEmpty())
+                .collect(Collectors.toList());
+        CartShardRouter router = new CartShardRouter(shardUrls.size());
+        CartShardGroup group = new CartShardGroup(router, fanOutExecutor(shardUrls.size()));
+
+        Map<String, Object> hibernateSettings = hibernateProperties.determineHibernateProperties(
+                jpaProperties.getProperties(), new HibernateSettings());
+
+        try {
+            for (int shard = 0; shard < shardUrls.size(); shard++) {
+                String name = "cart-shard-" + shard;
+                HikariDataSource requestPool = shardPool(shardUrls.get(shard), name + "-request",
+                        "spring.datasource.hikari", dataSourceProperties, environment, meterRegistry);
+                HikariDataSource maintenancePool = shardPool(shardUrls.get(shard), name + "-maintenance",
+                        "cart.datasource.maintenance.hikari", dataSourceProperties, environment, meterRegistry);
+                DataSource dataSource = new LazyConnectionDataSourceProxy(
+                        new WorkloadRoutingDataSource(requestPool, maintenancePool));
+
+                LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = entityManagerFactoryBuilder
+                        .dataSource(dataSource)
+                        .packages(CartEntity.class)
+                        .persistenceUnit(name)
+                        .properties(hibernateSettings)
+                        .build();
+                entityManagerFactoryBean.afterPropertiesSet();
+                EntityManagerFactory entityManagerFactory = entityManagerFactoryBean.getObject();
+                JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+
+                EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+                JpaRepositoryFactory repositories = repositoryFactory(entityManager, transactionManager);
+                ICartRepository cartRepository = repositories.getRepository(ICartRepository.class,
+                        RepositoryFragments.just(new ICartCacheRepositoryImpl(entityManager)));
+                ICartItemRepository cartItemRepository = repositories.getRepository(ICartItemRepository.class,
+                        RepositoryFragments.just(new ICartItemBatchRepositoryImpl(entityManager)));
+                // Cart ids are per shard, so each shard remembers its own written versions
+                ReadYourWritesGuard readYourWritesGuard =
+                        new ReadYourWritesGuard(readYourWritesMs, versionRetentionMs, trackedCarts);
+
+                CartAdapter cartAdapter = new CartAdapter(cartRepository, cartItemRepository, cartEntityMapper,
+                        cartItemEntityMapper, cleanupMetrics, readYourWritesGuard, transactionManager,
+                        cleanupBatchSize);
+                CartItemAdapter cartItemAdapter = new CartItemAdapter(cartItemRepository, cartRepository,
+                        cartEntityMapper, cartItemEntityMapper, readYourWritesGuard);
+                CartArchiveAdapter cartArchiveAdapter = new CartArchiveAdapter(
+                        repositories.getRepository(ICartArchiveRepository.class), transactionManager,
+                        archiveBatchSize, archiveMaxRowsPerSecond);
+
+                group.add(transactional(cartAdapter, ICartPersistencePort.class, transactionManager),
+                        transactional(cartItemAdapter, ICartItemPersistencePort.class, transactionManager),
+                        cartArchiveAdapter, transactionManager, requestPool, maintenancePool,
+                        entityManagerFactoryBean::destroy);
+                logger.info("Cart shard {} ready", shard);
+            }
+        } catch (RuntimeException e) {
+            group.close();
+            throw e;
+        }
+        return group;
+    }
+
+    @Bean
+    @Primary
+    public ICartPersistencePort cartPersistencePort(CartShardGroup cartShardGroup) {
+        return new ShardedCartAdapter(cartShardGroup.cartPorts, cartShardGroup.router, cartShardGroup.fanOutExecutor);
+    }
+
+    @Bean
+    @Primary
+    public ICartItemPersistencePort cartItemPersistencePort(CartShardGroup cartShardGroup) {
+        return new ShardedCartItemAdapter(cartShardGroup.cartItemPorts, cartShardGroup.router);
+    }
+
+    /**
+     * Terminal carts live on the shards, so each shard archives its own
+     */
+    @Bean
+    @Primary
+    public ICartArchivePersistencePort cartArchivePersistencePort(CartShardGroup cartShardGroup) {
+        return new ShardedCartArchiveAdapter(cartShardGroup.cartArchivePorts);
+    }
+
+    /**
+     * Lets the cart service run each operation in one transaction on its user's shard
+     */
+    @Bean
+    public CartShardTransactionManagers cartShardTransactionManagers(CartShardGroup cartShardGroup) {
+        return new CartShardTransactionManagers(cartShardGroup.router, cartShardGroup.transactionManagers);
+    }
+
+    /**
+     * A shard pool on the shard's URL with the primary's credentials and the Hikari
+     * settings under the given prefix. Pools that aren't beans get their metrics bound here.
+     */
+    private static HikariDataSource shardPool(String url, String poolName, String hikariPrefix,
+                                              DataSourceProperties dataSourceProperties, Environment environment,
+                                              ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource pool = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(dataSourceProperties.determineUsername())
+                .password(dataSourceProperties.determinePassword())
+                .build();
+        Binder.get(environment).bind(hikariPrefix, Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        return pool;
+    }
+
+    /**
+     * Repositories bound to one shard, with the exception translation and
+     * transactions Spring Data would add to a repository bean
+     */
+    private static JpaRepositoryFactory repositoryFactory(EntityManager entityManager,
+                                                          JpaTransactionManager transactionManager) {
+        JpaRepositoryFactory factory = new JpaRepositoryFactory(entityManager);
+        factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> {
+            proxyFactory.addAdvice(new PersistenceExceptionTranslationInterceptor(new HibernateJpaDialect()));
+            proxyFactory.addAdvice(
+                    new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        });
+        return factory;
+    }
+
+    /**
+     * Apply the adapter's @Transactional attributes with the shard's transaction manager
+     */
+    private static <T> T transactional(T adapter, Class<T> port, JpaTransactionManager transactionManager) {
+        ProxyFactory proxyFactory = new ProxyFactory(adapter);
+        proxyFactory.setInterfaces(port);
+        proxyFactory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        return port.cast(proxyFactory.getProxy());
+    }
+
+    private static ExecutorService fanOutExecutor(int shards) {
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(shards, runnable -> {
+            Thread thread = new Thread(runnable, "cart-shard-fanout-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.rockburger.cartservice.configuration.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks the current thread as running maintenance (sweeps, archival, bulk deletes,
+ * leases) so that WorkloadRoutingDataSource hands it connections from the
+ * maintenance pool instead of the one serving requests.
+ */
+public final class MaintenanceWorkload {
+
+    private static final ThreadLocal<Boolean> active = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private MaintenanceWorkload() {
+    }
+
+    public static <T> T call(Supplier<T> work) {
+        Boolean previous = active.get();
+        active.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            active.set(previous);
+        }
+    }
+
+    public static void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static boolean isActive() {
+        return active.get();
+    }
+}
@@ -0,0 +1,147 @@
+package com.rockburger.cartservice.configuration.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Decides when a read-only read must not be served by the replica.
+ *
+ * A session (the userId the JWT filter puts on the request) that committed a write
+ * within the read-your-writes window reads from the primary. Independently, the
+ * adapters remember the last cart version they committed; a replica row older than that
+ * is behind, and the caller re-reads it on the primary through onPrimary.
+ *
+ * cart.replica.primary.fallbacks{reason=recent-write|version-behind} counts both cases.
+ * It is bound as a MeterBinder because the DataSource depends on this guard, and the
+ * MeterRegistry on the DataSource.
+ */
+@Component
+public class ReadYourWritesGuard implements MeterBinder {
+    static final String SESSION_ATTRIBUTE = "userId";
+
+    private static final ThreadLocal<Boolean> forcePrimary = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final Cache<String, Boolean> recentWriters;
+    private final Cache<Long, Integer> writtenCartVersions;
+    private final AtomicLong recentWriteFallbacks = new AtomicLong();
+    private final AtomicLong versionBehindFallbacks = new AtomicLong();
+
+    public ReadYourWritesGuard(@Value("${cart.datasource.replica.read-your-writes-ms:5000}") long readYourWritesMs,
+                               @Value("${cart.datasource.replica.version-retention-ms:600000}") long versionRetentionMs,
+                               @Value("${cart.datasource.replica.tracked-carts:100000}") long trackedCarts) {
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(trackedCarts)
+                .expireAfterWrite(Duration.ofMillis(readYourWritesMs))
+                .build();
+        this.writtenCartVersions = Caffeine.newBuilder()
+                .maximumSize(trackedCarts)
+                .expireAfterWrite(Duration.ofMillis(versionRetentionMs))
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        bindFallbackCounter(meterRegistry, "recent-write", recentWriteFallbacks);
+        bindFallbackCounter(meterRegistry, "version-behind", versionBehindFallbacks);
+    }
+
+    private static void bindFallbackCounter(MeterRegistry meterRegistry, String reason, AtomicLong count) {
+        FunctionCounter.builder("cart.replica.primary.fallbacks", count, AtomicLong::doubleValue)
+                .description("Read-only reads sent to the primary to see the session's own writes")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the current read-only transaction has to use the primary
+     */
+    public boolean mustReadPrimary() {
+        if (forcePrimary.get()) {
+            return true;
+        }
+        String session = currentSession();
+        if (session != null && recentWriters.getIfPresent(session) != null) {
+            recentWriteFallbacks.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The session of the current request, or null outside a request (e.g. scheduled jobs)
+     */
+    public String currentSession() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Object userId = attributes.getAttribute(SESSION_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return userId instanceof String ? (String) userId : null;
+    }
+
+    public void recordSessionWrite(String session) {
+        recentWriters.put(session, Boolean.TRUE);
+    }
+
+    /**
+     * Remember a cart version written in the current transaction once it commits; a rolled
+     * back write would otherwise send every later read of the cart to the primary
+     */
+    public void recordCartVersionOnCommit(Long cartId, Integer version) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recordCartVersion(cartId, version);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordCartVersion(cartId, version);
+            }
+        });
+    }
+
+    void recordCartVersion(Long cartId, Integer version) {
+        if (cartId != null && version != null) {
+            writtenCartVersions.asMap().merge(cartId, version, Math::max);
+        }
+    }
+
+    /**
+     * Whether a cart read at the given version is older than one this node wrote
+     */
+    public boolean isBehind(Long cartId, Integer version) {
+        Integer written = writtenCartVersions.getIfPresent(cartId);
+        if (written == null || (version != null && version >= written)) {
+            return false;
+        }
+        versionBehindFallbacks.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Run a read with every transaction it starts routed to the primary.
+     * The read must start its own transaction; one already bound to the replica stays there.
+     */
+    public <T> T onPrimary(Supplier<T> read) {
+        Boolean previous = forcePrimary.get();
+        forcePrimary.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            forcePrimary.set(previous);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.rockburger.cartservice.configuration.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends connections of read-only transactions to the replica and everything else to
+ * the primary. The lookup happens when a connection is obtained, so this must sit
+ * behind a LazyConnectionDataSourceProxy: the transaction's read-only flag is only
+ * set after the transaction manager has asked for its connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route { PRIMARY, REPLICA }
+
+    private final ReadYourWritesGuard readYourWritesGuard;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReadYourWritesGuard readYourWritesGuard) {
+        this.readYourWritesGuard = readYourWritesGuard;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberSessionWriteOnCommit();
+            return Route.PRIMARY;
+        }
+        return readYourWritesGuard.mustReadPrimary() ? Route.PRIMARY : Route.REPLICA;
+    }
+
+    /**
+     * Any read-write transaction of a session counts as a write once it commits
+     */
+    private void rememberSessionWriteOnCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        String session = readYourWritesGuard.currentSession();
+        if (session == null) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                readYourWritesGuard.recordSessionWrite(session);
+            }
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package com.rockburger.cartservice.configuration.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Takes connections from the maintenance pool while MaintenanceWorkload is active and
+ * from the request pool otherwise, so a long sweep can only exhaust its own pool.
+ * Like ReplicaRoutingDataSource it decides when a connection is obtained and belongs
+ * behind a LazyConnectionDataSourceProxy; a connection already bound to a transaction
+ * stays on the pool it came from.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Workload { REQUEST, MAINTENANCE }
+
+    public WorkloadRoutingDataSource(DataSource request, DataSource maintenance) {
+        setTargetDataSources(Map.of(Workload.REQUEST, request, Workload.MAINTENANCE, maintenance));
+        setDefaultTargetDataSource(request);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return MaintenanceWorkload.isActive() ? Workload.MAINTENANCE : Workload.REQUEST;
+    }
+}
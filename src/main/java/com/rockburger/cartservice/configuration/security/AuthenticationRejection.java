@@ -0,0 +1,66 @@
+package com.rockburger.cartservice.configuration.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Authentication rejections with their 401 bodies serialized once at class load.
+ * Only the timestamp varies per response, so a rejection costs three byte writes
+ * instead of building and serializing a map.
+ */
+public enum AuthenticationRejection {
+    TOKEN_REQUIRED("Authentication token required", "TOKEN_REQUIRED"),
+    TOKEN_EXPIRED("Token has expired", "TOKEN_EXPIRED"),
+    INVALID_TOKEN("Invalid token", "INVALID_TOKEN"),
+    TOKEN_REVOKED("Token has been revoked", "TOKEN_REVOKED");
+
+    private static final HttpStatus STATUS = HttpStatus.UNAUTHORIZED;
+    private static final byte[] BODY_PREFIX = "{\"timestamp\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private final String message;
+    private final String errorCode;
+    private final byte[] bodySuffix;
+
+    AuthenticationRejection(String message, String errorCode) {
+        this.message = message;
+        this.errorCode = errorCode;
+        this.bodySuffix = serializeSuffix(message, errorCode);
+    }
+
+    public HttpStatus getStatus() { return STATUS; }
+    public String getMessage() { return message; }
+    public String getErrorCode() { return errorCode; }
+
+    static byte[] bodyPrefix() {
+        return BODY_PREFIX;
+    }
+
+    byte[] bodySuffix() {
+        return bodySuffix;
+    }
+
+    /**
+     * Serialize everything after the timestamp value: {"timestamp":"<ts>",...}
+     */
+    private static byte[] serializeSuffix(String message, String errorCode) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", STATUS.value());
+        body.put("error", STATUS.getReasonPhrase());
+        body.put("message", message);
+        body.put("path", "cart-authentication");
+        body.put("service", "cart-service");
+        body.put("errorCode", errorCode);
+
+        try {
+            String json = new ObjectMapper().writeValueAsString(body);
+            return ("\"," + json.substring(1)).getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize authentication error body", e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.rockburger.cartservice.configuration.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads RSA and EC public keys from a JWKS document (RFC 7517) on local disk.
+ * Keys are decoded into ready-to-use PublicKey instances once per load, so the
+ * request path never repeats KeyFactory work.
+ */
+final class JwksKeyLoader {
+    private static final Logger logger = LoggerFactory.getLogger(JwksKeyLoader.class);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private JwksKeyLoader() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    static Map<String, PublicKey> load(Path jwksFile) throws IOException {
+        JsonNode root;
+        try (InputStream in = Files.newInputStream(jwksFile)) {
+            root = OBJECT_MAPPER.readTree(in);
+        }
+
+        JsonNode keys = root.path("keys");
+        if (!keys.isArray()) {
+            throw new IllegalArgumentException("JWKS document " + jwksFile + " has no 'keys' array");
+        }
+
+        Map<String, PublicKey> publicKeys = new HashMap<>();
+        for (JsonNode jwk : keys) {
+            String kid = jwk.path("kid").asText(null);
+            String use = jwk.path("use").asText("sig");
+            if (kid == null || !"sig".equals(use)) {
+                logger.debug("Skipping JWK without kid or not meant for signatures: {}", kid);
+                continue;
+            }
+
+            try {
+                publicKeys.put(kid, toPublicKey(jwk));
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                logger.warn("Skipping unusable JWK '{}': {}", kid, e.getMessage());
+            }
+        }
+        return publicKeys;
+    }
+
+    private static PublicKey toPublicKey(JsonNode jwk) throws GeneralSecurityException {
+        String kty = jwk.path("kty").asText();
+        switch (kty) {
+            case "RSA":
+                return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(
+                        decodeUnsigned(jwk, "n"), decodeUnsigned(jwk, "e")));
+            case "EC":
+                ECParameterSpec curve = curveFor(jwk.path("crv").asText());
+                ECPoint point = new ECPoint(decodeUnsigned(jwk, "x"), decodeUnsigned(jwk, "y"));
+                return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, curve));
+            default:
+                throw new IllegalArgumentException("Unsupported key type: " + kty);
+        }
+    }
+
+    private static ECParameterSpec curveFor(String crv) throws GeneralSecurityException {
+        String stdName;
+        switch (crv) {
+            case "P-256":
+                stdName = "secp256r1";
+                break;
+            case "P-384":
+                stdName = "secp384r1";
+                break;
+            case "P-521":
+                stdName = "secp521r1";
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported curve: " + crv);
+        }
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec(stdName));
+        return parameters.getParameterSpec(ECParameterSpec.class);
+    }
+
+    private static BigInteger decodeUnsigned(JsonNode jwk, String field) {
+        String value = jwk.path(field).asText(null);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing JWK field: " + field);
+        }
+        return new BigInteger(1, Base64.getUrlDecoder().decode(value));
+    }
+}
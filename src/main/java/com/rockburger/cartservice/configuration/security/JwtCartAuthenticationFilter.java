@@ -1,9 +1,10 @@
 package com.rockburger.cartservice.configuration.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rockburger.cartservice.configuration.security.JwtCartAuthenticationMetrics.Outcome;
 import com.rockburger.cartservice.domain.model.CartUserModel;
+import com.rockburger.cartservice.domain.model.TokenVerificationResult;
 import com.rockburger.cartservice.domain.spi.ICartJwtPersistencePort;
-import com.rockburger.cartservice.domain.exception.CartTokensException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +12,7 @@ import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -19,9 +21,11 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -34,7 +38,12 @@ public class JwtCartAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(JwtCartAuthenticationFilter.class);
 
     private final ICartJwtPersistencePort cartJwtPersistencePort;
+    private final JwtCartTokenCache jwtCartTokenCache;
+    private final JwtCartRevocationList jwtCartRevocationList;
+    private final JwtCartAuthenticationMetrics authenticationMetrics;
     private final ObjectMapper objectMapper;
+    private final RejectionLogLimiter rejectionLogLimiter =
+            new RejectionLogLimiter(MAX_REJECTION_LOGS_PER_WINDOW, REJECTION_LOG_WINDOW_MS);
 
     // Paths that don't require authentication
     private static final String[] PUBLIC_PATHS = {
@@ -47,9 +56,23 @@ public class JwtCartAuthenticationFilter extends OncePerRequestFilter {
             "/actuator/info",
             "/actuator/prometheus"
     };
+    private static final PublicPathMatcher PUBLIC_PATH_MATCHER = new PublicPathMatcher(PUBLIC_PATHS);
 
-    public JwtCartAuthenticationFilter(ICartJwtPersistencePort cartJwtPersistencePort) {
+    // Longest bearer token accepted before any parsing is attempted
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    // At most this many rejection log lines per window; the rest are counted
+    private static final int MAX_REJECTION_LOGS_PER_WINDOW = 20;
+    private static final long REJECTION_LOG_WINDOW_MS = 10_000;
+
+    public JwtCartAuthenticationFilter(ICartJwtPersistencePort cartJwtPersistencePort,
+                                       JwtCartTokenCache jwtCartTokenCache,
+                                       JwtCartRevocationList jwtCartRevocationList,
+                                       JwtCartAuthenticationMetrics authenticationMetrics) {
         this.cartJwtPersistencePort = cartJwtPersistencePort;
+        this.jwtCartTokenCache = jwtCartTokenCache;
+        this.jwtCartRevocationList = jwtCartRevocationList;
+        this.authenticationMetrics = authenticationMetrics;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -71,54 +94,79 @@ public class JwtCartAuthenticationFilter extends OncePerRequestFilter {
         }
 
         try {
+            long extractionStart = System.nanoTime();
             String jwt = extractJwtFromRequest(request);
+            authenticationMetrics.recordExtraction(System.nanoTime() - extractionStart);
             logger.debug("Processing cart service request to '{}' with JWT: {}", requestURI,
                     jwt != null ? "present" : "not present");
 
             if (jwt != null) {
-                TokenValidationResult validationResult = validateToken(jwt);
+                CartUserModel user;
+                List<GrantedAuthority> authorities;
+
+                // Garbage tokens are rejected before hashing or parsing
+                if (!looksLikeJws(jwt)) {
+                    reject(response, requestURI, AuthenticationRejection.INVALID_TOKEN, Outcome.MALFORMED);
+                    return;
+                }
+
+                String tokenHash = JwtTokenHashes.sha256Hex(jwt);
 
-                if (validationResult.isValid()) {
-                    CartUserModel user = validationResult.getUser();
+                // Revocation is checked in memory, including for cached tokens
+                if (jwtCartRevocationList.isRevoked(tokenHash)) {
+                    reject(response, requestURI, AuthenticationRejection.TOKEN_REVOKED, Outcome.REVOKED);
+                    return;
+                }
 
-                    // Normalize role format for Spring Security
-                    String role = user.getRole();
-                    if (role != null && !role.startsWith("ROLE_")) {
-                        role = "ROLE_" + role;
+                // A cache hit skips signature verification and claims parsing entirely
+                JwtCartTokenCache.CachedAuthentication cached = jwtCartTokenCache.get(tokenHash);
+                if (cached != null) {
+                    user = cached.getUser();
+                    authorities = cached.getAuthorities();
+                } else {
+                    long verificationStart = System.nanoTime();
+                    TokenVerificationResult validationResult = validateToken(jwt);
+                    authenticationMetrics.recordVerification(validationResult.getStatus(),
+                            System.nanoTime() - verificationStart);
+
+                    if (!validationResult.isValid()) {
+                        reject(response, requestURI, validationResult.isExpired()
+                                ? AuthenticationRejection.TOKEN_EXPIRED
+                                : AuthenticationRejection.INVALID_TOKEN,
+                                Outcome.of(validationResult.getStatus()));
+                        return;
                     }
 
-                    List<SimpleGrantedAuthority> authorities = List.of(
-                            new SimpleGrantedAuthority(role)
-                    );
+                    user = validationResult.getUser();
+                    long authoritiesStart = System.nanoTime();
+                    authorities = buildAuthorities(user);
+                    authenticationMetrics.recordAuthorities(System.nanoTime() - authoritiesStart);
+                    jwtCartTokenCache.put(tokenHash, user, authorities, validationResult.getExpiresAt());
+                }
 
-                    // Store user details including email as principal
-                    String email = user.getEmail();
-                    logger.debug("Authenticated user email: {} with role: {}", email, role);
+                // Store user details including email as principal
+                String email = user.getEmail();
+                logger.debug("Authenticated user email: {} with authorities: {}", email, authorities);
 
-                    // Store JWT token as credentials and email as principal
-                    UsernamePasswordAuthenticationToken authentication =
-                            new UsernamePasswordAuthenticationToken(
-                                    email, // Use email as principal
-                                    jwt,   // Store token as credentials
-                                    authorities
-                            );
+                // Store JWT token as credentials and email as principal
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(
+                                email, // Use email as principal
+                                jwt,   // Store token as credentials
+                                authorities
+                        );
 
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                SecurityContextHolder.getContext().setAuthentication(authentication);
 
-                    // Store userId in request attribute for easy access by controllers
-                    request.setAttribute("userId", email);
-                    request.setAttribute("userRole", user.getRole());
+                // Store userId in request attribute for easy access by controllers
+                request.setAttribute("userId", email);
+                request.setAttribute("userRole", user.getRole());
 
-                    logger.debug("User authenticated in cart service with role: {}", role);
-                } else {
-                    // Handle invalid token
-                    handleInvalidToken(request, response, validationResult);
-                    return;
-                }
+                authenticationMetrics.recordOutcome(Outcome.VALID);
+                logger.debug("User authenticated in cart service with authorities: {}", authorities);
             } else {
                 // No token provided for protected resource
-                logger.warn("No JWT token provided for protected cart service resource: {}", requestURI);
-                handleMissingToken(response, requestURI);
+                reject(response, requestURI, AuthenticationRejection.TOKEN_REQUIRED, Outcome.MISSING);
                 return;
             }
         } catch (Exception e) {
@@ -131,61 +179,56 @@ public class JwtCartAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * Validate JWT token and return validation result
+     * Build Spring Security authorities from the user's role
      */
-    private TokenValidationResult validateToken(String jwt) {
-        try {
-            // First check if token is valid (not expired, properly signed)
-            if (!cartJwtPersistencePort.isTokenValid(jwt)) {
-                logger.warn("Token validation failed - token is invalid or expired");
-                return new TokenValidationResult(false, null, "Invalid or expired token");
-            }
-
-            // If valid, extract user information
-            CartUserModel user = cartJwtPersistencePort.validateToken(jwt);
-            return new TokenValidationResult(true, user, null);
-
-        } catch (CartTokensException e) {
-            logger.warn("Cart token validation failed: {}", e.getMessage());
-
-            // Determine if token is expired or just invalid
-            String errorMessage = e.getMessage().toLowerCase().contains("expired") ?
-                    "Token has expired" : "Invalid token";
-            return new TokenValidationResult(false, null, errorMessage);
-
-        } catch (Exception e) {
-            logger.error("Unexpected error during token validation: {}", e.getMessage(), e);
-            return new TokenValidationResult(false, null, "Token validation failed");
+    private List<GrantedAuthority> buildAuthorities(CartUserModel user) {
+        // Normalize role format for Spring Security
+        String role = user.getRole();
+        if (role != null && !role.startsWith("ROLE_")) {
+            role = "ROLE_" + role;
         }
+
+        return List.of(new SimpleGrantedAuthority(role));
     }
 
     /**
-     * Handle cases where no token is provided
+     * Verify JWT token once and return the verification result
      */
-    private void handleMissingToken(HttpServletResponse response, String requestURI) throws IOException {
-        logger.debug("No authentication token provided for: {}", requestURI);
-        handleAuthenticationError(response, "Authentication token required", HttpStatus.UNAUTHORIZED);
+    private TokenVerificationResult validateToken(String jwt) {
+        try {
+            return cartJwtPersistencePort.verifyToken(jwt);
+        } catch (Exception e) {
+            logger.error("Unexpected error during token validation: {}", e.getMessage(), e);
+            return TokenVerificationResult.invalid("Token validation failed");
+        }
     }
 
     /**
-     * Handle invalid token scenarios
+     * Reject with a pre-serialized 401 body; logging is rate-limited
      */
-    private void handleInvalidToken(HttpServletRequest request, HttpServletResponse response,
-                                    TokenValidationResult validationResult) throws IOException {
-        String requestURI = request.getRequestURI();
-        String errorMessage = validationResult.getErrorMessage();
-
-        logger.warn("Invalid token for cart service request to {}: {}", requestURI, errorMessage);
-
-        // Determine appropriate HTTP status
-        HttpStatus status = HttpStatus.UNAUTHORIZED;
-        if (errorMessage.contains("expired")) {
-            status = HttpStatus.UNAUTHORIZED; // 401 for expired tokens
-        } else if (errorMessage.contains("invalid")) {
-            status = HttpStatus.UNAUTHORIZED; // 401 for invalid tokens
+    private void reject(HttpServletResponse response, String requestURI,
+                        AuthenticationRejection rejection, Outcome outcome) throws IOException {
+        authenticationMetrics.recordOutcome(outcome);
+
+        if (rejectionLogLimiter.tryAcquire()) {
+            long suppressed = rejectionLogLimiter.drainSuppressed();
+            if (suppressed > 0) {
+                logger.warn("Rejected cart service request to {}: {} ({} similar rejections not logged)",
+                        requestURI, rejection.getErrorCode(), suppressed);
+            } else {
+                logger.warn("Rejected cart service request to {}: {}", requestURI, rejection.getErrorCode());
+            }
         }
 
-        handleAuthenticationError(response, errorMessage, status);
+        response.setStatus(rejection.getStatus().value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        ServletOutputStream out = response.getOutputStream();
+        out.write(AuthenticationRejection.bodyPrefix());
+        out.write(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                .getBytes(StandardCharsets.US_ASCII));
+        out.write(rejection.bodySuffix());
     }
 
     /**
@@ -205,16 +248,7 @@ public class JwtCartAuthenticationFilter extends OncePerRequestFilter {
         errorResponse.put("path", "cart-authentication");
         errorResponse.put("service", "cart-service");
 
-        // Add specific error codes for client handling
-        if (message.contains("expired")) {
-            errorResponse.put("errorCode", "TOKEN_EXPIRED");
-        } else if (message.contains("invalid")) {
-            errorResponse.put("errorCode", "INVALID_TOKEN");
-        } else if (message.contains("required")) {
-            errorResponse.put("errorCode", "TOKEN_REQUIRED");
-        } else {
-            errorResponse.put("errorCode", "AUTHENTICATION_FAILED");
-        }
+        errorResponse.put("errorCode", "AUTHENTICATION_FAILED");
 
         String jsonResponse = objectMapper.writeValueAsString(errorResponse);
         response.getWriter().write(jsonResponse);
@@ -234,41 +268,31 @@ public class JwtCartAuthenticationFilter extends OncePerRequestFilter {
     }
 
     /**
-     * Check if the request path is public (doesn't require authentication)
+     * Cheap structural check: three base64url segments separated by two dots
      */
-    private boolean isPublicPath(String requestURI) {
-        for (String publicPath : PUBLIC_PATHS) {
-            if (requestURI.startsWith(publicPath)) {
-                return true;
+    private boolean looksLikeJws(String token) {
+        int length = token.length();
+        if (length == 0 || length > MAX_TOKEN_LENGTH) {
+            return false;
+        }
+
+        int dots = 0;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c == '.') {
+                dots++;
+            } else if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '=')) {
+                return false;
             }
         }
-        return false;
+        return dots == 2;
     }
 
     /**
-     * Inner class to hold token validation results
+     * Check if the request path is public (doesn't require authentication)
      */
-    private static class TokenValidationResult {
-        private final boolean valid;
-        private final CartUserModel user;
-        private final String errorMessage;
-
-        public TokenValidationResult(boolean valid, CartUserModel user, String errorMessage) {
-            this.valid = valid;
-            this.user = user;
-            this.errorMessage = errorMessage;
-        }
-
-        public boolean isValid() {
-            return valid;
-        }
-
-        public CartUserModel getUser() {
-            return user;
-        }
-
-        public String getErrorMessage() {
-            return errorMessage;
-        }
+    private boolean isPublicPath(String requestURI) {
+        return PUBLIC_PATH_MATCHER.matches(requestURI);
     }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.rockburger.cartservice.configuration.security;
+
+import com.rockburger.cartservice.domain.model.TokenVerificationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the authentication filter.
+ * All meters are registered up front, so recording on the request path is a map
+ * lookup plus an atomic update with no per-request tag allocation.
+ *
+ * cart.auth.requests{outcome}      - one count per authenticated or rejected request
+ * cart.auth.extraction             - reading the bearer token from the request
+ * cart.auth.verification{outcome}  - signature check and claims parsing (cache misses only)
+ * cart.auth.authorities            - building the granted authorities
+ */
+@Component
+public class JwtCartAuthenticationMetrics {
+
+    public enum Outcome {
+        VALID("valid"),
+        EXPIRED("expired"),
+        BAD_SIGNATURE("bad_signature"),
+        MALFORMED("malformed"),
+        MISSING("missing"),
+        REVOKED("revoked"),
+        INVALID("invalid");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        public static Outcome of(TokenVerificationResult.Status status) {
+            switch (status) {
+                case VALID:
+                    return VALID;
+                case EXPIRED:
+                    return EXPIRED;
+                case BAD_SIGNATURE:
+                    return BAD_SIGNATURE;
+                case MALFORMED:
+                    return MALFORMED;
+                default:
+                    return INVALID;
+            }
+        }
+    }
+
+    private final Map<Outcome, Counter> requestCounters = new EnumMap<>(Outcome.class);
+    private final Map<Outcome, Timer> verificationTimers = new EnumMap<>(Outcome.class);
+    private final Timer extractionTimer;
+    private final Timer authoritiesTimer;
+
+    public JwtCartAuthenticationMetrics(MeterRegistry meterRegistry) {
+        for (Outcome outcome : Outcome.values()) {
+            requestCounters.put(outcome, Counter.builder("cart.auth.requests")
+                    .description("Authentication attempts by outcome")
+                    .tag("outcome", outcome.tag)
+                    .register(meterRegistry));
+            verificationTimers.put(outcome, Timer.builder("cart.auth.verification")
+                    .description("JWT signature verification and claims parsing")
+                    .tag("outcome", outcome.tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+
+        this.extractionTimer = Timer.builder("cart.auth.extraction")
+                .description("Bearer token extraction from the request")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.authoritiesTimer = Timer.builder("cart.auth.authorities")
+                .description("Granted authority construction")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void recordOutcome(Outcome outcome) {
+        requestCounters.get(outcome).increment();
+    }
+
+    public void recordExtraction(long nanos) {
+        extractionTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordVerification(TokenVerificationResult.Status status, long nanos) {
+        verificationTimers.get(Outcome.of(status)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAuthorities(long nanos) {
+        authoritiesTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
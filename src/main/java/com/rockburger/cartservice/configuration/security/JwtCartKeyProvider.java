@@ -1,29 +1,103 @@
 package com.rockburger.cartservice.configuration.security;
 
-import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.PublicKey;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Holds the signing keys and the JWT parser built from the configured secret.
+ * The parser is created once at startup; it is immutable and thread-safe, so every
+ * request thread shares the same instance. Keys are resolved per token from the
+ * current key ring by the header "kid", and the ring can be swapped atomically at
+ * runtime without blocking request threads.
+ *
+ * Public keys (RS256/ES256) loaded from a JWKS file take precedence for their kid.
+ * They are decoded once per load and handed to the parser ready to use, so the
+ * per-token cost is the signature check itself.
+ */
 @Component
 public class JwtCartKeyProvider {
+    private static final Logger logger = LoggerFactory.getLogger(JwtCartKeyProvider.class);
 
-    private final String jwtSecret;
+    private final SecretKey signingKey;
+    private final AtomicReference<JwtCartKeyRing> keyRing;
+    private final AtomicReference<Map<String, PublicKey>> publicKeys;
+    private final JwtParser jwtParser;
 
     public JwtCartKeyProvider(String jwtCartSecretKey) {
-        this.jwtSecret = jwtCartSecretKey;
+        this.signingKey = decodeKey(jwtCartSecretKey);
+        this.keyRing = new AtomicReference<>(JwtCartKeyRing.single(signingKey));
+        this.publicKeys = new AtomicReference<>(Map.of());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        String kid = header.getKeyId();
+                        if (kid != null) {
+                            PublicKey publicKey = publicKeys.get().get(kid);
+                            if (publicKey != null) {
+                                return publicKey;
+                            }
+                        }
+                        return keyRing.get().resolve(kid);
+                    }
+                })
+                .build();
     }
 
-    public SecretKey getSigningKey(String secret) {
-        // Use the configured secret if no specific secret provided
-        if (secret == null || secret.isEmpty()) {
-            secret = jwtSecret;
-        }
+    public JwtParser getJwtParser() {
+        return jwtParser;
+    }
+
+    public JwtCartKeyRing getKeyRing() {
+        return keyRing.get();
+    }
+
+    /**
+     * Load the key ring file and swap it in atomically.
+     * Returns true when a previously trusted key was removed or replaced.
+     */
+    public boolean reloadKeyRing(Path keyRingFile) throws IOException {
+        JwtCartKeyRing loaded = JwtCartKeyRing.load(keyRingFile, signingKey);
+        JwtCartKeyRing previous = keyRing.getAndSet(loaded);
+
+        boolean keysRemoved = !loaded.trustsAllOf(previous);
+        logger.info("Loaded JWT key ring from {} with {} key(s): {}", keyRingFile, loaded.size(), loaded.getKeyIds());
+        return keysRemoved;
+    }
+
+    /**
+     * Load public keys from a JWKS file and swap them in atomically.
+     * Returns true when a previously trusted public key was removed or replaced.
+     */
+    public boolean reloadJwks(Path jwksFile) throws IOException {
+        Map<String, PublicKey> loaded = Map.copyOf(JwksKeyLoader.load(jwksFile));
+        Map<String, PublicKey> previous = publicKeys.getAndSet(loaded);
+
+        boolean keysRemoved = previous.entrySet().stream()
+                .anyMatch(entry -> !entry.getValue().equals(loaded.get(entry.getKey())));
+        logger.info("Loaded {} public key(s) from JWKS {}: {}", loaded.size(), jwksFile, loaded.keySet());
+        return keysRemoved;
+    }
 
+    private static SecretKey decodeKey(String secret) {
         byte[] keyBytes = Base64.getDecoder().decode(secret.getBytes(StandardCharsets.UTF_8));
         return Keys.hmacShaKeyFor(keyBytes);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,118 @@
+package com.rockburger.cartservice.configuration.security;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.security.Keys;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Immutable set of verification keys indexed by the JWT header "kid".
+ * Tokens without a kid are verified with the default key, so exactly one key
+ * (and one signature check) is used per token, however many keys are loaded.
+ *
+ * Key ring file format (java.util.Properties):
+ * <pre>
+ * default.kid=2024-06
+ * 2024-06=base64-encoded-hmac-secret
+ * 2024-01=base64-encoded-hmac-secret
+ * </pre>
+ */
+public final class JwtCartKeyRing {
+
+    static final String DEFAULT_KID_PROPERTY = "default.kid";
+
+    private final Map<String, Key> keysById;
+    private final Key defaultKey;
+
+    public JwtCartKeyRing(Map<String, Key> keysById, Key defaultKey) {
+        this.keysById = Collections.unmodifiableMap(new HashMap<>(keysById));
+        this.defaultKey = defaultKey;
+    }
+
+    /**
+     * Ring holding only the configured secret, used when no key ring file is set
+     */
+    public static JwtCartKeyRing single(Key defaultKey) {
+        return new JwtCartKeyRing(Collections.emptyMap(), defaultKey);
+    }
+
+    /**
+     * Load a ring from a properties file; tokens without a kid fall back to the given key
+     * unless the file names its own default.
+     */
+    public static JwtCartKeyRing load(Path file, Key fallbackDefaultKey) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+
+        Map<String, Key> keys = new HashMap<>();
+        for (String kid : properties.stringPropertyNames()) {
+            if (DEFAULT_KID_PROPERTY.equals(kid)) {
+                continue;
+            }
+            String secret = properties.getProperty(kid).trim();
+            keys.put(kid, Keys.hmacShaKeyFor(Base64.getDecoder().decode(secret.getBytes(StandardCharsets.UTF_8))));
+        }
+
+        Key defaultKey = fallbackDefaultKey;
+        String defaultKid = properties.getProperty(DEFAULT_KID_PROPERTY);
+        if (defaultKid != null && !defaultKid.isBlank()) {
+            defaultKey = keys.get(defaultKid.trim());
+            if (defaultKey == null) {
+                throw new IllegalArgumentException("Default kid '" + defaultKid + "' not present in key ring " + file);
+            }
+        }
+
+        return new JwtCartKeyRing(keys, defaultKey);
+    }
+
+    /**
+     * Resolve the single key that verifies a token with the given kid
+     */
+    public Key resolve(String kid) {
+        if (kid == null) {
+            return defaultKey;
+        }
+
+        Key key = keysById.get(kid);
+        if (key == null) {
+            throw new JwtException("Unknown signing key id: " + kid);
+        }
+        return key;
+    }
+
+    /**
+     * True when every key trusted by the other ring is still trusted, unchanged, by this one
+     */
+    public boolean trustsAllOf(JwtCartKeyRing other) {
+        if (!defaultKey.equals(other.defaultKey)) {
+            return false;
+        }
+        for (Map.Entry<String, Key> entry : other.keysById.entrySet()) {
+            if (!entry.getValue().equals(keysById.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Set<String> getKeyIds() {
+        return keysById.keySet();
+    }
+
+    public int size() {
+        return keysById.size();
+    }
+}
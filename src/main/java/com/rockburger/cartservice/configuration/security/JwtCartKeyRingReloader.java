@@ -0,0 +1,111 @@
+package com.rockburger.cartservice.configuration.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Watches the local key ring file and JWKS document and swaps in new keys when
+ * either changes, so signing keys can be rotated without restarting the service.
+ */
+@Component
+public class JwtCartKeyRingReloader {
+    private static final Logger logger = LoggerFactory.getLogger(JwtCartKeyRingReloader.class);
+
+    private final JwtCartKeyProvider jwtCartKeyProvider;
+    private final JwtCartTokenCache jwtCartTokenCache;
+    private final Path keyRingFile;
+    private final Path jwksFile;
+
+    private volatile long keyRingLastModified = -1L;
+    private volatile long jwksLastModified = -1L;
+
+    public JwtCartKeyRingReloader(JwtCartKeyProvider jwtCartKeyProvider,
+                                  JwtCartTokenCache jwtCartTokenCache,
+                                  @Value("${jwt.keyring.file:}") String keyRingFile,
+                                  @Value("${jwt.jwks.file:}") String jwksFile) {
+        this.jwtCartKeyProvider = jwtCartKeyProvider;
+        this.jwtCartTokenCache = jwtCartTokenCache;
+        this.keyRingFile = keyRingFile.isBlank() ? null : Paths.get(keyRingFile);
+        this.jwksFile = jwksFile.isBlank() ? null : Paths.get(jwksFile);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (keyRingFile == null && jwksFile == null) {
+            logger.info("No JWT key ring or JWKS file configured, using the single configured secret");
+            return;
+        }
+        reloadIfChanged();
+    }
+
+    /**
+     * Poll the file modification times and reload whichever changed
+     */
+    @Scheduled(fixedDelayString = "${jwt.keyring.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        if (keyRingFile != null) {
+            reloadKeyRing();
+        }
+        if (jwksFile != null) {
+            reloadJwks();
+        }
+    }
+
+    private void reloadKeyRing() {
+        try {
+            if (!Files.exists(keyRingFile)) {
+                logger.warn("JWT key ring file {} not found, keeping current keys", keyRingFile);
+                return;
+            }
+
+            long modified = Files.getLastModifiedTime(keyRingFile).toMillis();
+            if (modified == keyRingLastModified) {
+                return;
+            }
+
+            boolean keysRemoved = jwtCartKeyProvider.reloadKeyRing(keyRingFile);
+            keyRingLastModified = modified;
+            onKeysLoaded(keysRemoved);
+        } catch (Exception e) {
+            logger.error("Failed to reload JWT key ring from {}, keeping current keys: {}",
+                    keyRingFile, e.getMessage());
+        }
+    }
+
+    private void reloadJwks() {
+        try {
+            if (!Files.exists(jwksFile)) {
+                logger.warn("JWKS file {} not found, keeping current public keys", jwksFile);
+                return;
+            }
+
+            long modified = Files.getLastModifiedTime(jwksFile).toMillis();
+            if (modified == jwksLastModified) {
+                return;
+            }
+
+            boolean keysRemoved = jwtCartKeyProvider.reloadJwks(jwksFile);
+            jwksLastModified = modified;
+            onKeysLoaded(keysRemoved);
+        } catch (Exception e) {
+            logger.error("Failed to reload JWKS from {}, keeping current public keys: {}",
+                    jwksFile, e.getMessage());
+        }
+    }
+
+    private void onKeysLoaded(boolean keysRemoved) {
+        // Tokens verified with a retired key must be verified again
+        if (keysRemoved) {
+            logger.info("JWT signing keys were retired, clearing verified token cache");
+            jwtCartTokenCache.invalidateAll();
+        }
+    }
+}
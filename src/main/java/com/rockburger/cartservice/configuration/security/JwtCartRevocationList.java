@@ -0,0 +1,158 @@
+package com.rockburger.cartservice.configuration.security;
+
+import com.rockburger.cartservice.domain.spi.ICartTokenRevocationPersistencePort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of revoked tokens from cart_sessions.jwt_token_hash.
+ * A Bloom filter answers the common "not revoked" case without touching the
+ * exact set; positives are confirmed against the exact set, so there are no
+ * false rejections. Requests never query the database: the view is refreshed
+ * incrementally in the background and rebuilt periodically to drop expired entries.
+ */
+@Component
+public class JwtCartRevocationList {
+    private static final Logger logger = LoggerFactory.getLogger(JwtCartRevocationList.class);
+
+    private static final int SHA256_HEX_LENGTH = 64;
+    private static final long REFRESH_OVERLAP_SECONDS = 60;
+    private static final LocalDateTime FULL_LOAD_SINCE = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ICartTokenRevocationPersistencePort revocationPersistencePort;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final long rebuildIntervalMs;
+
+    private volatile Snapshot snapshot;
+    private volatile LocalDateTime lastRefreshStart;
+    private volatile long lastRebuildMillis;
+
+    public JwtCartRevocationList(ICartTokenRevocationPersistencePort revocationPersistencePort,
+                                 @Value("${jwt.revocation.enabled:true}") boolean enabled,
+                                 @Value("${jwt.revocation.expected-insertions:100000}") long expectedInsertions,
+                                 @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                 @Value("${jwt.revocation.rebuild-interval-ms:3600000}") long rebuildIntervalMs) {
+        this.revocationPersistencePort = revocationPersistencePort;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildIntervalMs = rebuildIntervalMs;
+        this.snapshot = new Snapshot(new RevokedTokenBloomFilter(expectedInsertions, falsePositiveRate));
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            refresh();
+        }
+    }
+
+    /**
+     * Check whether a token hash has been revoked, without any database access
+     */
+    public boolean isRevoked(String tokenHash) {
+        if (!enabled) {
+            return false;
+        }
+
+        Snapshot current = snapshot;
+        return current.bloomFilter.mightContain(tokenHash) && current.exact.contains(tokenHash);
+    }
+
+    /**
+     * Pull newly revoked hashes; periodically rebuild from scratch so expired ones are dropped
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-interval-ms:5000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            if (lastRefreshStart == null || System.currentTimeMillis() - lastRebuildMillis >= rebuildIntervalMs) {
+                rebuild();
+            } else {
+                applyChanges();
+            }
+        } catch (Exception e) {
+            logger.error("Failed to refresh revoked token list, keeping current view: {}", e.getMessage());
+        }
+    }
+
+    public int size() {
+        return snapshot.exact.size();
+    }
+
+    private void applyChanges() {
+        LocalDateTime refreshStart = LocalDateTime.now();
+        // Overlap the previous window so rows committed late are not missed; adds are idempotent
+        LocalDateTime since = lastRefreshStart.minusSeconds(REFRESH_OVERLAP_SECONDS);
+
+        List<String> hashes = revocationPersistencePort.findRevokedTokenHashesSince(since);
+        Snapshot current = snapshot;
+        int added = 0;
+        for (String hash : hashes) {
+            if (current.add(hash)) {
+                added++;
+            }
+        }
+
+        lastRefreshStart = refreshStart;
+        if (added > 0) {
+            logger.debug("Added {} revoked token(s), {} tracked", added, current.exact.size());
+        }
+    }
+
+    private void rebuild() {
+        LocalDateTime refreshStart = LocalDateTime.now();
+        List<String> hashes = revocationPersistencePort.findRevokedTokenHashesSince(FULL_LOAD_SINCE);
+
+        Snapshot rebuilt = new Snapshot(new RevokedTokenBloomFilter(
+                Math.max(expectedInsertions, hashes.size() * 2L), falsePositiveRate));
+        hashes.forEach(rebuilt::add);
+
+        // Swap atomically; readers see either the old or the new view, never a partial one
+        snapshot = rebuilt;
+        lastRefreshStart = refreshStart;
+        lastRebuildMillis = System.currentTimeMillis();
+        logger.info("Rebuilt revoked token list with {} entries", rebuilt.exact.size());
+    }
+
+    private static final class Snapshot {
+        private final RevokedTokenBloomFilter bloomFilter;
+        private final Set<String> exact = ConcurrentHashMap.newKeySet();
+
+        private Snapshot(RevokedTokenBloomFilter bloomFilter) {
+            this.bloomFilter = bloomFilter;
+        }
+
+        private boolean add(String hash) {
+            if (hash == null || hash.length() != SHA256_HEX_LENGTH) {
+                return false;
+            }
+            String normalized = hash.toLowerCase(Locale.ROOT);
+            try {
+                // Exact set first, so a Bloom hit is always backed by the set
+                boolean added = exact.add(normalized);
+                bloomFilter.put(normalized);
+                return added;
+            } catch (NumberFormatException e) {
+                exact.remove(normalized);
+                logger.debug("Ignoring malformed revoked token hash: {}", hash);
+                return false;
+            }
+        }
+    }
+}
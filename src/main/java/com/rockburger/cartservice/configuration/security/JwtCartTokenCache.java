@@ -0,0 +1,164 @@
+package com.rockburger.cartservice.configuration.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.rockburger.cartservice.domain.model.CartUserModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of already verified tokens.
+ * Entries are keyed by the SHA-256 hex digest of the token (the raw token is never stored)
+ * and expire no later than the token's own "exp" claim, so a hit can safely skip
+ * signature verification and claims parsing.
+ */
+@Component
+public class JwtCartTokenCache {
+    private static final Logger logger = LoggerFactory.getLogger(JwtCartTokenCache.class);
+
+    private final boolean enabled;
+    private final long maxTtlNanos;
+    private final Cache<String, CachedAuthentication> cache;
+
+    public JwtCartTokenCache(@Value("${jwt.cache.enabled:true}") boolean enabled,
+                             @Value("${jwt.cache.max-size:10000}") long maxSize,
+                             @Value("${jwt.cache.max-ttl-seconds:300}") long maxTtlSeconds,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.token.cache");
+        logger.info("JWT token cache {} (max size: {}, max ttl: {}s)",
+                enabled ? "enabled" : "disabled", maxSize, maxTtlSeconds);
+    }
+
+    /**
+     * Return the cached authentication for the token hash, or null on a miss
+     */
+    public CachedAuthentication get(String tokenHash) {
+        if (!enabled) {
+            return null;
+        }
+
+        CachedAuthentication cached = cache.getIfPresent(tokenHash);
+        // Guard against the small window between expiry and eviction
+        if (cached != null && cached.isExpired()) {
+            return null;
+        }
+        return cached;
+    }
+
+    public void put(String tokenHash, CartUserModel user, List<? extends GrantedAuthority> authorities,
+                    Instant expiresAt) {
+        if (!enabled) {
+            return;
+        }
+
+        // Tokens without an exp claim are cached for the configured maximum only
+        long now = System.currentTimeMillis();
+        long maxTtlMillis = TimeUnit.NANOSECONDS.toMillis(maxTtlNanos);
+        long expiresAtMillis = expiresAt != null
+                ? Math.min(expiresAt.toEpochMilli(), now + maxTtlMillis)
+                : now + maxTtlMillis;
+
+        if (expiresAtMillis <= now) {
+            return;
+        }
+
+        cache.put(tokenHash, new CachedAuthentication(user, List.copyOf(authorities), expiresAtMillis));
+    }
+
+    public void invalidate(String tokenHash) {
+        cache.invalidate(tokenHash);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    /**
+     * Expires each entry at its token's expiration time
+     */
+    private static class TokenExpiry implements Expiry<String, CachedAuthentication> {
+        @Override
+        public long expireAfterCreate(String key, CachedAuthentication value, long currentTime) {
+            long remainingMillis = value.getExpiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedAuthentication value, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedAuthentication value, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Resolved user and authorities for a verified token
+     */
+    public static class CachedAuthentication {
+        private final CartUserModel user;
+        private final List<GrantedAuthority> authorities;
+        private final long expiresAtMillis;
+
+        public CachedAuthentication(CartUserModel user, List<GrantedAuthority> authorities, long expiresAtMillis) {
+            this.user = user;
+            this.authorities = authorities;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAtMillis;
+        }
+
+        public CartUserModel getUser() {
+            return user;
+        }
+
+        public List<GrantedAuthority> getAuthorities() {
+            return authorities;
+        }
+
+        public long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+    }
+}
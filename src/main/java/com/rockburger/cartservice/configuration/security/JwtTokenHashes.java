@@ -0,0 +1,24 @@
+package com.rockburger.cartservice.configuration.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 token digests, in the lowercase hex form stored in cart_sessions.jwt_token_hash.
+ */
+public final class JwtTokenHashes {
+    private JwtTokenHashes() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static String sha256Hex(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.rockburger.cartservice.configuration.security;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefix matcher for unauthenticated paths, compiled once.
+ * Prefixes are grouped by their first path segment, so a protected request such
+ * as /cart/items costs one segment extraction and one hash lookup instead of a
+ * startsWith test against every public prefix.
+ */
+final class PublicPathMatcher {
+
+    private final Map<String, String[]> prefixesBySegment;
+
+    PublicPathMatcher(String... publicPaths) {
+        Map<String, List<String>> grouped = new HashMap<>();
+        for (String path : publicPaths) {
+            grouped.computeIfAbsent(firstSegment(path), key -> new ArrayList<>()).add(path);
+        }
+
+        Map<String, String[]> compiled = new HashMap<>();
+        grouped.forEach((segment, paths) -> compiled.put(segment, paths.toArray(new String[0])));
+        this.prefixesBySegment = Map.copyOf(compiled);
+    }
+
+    boolean matches(String requestURI) {
+        if (requestURI == null) {
+            return false;
+        }
+
+        String[] candidates = prefixesBySegment.get(firstSegment(requestURI));
+        if (candidates == null) {
+            return false;
+        }
+        for (String prefix : candidates) {
+            if (requestURI.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * First path segment without slashes: "/swagger-ui/index.html" gives "swagger-ui"
+     */
+    private static String firstSegment(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.indexOf('/', start);
+        return end < 0 ? path.substring(start) : path.substring(start, end);
+    }
+}
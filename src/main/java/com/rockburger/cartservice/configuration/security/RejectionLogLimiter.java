@@ -0,0 +1,48 @@
+package com.rockburger.cartservice.configuration.security;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets through at most a fixed number of rejection log lines per time window,
+ * so floods of missing or bad tokens do not turn into floods of log writes.
+ * Suppressed lines are counted and reported with the next permitted line.
+ */
+class RejectionLogLimiter {
+
+    private final int maxPerWindow;
+    private final long windowNanos;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger permitted = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    RejectionLogLimiter(int maxPerWindow, long windowMillis) {
+        this.maxPerWindow = maxPerWindow;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    /**
+     * Returns true when the caller may log now
+     */
+    boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            permitted.set(0);
+        }
+
+        if (permitted.incrementAndGet() <= maxPerWindow) {
+            return true;
+        }
+        suppressed.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Number of log lines suppressed since the last call
+     */
+    long drainSuppressed() {
+        return suppressed.getAndSet(0);
+    }
+}
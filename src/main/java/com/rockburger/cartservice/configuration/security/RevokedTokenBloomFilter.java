@@ -0,0 +1,64 @@
+package com.rockburger.cartservice.configuration.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over SHA-256 hex token hashes.
+ * The hashes are already uniformly distributed, so bit positions are derived
+ * directly from them (double hashing) without hashing again. Bits are set through
+ * an AtomicLongArray so the refresh thread can add while request threads read.
+ */
+class RevokedTokenBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashFunctions;
+
+    RevokedTokenBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(expectedInsertions, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (m + 63) / 64);
+
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    void put(String tokenHash) {
+        long h1 = firstHash(tokenHash);
+        long h2 = secondHash(tokenHash);
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    boolean mightContain(String tokenHash) {
+        long h1 = firstHash(tokenHash);
+        long h2 = secondHash(tokenHash);
+        for (int i = 0; i < hashFunctions; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long firstHash(String tokenHash) {
+        return Long.parseUnsignedLong(tokenHash.substring(0, 16), 16);
+    }
+
+    private static long secondHash(String tokenHash) {
+        // Odd step so successive probes never collapse onto the same bit
+        return Long.parseUnsignedLong(tokenHash.substring(16, 32), 16) | 1L;
+    }
+}
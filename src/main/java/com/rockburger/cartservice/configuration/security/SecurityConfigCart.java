@@ -39,6 +39,7 @@ public class SecurityConfigCart {
                         "/v3/api-docs/**",
                         "/swagger-resources/**",
                         "/actuator/health",
+                        "/actuator/prometheus",
                         "/webjars/**").permitAll()
                 // Ensure both client and auxiliar roles can access cart endpoints
                 .antMatchers("/cart/**").hasAnyRole("client", "auxiliar")
@@ -3,6 +3,9 @@ package com.rockburger.cartservice.domain.api;
 import com.rockburger.cartservice.domain.model.CartModel;
 import com.rockburger.cartservice.domain.model.CartItemModel;
 
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
 public interface ICartServicePort {
     // Cart management
     CartModel createCart(String userId);
@@ -17,4 +20,8 @@ public interface ICartServicePort {
 
     // Cart retrieval
     CartModel getCartByUserAndStatus(String userId, String status);
+
+    // Maintenance
+    int cleanupExpiredCarts(BooleanSupplier stop); // Stops at the next chunk once stop returns true
+    int deleteCartsOfUsers(List<String> userIds); // Returns count of deleted carts
 }
\ No newline at end of file
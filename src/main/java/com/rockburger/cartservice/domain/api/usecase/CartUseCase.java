@@ -4,17 +4,23 @@ import com.rockburger.cartservice.domain.api.ICartServicePort;
 import com.rockburger.cartservice.domain.exception.*;
 import com.rockburger.cartservice.domain.model.CartModel;
 import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.spi.ICartItemPersistencePort;
 import com.rockburger.cartservice.domain.spi.ICartPersistencePort;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Propagation;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
-
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Cart operations. Transactions are not opened here: CartServiceTransactions gives every
+ * ICartServicePort operation exactly one transaction, which the persistence ports join,
+ * and runs a write that lost a version race again in a new one.
+ */
 public class CartUseCase implements ICartServicePort {
     private static final Logger logger = LoggerFactory.getLogger(CartUseCase.class);
     private static final String ACTIVE_STATUS = "ACTIVE";
@@ -24,17 +30,18 @@ public class CartUseCase implements ICartServicePort {
     // Cart session management constants
     private static final int CART_EXPIRY_HOURS = 24; // Cart expires after 24 hours
     private static final int CART_WARNING_HOURS = 4; // Warn when cart will expire in 4 hours
-    private static final int MAX_RETRY_ATTEMPTS = 3; // Maximum retry attempts for optimistic locking
-    private static final long RETRY_BASE_DELAY_MS = 100; // Base delay for retries
+    private static final int USER_DELETE_CHUNK_SIZE = 500; // Users per set-based delete transaction
 
     private final ICartPersistencePort cartPersistencePort;
+    private final ICartItemPersistencePort cartItemPersistencePort;
 
-    public CartUseCase(ICartPersistencePort cartPersistencePort) {
+    public CartUseCase(ICartPersistencePort cartPersistencePort,
+                       ICartItemPersistencePort cartItemPersistencePort) {
         this.cartPersistencePort = cartPersistencePort;
+        this.cartItemPersistencePort = cartItemPersistencePort;
     }
 
     @Override
-    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
     public CartModel createCart(String userId) {
         validateUserId(userId);
         logger.info("Creating new cart for user: {}", userId);
@@ -42,6 +49,8 @@ public class CartUseCase implements ICartServicePort {
         try {
             // Use a more atomic approach to prevent race conditions
             return createCartWithAtomicCheck(userId);
+        } catch (ConcurrentCartModificationException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error creating new cart for user {}: {}", userId, e.getMessage(), e);
             throw new RuntimeException("Failed to create new cart", e);
@@ -52,43 +61,13 @@ public class CartUseCase implements ICartServicePort {
      * Atomic cart creation to prevent race conditions
      */
     private CartModel createCartWithAtomicCheck(String userId) {
-        // First, try to clean up any stale carts
-        try {
-            abandonStaleCartsForUser(userId);
-        } catch (Exception e) {
-            logger.warn("Failed to clean up stale carts for user {}: {}", userId, e.getMessage());
-            // Continue with cart creation even if cleanup fails
-        }
-
-        // Check for existing active cart after cleanup
-        Optional<CartModel> existingCart = cartPersistencePort.findByUserIdAndStatus(userId, ACTIVE_STATUS);
-        if (existingCart.isPresent()) {
-            CartModel cart = existingCart.get();
-
-            if (isCartStale(cart)) {
-                logger.info("Found stale cart for user {}, abandoning it", userId);
-                try {
-                    cart.abandon();
-                    cartPersistencePort.save(cart);
-                } catch (Exception e) {
-                    logger.warn("Failed to abandon stale cart for user {}: {}", userId, e.getMessage());
-                    // Create new cart anyway
-                }
-            } else {
-                logger.info("User {} already has an active cart with ID {}", userId, cart.getId());
-                return cart;
-            }
-        }
-
-        // Create new cart
-        CartModel newCart = new CartModel(userId);
-        CartModel savedCart = cartPersistencePort.save(newCart);
-        logger.info("Created new cart with ID {} for user {}", savedCart.getId(), userId);
-        return savedCart;
+        // Stale carts are abandoned and a missing cart is created in the same call
+        CartModel cart = cartPersistencePort.findOrCreateActive(userId);
+        logger.info("User {} has active cart with ID {}", userId, cart.getId());
+        return cart;
     }
 
     @Override
-    @Transactional(readOnly = true)
     public CartModel getActiveCart(String userId) {
         validateUserId(userId);
         logger.debug("Retrieving active cart for user: {}", userId);
@@ -102,15 +81,9 @@ public class CartUseCase implements ICartServicePort {
 
         CartModel cart = cartOptional.get();
 
-        // Check if cart is stale
+        // Reads don't write: the expiry sweep or the user's next cart operation abandons it
         if (isCartStale(cart)) {
-            logger.warn("Found stale cart for user {}, abandoning it", userId);
-            try {
-                cart.abandon();
-                cartPersistencePort.save(cart);
-            } catch (Exception e) {
-                logger.error("Failed to abandon stale cart: {}", e.getMessage());
-            }
+            logger.warn("Found stale cart for user {}", userId);
             throw new CartNotFoundException("Cart has expired, please create a new cart");
         }
 
@@ -124,7 +97,6 @@ public class CartUseCase implements ICartServicePort {
     }
 
     @Override
-    @Transactional(isolation = Isolation.READ_COMMITTED)
     public CartModel addItem(String userId, CartItemModel item) {
         validateUserId(userId);
         validateCartItem(item);
@@ -132,210 +104,68 @@ public class CartUseCase implements ICartServicePort {
         logger.info("Adding item to cart for user: {} - Article ID: {}, Name: {}, Quantity: {}",
                 userId, item.getArticleId(), item.getArticleName(), item.getQuantity());
 
-        return executeWithRetry(
-                () -> addItemWithRetry(userId, item),
-                "add item to cart",
-                userId
-        );
-    }
-
-    /**
-     * Execute operation with retry logic for optimistic locking failures
-     */
-    private <T> T executeWithRetry(SupplierWithException<T> operation, String operationName, String userId) {
-        Exception lastException = null;
-
-        for (int attempt = 1; attempt <= MAX_RETRY_ATTEMPTS; attempt++) {
-            try {
-                return operation.get();
-            } catch (ConcurrentCartModificationException e) {
-                lastException = e;
-                if (attempt == MAX_RETRY_ATTEMPTS) {
-                    logger.error("Failed to {} after {} attempts due to concurrent modification for user {}",
-                            operationName, MAX_RETRY_ATTEMPTS, userId);
-                    break;
-                }
-
-                logger.warn("Optimistic locking failure on attempt {} for user {} during {}, retrying...",
-                        attempt, userId, operationName);
-
-                try {
-                    long delay = RETRY_BASE_DELAY_MS * attempt; // Progressive delay
-                    Thread.sleep(delay);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Interrupted while retrying cart operation", ie);
-                }
-            } catch (CartNotFoundException | CartItemNotFoundException | DuplicateArticleException e) {
-                // These exceptions should not be retried
-                throw e;
-            } catch (Exception e) {
-                logger.error("Error during {} for user {} on attempt {}: {}", operationName, userId, attempt, e.getMessage(), e);
-                throw new RuntimeException("Failed to " + operationName + ": " + e.getMessage(), e);
+        // Common case: the active cart takes the item in one guarded UPDATE, one read and one INSERT
+        Optional<CartModel> cart = cartItemPersistencePort.addItem(userId, item);
+        if (cart.isEmpty()) {
+            // No fresh active cart, or it is full: abandon a stale cart or create a missing one, then try once more
+            CartModel activeCart = cartPersistencePort.findOrCreateActive(userId);
+            if (activeCart.getItemCount() >= CartModel.MAX_ITEMS_PER_CART) {
+                throw new InvalidCartOperationException(
+                        "Cart has reached maximum item limit (" + CartModel.MAX_ITEMS_PER_CART + ")");
             }
+            cart = cartItemPersistencePort.addItem(userId, item);
         }
 
-        throw new RuntimeException("Unable to " + operationName + " due to concurrent modifications. Please try again.");
-    }
-
-    private CartModel addItemWithRetry(String userId, CartItemModel item) {
-        logger.debug("Attempting to add item for user: {}", userId);
-
-        // Get or create cart with proper synchronization
-        CartModel cart = getOrCreateCartForOperation(userId);
-
-        // Validate cart state before adding item
-        validateCartForOperation(cart, userId);
-
-        // Check if item already exists in cart
-        boolean itemExists = cart.getItems().stream()
-                .anyMatch(existingItem -> existingItem.getArticleId().equals(item.getArticleId()));
-
-        if (itemExists) {
-            logger.warn("Item with article ID {} already exists in cart for user {}", item.getArticleId(), userId);
-            throw new DuplicateArticleException("Item already exists in cart. Use update quantity instead.");
-        }
-
-        // Add item to cart
-        cart.addItem(item);
-
-        // Save and verify the cart
-        CartModel updatedCart = cartPersistencePort.save(cart);
-
-        // Additional verification
-        if (updatedCart.getItems().isEmpty()) {
-            logger.error("CRITICAL: Cart appears empty after save operation for user {}. This indicates a persistence issue.", userId);
-            throw new RuntimeException("Failed to persist cart items properly");
-        }
-
+        CartModel updatedCart = cart.orElseThrow(() -> new ConcurrentCartModificationException(
+                "Cart was modified by another session. Please refresh and try again."));
         logger.info("Item successfully added to cart for user {}. Cart now has {} items",
-                userId, updatedCart.getItems().size());
-
+                userId, updatedCart.getItemCount());
         return updatedCart;
     }
 
-    /**
-     * Get or create cart for operations with proper error handling
-     */
-    private CartModel getOrCreateCartForOperation(String userId) {
-        try {
-            return getActiveCartWithSessionValidation(userId);
-        } catch (CartNotFoundException e) {
-            logger.info("No active cart found for user {}, creating a new one", userId);
-            return createCartForImmediateUse(userId);
-        }
-    }
-
-    /**
-     * Create a cart for immediate use with proper error handling
-     */
-    private CartModel createCartForImmediateUse(String userId) {
-        try {
-            // Clean up stale carts first
-            abandonStaleCartsForUser(userId);
-
-            // Double-check for existing cart after cleanup
-            Optional<CartModel> existingCart = cartPersistencePort.findByUserIdAndStatus(userId, ACTIVE_STATUS);
-            if (existingCart.isPresent()) {
-                CartModel cart = existingCart.get();
-                if (!isCartStale(cart)) {
-                    logger.info("Found existing active cart for user {} during creation", userId);
-                    return cart;
-                }
-            }
-
-            // Create and save new cart
-            CartModel newCart = new CartModel(userId);
-            CartModel savedCart = cartPersistencePort.save(newCart);
-            logger.info("Created new cart with ID {} for immediate use by user {}", savedCart.getId(), userId);
-
-            return savedCart;
-
-        } catch (Exception e) {
-            logger.error("Error creating cart for immediate use for user {}: {}", userId, e.getMessage(), e);
-            throw new RuntimeException("Failed to create cart for immediate use", e);
-        }
-    }
-
     @Override
-    @Transactional(isolation = Isolation.READ_COMMITTED)
     public CartModel updateItemQuantity(String userId, Long articleId, int quantity) {
         validateUserId(userId);
+        validateArticleId(articleId);
         validateQuantity(quantity);
+        if (quantity > CartModel.MAX_ITEM_QUANTITY) {
+            throw new InvalidParameterException("Quantity cannot exceed " + CartModel.MAX_ITEM_QUANTITY);
+        }
         logger.info("Updating item quantity for user: {} and article: {} to quantity: {}", userId, articleId, quantity);
 
-        return executeWithRetry(
-                () -> updateItemQuantityWithRetry(userId, articleId, quantity),
-                "update item quantity",
-                userId
-        );
-    }
-
-    private CartModel updateItemQuantityWithRetry(String userId, Long articleId, int quantity) {
-        CartModel cart = getActiveCartWithSessionValidation(userId);
-        validateCartForOperation(cart, userId);
-
-        cart.updateItemQuantity(articleId, quantity);
+        // Written by user and article without reading the cart first, so there is no stale version to retry
+        CartModel cart = cartItemPersistencePort.updateItemQuantity(userId, articleId, quantity);
 
-        CartModel updatedCart = cartPersistencePort.save(cart);
         logger.info("Successfully updated item quantity for user {}", userId);
-        return updatedCart;
+        return cart;
     }
 
     @Override
-    @Transactional(isolation = Isolation.READ_COMMITTED)
     public CartModel removeItem(String userId, Long articleId) {
         validateUserId(userId);
         validateArticleId(articleId);
         logger.info("Removing item from cart for user: {} and article: {}", userId, articleId);
 
-        return executeWithRetry(
-                () -> removeItemWithRetry(userId, articleId),
-                "remove item from cart",
-                userId
-        );
-    }
-
-    private CartModel removeItemWithRetry(String userId, Long articleId) {
-        CartModel cart = getActiveCartWithSessionValidation(userId);
-        validateCartForOperation(cart, userId);
-
-        // Check if item exists before attempting removal
-        boolean itemExists = cart.getItems().stream()
-                .anyMatch(item -> item.getArticleId().equals(articleId));
-
-        if (!itemExists) {
-            logger.warn("Attempt to remove non-existent item {} from cart for user {}", articleId, userId);
-            throw new CartItemNotFoundException("Article not found in cart");
-        }
-
-        cart.removeItem(articleId);
+        CartModel cart = cartItemPersistencePort.removeItem(userId, articleId);
 
-        CartModel updatedCart = cartPersistencePort.save(cart);
         logger.info("Successfully removed item from cart for user {}", userId);
-        return updatedCart;
+        return cart;
     }
 
     @Override
-    @Transactional(isolation = Isolation.READ_COMMITTED)
     public void clearCart(String userId) {
         validateUserId(userId);
         logger.info("Clearing cart for user: {}", userId);
 
         try {
-            executeWithRetry(
-                    () -> {
-                        CartModel cart = getActiveCartWithSessionValidation(userId);
-                        cart.clear();
-                        cartPersistencePort.save(cart);
-                        return null;
-                    },
-                    "clear cart",
-                    userId
-            );
+            CartModel cart = getActiveCartWithSessionValidation(userId);
+            cart.clear();
+            cartPersistencePort.save(cart);
             logger.info("Successfully cleared cart for user {}", userId);
         } catch (CartNotFoundException e) {
             logger.info("No active cart found for user {}, nothing to clear", userId);
+        } catch (ConcurrentCartModificationException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error clearing cart for user {}: {}", userId, e.getMessage(), e);
             throw new RuntimeException("Failed to clear cart", e);
@@ -343,25 +173,19 @@ public class CartUseCase implements ICartServicePort {
     }
 
     @Override
-    @Transactional(isolation = Isolation.READ_COMMITTED)
     public void abandonCart(String userId) {
         validateUserId(userId);
         logger.info("Abandoning cart for user: {}", userId);
 
         try {
-            executeWithRetry(
-                    () -> {
-                        CartModel cart = getActiveCartWithSessionValidation(userId);
-                        cart.abandon();
-                        cartPersistencePort.save(cart);
-                        return null;
-                    },
-                    "abandon cart",
-                    userId
-            );
+            CartModel cart = getActiveCartWithSessionValidation(userId);
+            cart.abandon();
+            cartPersistencePort.save(cart);
             logger.info("Successfully abandoned cart for user {}", userId);
         } catch (CartNotFoundException e) {
             logger.info("No active cart found for user {}, nothing to abandon", userId);
+        } catch (ConcurrentCartModificationException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error abandoning cart for user {}: {}", userId, e.getMessage(), e);
             throw new RuntimeException("Failed to abandon cart", e);
@@ -369,7 +193,6 @@ public class CartUseCase implements ICartServicePort {
     }
 
     @Override
-    @Transactional(readOnly = true)
     public CartModel getCartByUserAndStatus(String userId, String status) {
         validateUserId(userId);
         validateStatus(status);
@@ -381,50 +204,12 @@ public class CartUseCase implements ICartServicePort {
     }
 
     /**
-     * Get active cart with enhanced session validation
+     * Get the active cart to change. The persistence port doesn't return an expired
+     * active cart, so a stale session ends up here as CartNotFoundException too.
      */
     private CartModel getActiveCartWithSessionValidation(String userId) {
-        Optional<CartModel> cartOptional = cartPersistencePort.findByUserIdAndStatus(userId, ACTIVE_STATUS);
-
-        if (cartOptional.isEmpty()) {
-            throw new CartNotFoundException("No active cart found for user");
-        }
-
-        CartModel cart = cartOptional.get();
-
-        // Enhanced session validation
-        if (isCartStale(cart)) {
-            logger.warn("Cart for user {} is stale (last updated: {}), abandoning it",
-                    userId, cart.getLastUpdated());
-            try {
-                cart.abandon();
-                cartPersistencePort.save(cart);
-            } catch (Exception e) {
-                logger.error("Failed to abandon stale cart during validation: {}", e.getMessage());
-            }
-            throw new CartNotFoundException("Cart session has expired, please create a new cart");
-        }
-
-        return cart;
-    }
-
-    /**
-     * Validate cart state before performing operations
-     */
-    private void validateCartForOperation(CartModel cart, String userId) {
-        if (cart == null) {
-            throw new CartNotFoundException("Cart not found");
-        }
-
-        if (!ACTIVE_STATUS.equals(cart.getStatus())) {
-            logger.warn("Attempt to operate on non-active cart for user {}, status: {}", userId, cart.getStatus());
-            throw new InvalidCartOperationException("Cart is not active");
-        }
-
-        if (isCartStale(cart)) {
-            logger.warn("Attempt to operate on stale cart for user {}", userId);
-            throw new InvalidCartOperationException("Cart session has expired");
-        }
+        return cartPersistencePort.findByUserIdAndStatus(userId, ACTIVE_STATUS)
+                .orElseThrow(() -> new CartNotFoundException("No active cart found for user"));
     }
 
     /**
@@ -452,47 +237,31 @@ public class CartUseCase implements ICartServicePort {
     }
 
     /**
-     * Abandon stale carts for a user
+     * Delete the carts of many users (e.g. erasure requests) in chunks of users.
+     * Runs without a transaction: each chunk commits on its own, so a failure keeps the chunks already deleted.
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void abandonStaleCartsForUser(String userId) {
-        try {
-            Optional<CartModel> activeCartOpt = cartPersistencePort.findByUserIdAndStatus(userId, ACTIVE_STATUS);
-
-            if (activeCartOpt.isPresent()) {
-                CartModel activeCart = activeCartOpt.get();
+    @Override
+    public int deleteCartsOfUsers(List<String> userIds) {
+        userIds.forEach(this::validateUserId);
+        List<String> distinctUserIds = userIds.stream().distinct().collect(Collectors.toList());
 
-                if (isCartStale(activeCart)) {
-                    logger.info("Abandoning stale cart for user {}", userId);
-                    activeCart.abandon();
-                    cartPersistencePort.save(activeCart);
-                }
-            }
-        } catch (Exception e) {
-            logger.warn("Error abandoning stale carts for user {}: {}", userId, e.getMessage());
+        int deletedCarts = 0;
+        for (int from = 0; from < distinctUserIds.size(); from += USER_DELETE_CHUNK_SIZE) {
+            int to = Math.min(from + USER_DELETE_CHUNK_SIZE, distinctUserIds.size());
+            deletedCarts += cartPersistencePort.deleteByUserIds(distinctUserIds.subList(from, to));
         }
+
+        logger.info("Deleted {} cart(s) for {} user(s)", deletedCarts, distinctUserIds.size());
+        return deletedCarts;
     }
 
     /**
-     * Cleanup expired carts (can be called by scheduled task)
+     * Cleanup expired carts (called by the scheduled sweep).
+     * Runs without a transaction: the persistence port commits each chunk separately.
      */
-    @Transactional
-    public int cleanupExpiredCarts() {
-        logger.info("Starting cleanup of expired carts");
-
-        try {
-            LocalDateTime cutoffTime = LocalDateTime.now().minusHours(CART_EXPIRY_HOURS);
-
-            // This would require additional repository method
-            // For now, we'll log the intent
-            logger.info("Would cleanup carts older than {}", cutoffTime);
-
-            // TODO: Implement batch cleanup in repository
-            return 0;
-        } catch (Exception e) {
-            logger.error("Error during cart cleanup: {}", e.getMessage(), e);
-            return 0;
-        }
+    @Override
+    public int cleanupExpiredCarts(BooleanSupplier stop) {
+        return cartPersistencePort.cleanupExpiredCarts(stop);
     }
 
     /**
@@ -539,12 +308,4 @@ public class CartUseCase implements ICartServicePort {
             throw new InvalidParameterException("Invalid status: " + status);
         }
     }
-
-    /**
-     * Functional interface for operations that can throw exceptions
-     */
-    @FunctionalInterface
-    private interface SupplierWithException<T> {
-        T get() throws Exception;
-    }
 }
\ No newline at end of file
@@ -7,8 +7,11 @@ import com.rockburger.cartservice.domain.exception.InvalidParameterException;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 public class CartModel {
@@ -23,6 +26,12 @@ public class CartModel {
     private Integer version; // For optimistic locking
     private Boolean expiryWarningSent; // NEW FIELD from migration
 
+    // Item changes since the cart was loaded or last saved, by article ID
+    private final Set<Long> addedArticleIds = new LinkedHashSet<>();
+    private final Set<Long> changedArticleIds = new LinkedHashSet<>();
+    private final Set<Long> removedArticleIds = new LinkedHashSet<>();
+    private Integer persistedVersion; // Version of the stored row the changes apply to
+
     // Status constants
     private static final String ACTIVE_STATUS = "ACTIVE";
     private static final String ABANDONED_STATUS = "ABANDONED";
@@ -31,7 +40,8 @@ public class CartModel {
     // Session management constants
     private static final int MAX_CART_AGE_HOURS = 24;
     private static final int SESSION_WARNING_HOURS = 4;
-    private static final int MAX_ITEMS_PER_CART = 50;
+    public static final int MAX_ITEMS_PER_CART = 50;
+    public static final int MAX_ITEM_QUANTITY = 999;
 
     // Default constructor for frameworks
     public CartModel() {
@@ -122,6 +132,7 @@ public class CartModel {
         }
 
         items.add(newItem);
+        trackAdded(newItem.getArticleId());
         updateTotalAndTimestamp();
     }
 
@@ -139,14 +150,15 @@ public class CartModel {
             throw new InvalidParameterException("Quantity must be greater than zero");
         }
 
-        if (newQuantity > 999) {
-            throw new InvalidParameterException("Quantity cannot exceed 999");
+        if (newQuantity > MAX_ITEM_QUANTITY) {
+            throw new InvalidParameterException("Quantity cannot exceed " + MAX_ITEM_QUANTITY);
         }
 
         CartItemModel item = findItemByArticleId(articleId)
                 .orElseThrow(() -> new CartItemNotFoundException("Article not found in cart (ID: " + articleId + ")"));
 
         item.updateQuantity(newQuantity);
+        trackChanged(articleId);
         updateTotalAndTimestamp();
     }
 
@@ -164,6 +176,7 @@ public class CartModel {
         if (!removed) {
             throw new CartItemNotFoundException("Article not found in cart (ID: " + articleId + ")");
         }
+        trackRemoved(articleId);
         updateTotalAndTimestamp();
     }
 
@@ -172,6 +185,7 @@ public class CartModel {
      */
     public void clear() {
         validateCartStatus();
+        items.forEach(item -> trackRemoved(item.getArticleId()));
         items.clear();
         updateTotalAndTimestamp();
     }
@@ -214,6 +228,62 @@ public class CartModel {
         this.version++;
     }
 
+    private void trackAdded(Long articleId) {
+        // Removed and added back in the same unit of work: the stored line is rewritten
+        if (removedArticleIds.remove(articleId)) {
+            changedArticleIds.add(articleId);
+        } else {
+            addedArticleIds.add(articleId);
+        }
+    }
+
+    private void trackChanged(Long articleId) {
+        if (!addedArticleIds.contains(articleId)) {
+            changedArticleIds.add(articleId);
+        }
+    }
+
+    private void trackRemoved(Long articleId) {
+        // Added and removed again before saving: nothing to persist
+        if (!addedArticleIds.remove(articleId)) {
+            changedArticleIds.remove(articleId);
+            removedArticleIds.add(articleId);
+        }
+    }
+
+    /**
+     * Replace items with the stored ones, without touching total, version or change tracking
+     */
+    public void restoreItems(List<CartItemModel> items) {
+        this.items = items != null ? new ArrayList<>(items) : new ArrayList<>();
+    }
+
+    /**
+     * Record that the cart now matches the stored row and forget tracked item changes
+     */
+    public void markPersisted() {
+        addedArticleIds.clear();
+        changedArticleIds.clear();
+        removedArticleIds.clear();
+        this.persistedVersion = version;
+    }
+
+    /**
+     * Whether the cart has a stored baseline that item changes can be applied to
+     */
+    public boolean isTracked() {
+        return id != null && persistedVersion != null;
+    }
+
+    public boolean hasItemChanges() {
+        return !addedArticleIds.isEmpty() || !changedArticleIds.isEmpty() || !removedArticleIds.isEmpty();
+    }
+
+    public Set<Long> getAddedArticleIds() { return Collections.unmodifiableSet(addedArticleIds); }
+    public Set<Long> getChangedArticleIds() { return Collections.unmodifiableSet(changedArticleIds); }
+    public Set<Long> getRemovedArticleIds() { return Collections.unmodifiableSet(removedArticleIds); }
+    public Integer getPersistedVersion() { return persistedVersion; }
+
     /**
      * Find item by article ID
      */
@@ -350,7 +420,9 @@ public class CartModel {
         return items != null ? new ArrayList<>(items) : new ArrayList<>();
     }
     public void setItems(List<CartItemModel> items) {
+        this.items.forEach(item -> trackRemoved(item.getArticleId()));
         this.items = items != null ? new ArrayList<>(items) : new ArrayList<>();
+        this.items.forEach(item -> trackAdded(item.getArticleId()));
         updateTotalAndTimestamp();
     }
 
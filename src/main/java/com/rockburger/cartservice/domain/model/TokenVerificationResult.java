@@ -0,0 +1,58 @@
+package com.rockburger.cartservice.domain.model;
+
+import java.time.Instant;
+
+/**
+ * Outcome of a single JWT verification: the status plus the resolved user when valid.
+ */
+public class TokenVerificationResult {
+
+    public enum Status {
+        VALID,
+        EXPIRED,
+        BAD_SIGNATURE,
+        MALFORMED,
+        INVALID
+    }
+
+    private final Status status;
+    private final CartUserModel user;
+    private final String errorMessage;
+    private final Instant expiresAt; // Token "exp" claim, null when absent
+
+    private TokenVerificationResult(Status status, CartUserModel user, String errorMessage, Instant expiresAt) {
+        this.status = status;
+        this.user = user;
+        this.errorMessage = errorMessage;
+        this.expiresAt = expiresAt;
+    }
+
+    public static TokenVerificationResult valid(CartUserModel user, Instant expiresAt) {
+        return new TokenVerificationResult(Status.VALID, user, null, expiresAt);
+    }
+
+    public static TokenVerificationResult expired() {
+        return new TokenVerificationResult(Status.EXPIRED, null, "Token has expired", null);
+    }
+
+    public static TokenVerificationResult badSignature() {
+        return new TokenVerificationResult(Status.BAD_SIGNATURE, null, "Invalid token signature", null);
+    }
+
+    public static TokenVerificationResult malformed() {
+        return new TokenVerificationResult(Status.MALFORMED, null, "Malformed token", null);
+    }
+
+    public static TokenVerificationResult invalid(String errorMessage) {
+        return new TokenVerificationResult(Status.INVALID, null, errorMessage, null);
+    }
+
+    public boolean isValid() { return status == Status.VALID; }
+    public boolean isExpired() { return status == Status.EXPIRED; }
+
+    // Getters
+    public Status getStatus() { return status; }
+    public CartUserModel getUser() { return user; }
+    public String getErrorMessage() { return errorMessage; }
+    public Instant getExpiresAt() { return expiresAt; }
+}
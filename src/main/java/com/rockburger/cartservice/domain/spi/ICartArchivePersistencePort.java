@@ -0,0 +1,11 @@
+package com.rockburger.cartservice.domain.spi;
+
+import java.time.LocalDateTime;
+import java.util.function.BooleanSupplier;
+
+// Cold storage for carts that can no longer change
+public interface ICartArchivePersistencePort {
+    // Move ABANDONED and COMPLETED carts last updated before the cutoff, with their items, to the archive; returns carts moved.
+    // Stops at the next chunk once stop returns true.
+    int archiveTerminalCarts(LocalDateTime olderThan, BooleanSupplier stop);
+}
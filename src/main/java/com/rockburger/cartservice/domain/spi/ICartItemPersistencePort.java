@@ -0,0 +1,20 @@
+package com.rockburger.cartservice.domain.spi;
+
+import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.model.CartModel;
+
+import java.util.Optional;
+
+// Item-level writes that change a single cart line without loading the cart
+public interface ICartItemPersistencePort {
+    // Insert the item into the user's active cart and return the cart; duplicates are rejected by the unique key.
+    // Empty when the user has no fresh active cart with room for another line
+    Optional<CartModel> addItem(String userId, CartItemModel item);
+
+    // Set a line's quantity in the user's fresh active cart and return the cart.
+    // Throws CartNotFoundException or CartItemNotFoundException when there is no such cart or line
+    CartModel updateItemQuantity(String userId, Long articleId, int quantity);
+
+    // Delete a line from the user's fresh active cart and return the cart, failing as updateItemQuantity does
+    CartModel removeItem(String userId, Long articleId);
+}
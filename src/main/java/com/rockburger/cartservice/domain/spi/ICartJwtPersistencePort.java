@@ -1,6 +1,7 @@
 package com.rockburger.cartservice.domain.spi;
 
 import com.rockburger.cartservice.domain.model.CartUserModel;
+import com.rockburger.cartservice.domain.model.TokenVerificationResult;
 
 // Cart-specific JWT persistence port
 public interface ICartJwtPersistencePort {
@@ -8,4 +9,7 @@ public interface ICartJwtPersistencePort {
     String getUserEmailFromToken(String token);
     String getUserRoleFromToken(String token);
     boolean isTokenValid(String token);
-}
\ No newline at end of file
+
+    // Single-pass verification: one signature check and claims parse per token
+    TokenVerificationResult verifyToken(String token);
+}
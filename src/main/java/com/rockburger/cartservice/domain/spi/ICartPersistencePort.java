@@ -1,18 +1,33 @@
 package com.rockburger.cartservice.domain.spi;
 
 import com.rockburger.cartservice.domain.model.CartModel;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
 
 public interface ICartPersistencePort {
     // Basic CRUD operations
     CartModel save(CartModel cartModel);
     Optional<CartModel> findByUserIdAndStatus(String userId, String status);
     void deleteByUserId(String userId);
+    int deleteByUserIds(Collection<String> userIds); // Returns count of deleted carts
+
+    // Active cart for the user, abandoning a stale one and creating a new one as needed
+    CartModel findOrCreateActive(String userId);
+
+    // Whether the user's active cart is still the given cart at the given version
+    boolean isActiveCartAt(String userId, Long cartId, Integer version);
 
     // Cart status operations
     boolean existsByUserIdAndStatus(String userId, String status);
     void updateCartStatus(String userId, String oldStatus, String newStatus);
 
     // Enhanced maintenance operations - UPDATED
-    int cleanupExpiredCarts(); // Returns count of cleaned carts
+    int cleanupExpiredCarts(BooleanSupplier stop); // Returns count of cleaned carts; checks stop before each chunk
+
+    // Counts over every stored cart
+    long countByStatus(String status);
+    long countActiveCartsSince(LocalDateTime since);
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.rockburger.cartservice.domain.spi;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Source of revoked (logged-out) token hashes
+public interface ICartTokenRevocationPersistencePort {
+    // SHA-256 hex hashes of tokens revoked since the given time that have not expired yet
+    List<String> findRevokedTokenHashesSince(LocalDateTime since);
+}
@@ -0,0 +1,13 @@
+package com.rockburger.cartservice.domain.spi;
+
+// Named leases shared by all service instances, so a maintenance job runs on one node at a time
+public interface IMaintenanceLeasePersistencePort {
+    // Take the lease if it is free, expired or already ours; true when the caller now holds it
+    boolean tryAcquire(String leaseName, String ownerId, int ttlSeconds);
+
+    // Extend a lease the caller still holds; false when another node has taken it over
+    boolean renew(String leaseName, String ownerId, int ttlSeconds);
+
+    // Give the lease up early so another node does not have to wait for it to expire
+    void release(String leaseName, String ownerId);
+}
@@ -0,0 +1,241 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapperImpl;
+import com.rockburger.cartservice.configuration.CartServiceTransactions;
+import com.rockburger.cartservice.configuration.datasource.ReadYourWritesGuard;
+import com.rockburger.cartservice.domain.api.ICartServicePort;
+import com.rockburger.cartservice.domain.api.usecase.CartUseCase;
+import com.rockburger.cartservice.domain.exception.CartNotFoundException;
+import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.model.CartModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Active cart reads answered by ActiveCartCache, checked against the stored version once
+ * past the staleness bound, and every write, this node's or another's, seen by the next
+ * read after that bound. Most tests use a bound of zero, so every hit is checked.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Import({CartAdapter.class, CartItemAdapter.class, CartCleanupMetrics.class, ReadYourWritesGuard.class,
+        SimpleMeterRegistry.class, ICartEntityMapperImpl.class, ICartItemEntityMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CachingCartAdapterTest {
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    private CartAdapter cartAdapter;
+
+    @Autowired
+    private CartItemAdapter cartItemAdapter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ActiveCartCache cache;
+    private CachingCartAdapter cachingCartAdapter;
+    private ICartServicePort cartService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        useCache(0);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void repeatedReadsOnlyCheckTheVersion() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L, 2));
+
+        statements(1, () -> cartService.getActiveCart(userId));
+        // The active cart's id and version instead of the cart joined with its items
+        CartModel cart = statements(1, () -> cartService.getActiveCart(userId));
+        assertEquals(2, cart.getItems().get(0).getQuantity());
+
+        // Callers get copies, so changing one does not change the cache
+        cart.updateItemQuantity(1L, 9);
+        assertEquals(2, cartService.getActiveCart(userId).getItems().get(0).getQuantity());
+
+        assertEquals(2, cache.getStats().hitCount());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "cart.active.cache").tag("result", "hit")
+                .functionCounter().count());
+        assertTrue(cache.getStats().missCount() > 0);
+    }
+
+    @Test
+    void writesAreSeenOnTheNextRead() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L, 2));
+        cartService.getActiveCart(userId);
+
+        // Guarded total update, joined read and insert; the returned cart replaces the cached copy
+        statements(3, () -> cartService.addItem(userId, burger(2L, 1)));
+        assertEquals(2, statements(1, () -> cartService.getActiveCart(userId)).getItems().size());
+
+        // Guarded total update, line update and the cart read back, which replaces the cached copy
+        statements(3, () -> cartService.updateItemQuantity(userId, 1L, 5));
+        CartModel updated = statements(1, () -> cartService.getActiveCart(userId));
+        assertEquals(5, updated.findItemByArticleId(1L).orElseThrow().getQuantity());
+        assertEquals(30.0, updated.getTotal());
+
+        statements(3, () -> cartService.removeItem(userId, 2L));
+        assertEquals(25.0, statements(1, () -> cartService.getActiveCart(userId)).getTotal());
+
+        // Saves write through, so the cleared cart is read from the cache
+        cartService.clearCart(userId);
+        CartModel cleared = statements(1, () -> cartService.getActiveCart(userId));
+        assertTrue(cleared.getItems().isEmpty());
+
+        cartService.abandonCart(userId);
+        assertThrows(CartNotFoundException.class, () -> cartService.getActiveCart(userId));
+    }
+
+    @Test
+    void anotherNodesWritesAreSeenOnTheNextRead() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L, 2));
+        cartService.getActiveCart(userId);
+
+        // Another node changes the line through its own cache, which this one never hears of
+        jdbcTemplate.update("UPDATE cart_items SET quantity = 4, subtotal = 20 WHERE article_id = 1 " +
+                "AND cart_id = (SELECT id FROM carts WHERE user_id = ?)", userId);
+        jdbcTemplate.update("UPDATE carts SET total = 20, version = version + 1 WHERE user_id = ?", userId);
+
+        // The version check misses, then the cart is read through and cached again
+        CartModel changed = statements(2, () -> cartService.getActiveCart(userId));
+        assertEquals(4, changed.getItems().get(0).getQuantity());
+        assertEquals(20.0, changed.getTotal());
+        assertEquals(20.0, statements(1, () -> cartService.getActiveCart(userId)).getTotal());
+
+        // Nor is a cart the other node abandoned served
+        jdbcTemplate.update("UPDATE carts SET status = 'ABANDONED', version = version + 1 WHERE user_id = ?", userId);
+        assertThrows(CartNotFoundException.class, () -> cartService.getActiveCart(userId));
+    }
+
+    @Test
+    void confirmedHitsSendNoSqlUntilTheStalenessBound() {
+        useCache(300);
+        String userId = newUser();
+        // The cart the write returns is cached as confirmed
+        cartService.addItem(userId, burger(1L, 2));
+        assertEquals(10.0, statements(0, () -> cartService.getActiveCart(userId)).getTotal());
+
+        // Another node's write goes unseen until the bound has passed
+        jdbcTemplate.update("UPDATE carts SET total = 20, version = version + 1 WHERE user_id = ?", userId);
+        assertEquals(10.0, statements(0, () -> cartService.getActiveCart(userId)).getTotal());
+        sleep(400);
+
+        // The version check misses and the cart is read through, then confirmed again
+        assertEquals(20.0, statements(2, () -> cartService.getActiveCart(userId)).getTotal());
+        assertEquals(20.0, statements(0, () -> cartService.getActiveCart(userId)).getTotal());
+        sleep(400);
+
+        // A check that matches confirms the entry for another bound
+        statements(1, () -> cartService.getActiveCart(userId));
+        statements(0, () -> cartService.getActiveCart(userId));
+    }
+
+    @Test
+    void rolledBackSaveIsNotCached() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L, 2));
+        cartService.getActiveCart(userId);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            CartModel cart = cachingCartAdapter.findOrCreateActive(userId);
+            cart.clear();
+            cachingCartAdapter.save(cart);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, cartService.getActiveCart(userId).getItems().size());
+    }
+
+    @Test
+    void readStartedBeforeAWriteIsNotCached() {
+        String userId = newUser();
+        CartModel before = cartService.createCart(userId);
+        CartModel after = cartService.addItem(userId, burger(1L, 2));
+        cartService.getActiveCart(userId);
+
+        // An older version never replaces a newer one
+        cache.putIfNewer(before, cache.startRead());
+        assertEquals(after.getVersion(), cache.get(userId).orElseThrow().getVersion());
+
+        // Nor is a read cached if the cart was written while it ran
+        long readStamp = cache.startRead();
+        cartService.updateItemQuantity(userId, 1L, 3);
+        cache.putIfNewer(after, readStamp);
+        assertEquals(3, cartService.getActiveCart(userId).getItems().get(0).getQuantity());
+    }
+
+    private void useCache(long maxStalenessMs) {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ActiveCartCache(100, maxStalenessMs, meterRegistry);
+        cachingCartAdapter = new CachingCartAdapter(cartAdapter, cache);
+        cartService = CartServiceTransactions.transactional(
+                new CartUseCase(cachingCartAdapter, new CachingCartItemAdapter(cartItemAdapter, cache)),
+                transactionManager);
+    }
+
+    /**
+     * Run the operation and check the number of JDBC statements it sent
+     */
+    private <T> T statements(long statements, Supplier<T> operation) {
+        statistics.clear();
+        T result = operation.get();
+        assertEquals(statements, statistics.getPrepareStatementCount(), "statements");
+        return result;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String newUser() {
+        return "cached-" + USERS.incrementAndGet() + "@rockburger.com";
+    }
+
+    private static CartItemModel burger(Long articleId, int quantity) {
+        return new CartItemModel(articleId, "Classic Burger", quantity, 5.0);
+    }
+}
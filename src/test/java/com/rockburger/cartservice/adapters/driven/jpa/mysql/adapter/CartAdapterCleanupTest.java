@@ -0,0 +1,139 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapper;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapper;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartItemRepository;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartRepository;
+import com.rockburger.cartservice.configuration.datasource.ReadYourWritesGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The expired cart sweep commits one chunk at a time, so it runs without a test transaction
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import({ReadYourWritesGuard.class, ICartEntityMapperImpl.class, ICartItemEntityMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartAdapterCleanupTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Autowired
+    private ICartRepository cartRepository;
+
+    @Autowired
+    private ICartItemRepository cartItemRepository;
+
+    @Autowired
+    private ICartEntityMapper cartEntityMapper;
+
+    @Autowired
+    private ICartItemEntityMapper cartItemEntityMapper;
+
+    @Autowired
+    private ReadYourWritesGuard readYourWritesGuard;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MeterRegistry meterRegistry;
+    // Gauges hold their state weakly, so the metrics are kept for the whole test
+    private CartCleanupMetrics cleanupMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cleanupMetrics = new CartCleanupMetrics(meterRegistry);
+        jdbcTemplate.update("DELETE FROM cart_items");
+        jdbcTemplate.update("DELETE FROM carts");
+    }
+
+    @Test
+    void sweepAbandonsInChunksAndSkipsCartsTouchedSinceTheRead() {
+        List<Long> expired = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expired.add(storeActiveCart("expired-" + i + "@rockburger.com", 30 - i));
+        }
+        Long fresh = storeActiveCart("fresh@rockburger.com", 1);
+
+        // The user of the second oldest cart adds an item between the first read and its update
+        AtomicInteger reads = new AtomicInteger();
+        List<Double> abandonedBeforeEachRead = new ArrayList<>();
+        ICartRepository repository = mock(ICartRepository.class, delegatesTo(cartRepository));
+        doAnswer(invocation -> {
+            abandonedBeforeEachRead.add(counter("cart.cleanup.abandoned"));
+            List<Long> ids = cartRepository.findExpiredActiveCartIds(
+                    invocation.getArgument(0), invocation.getArgument(1));
+            if (reads.incrementAndGet() == 1) {
+                jdbcTemplate.update("UPDATE carts SET last_updated = ? WHERE id = ?", LocalDateTime.now(), ids.get(1));
+            }
+            return ids;
+        }).when(repository).findExpiredActiveCartIds(any(LocalDateTime.class), any(Pageable.class));
+
+        assertEquals(4, sweeper(repository).cleanupExpiredCarts(() -> false));
+
+        // Chunks of 2 (one skipped), 2 and 1; the short chunk ends the sweep
+        assertEquals(3, reads.get());
+        assertEquals(List.of(0.0, 1.0, 3.0), abandonedBeforeEachRead);
+        assertEquals(3.0, counter("cart.cleanup.chunks"));
+        assertEquals(4.0, counter("cart.cleanup.abandoned"));
+        assertEquals(4.0, meterRegistry.get("cart.cleanup.last.abandoned").gauge().value());
+        assertEquals(3, meterRegistry.get("cart.cleanup.chunk.duration").timer().count());
+        assertEquals(1, meterRegistry.get("cart.cleanup.duration").timer().count());
+
+        assertEquals("ACTIVE", status(expired.get(1)));
+        assertEquals("ACTIVE", status(fresh));
+        for (Long id : List.of(expired.get(0), expired.get(2), expired.get(3), expired.get(4))) {
+            assertEquals("ABANDONED", status(id));
+        }
+    }
+
+    private CartAdapter sweeper(ICartRepository repository) {
+        return new CartAdapter(repository, cartItemRepository, cartEntityMapper, cartItemEntityMapper,
+                cleanupMetrics, readYourWritesGuard, transactionManager, BATCH_SIZE);
+    }
+
+    private Long storeActiveCart(String userId, int hoursSinceUpdate) {
+        CartEntity cart = new CartEntity(userId, "ACTIVE");
+        cart.setLastUpdated(LocalDateTime.now().minusHours(hoursSinceUpdate));
+        return cartRepository.saveAndFlush(cart).getId();
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    private String status(Long cartId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM carts WHERE id = ?", String.class, cartId);
+    }
+}
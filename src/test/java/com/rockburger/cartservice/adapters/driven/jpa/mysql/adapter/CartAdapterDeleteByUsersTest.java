@@ -0,0 +1,162 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartItemEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartRepository;
+import com.rockburger.cartservice.configuration.datasource.ReadYourWritesGuard;
+import com.rockburger.cartservice.domain.api.usecase.CartUseCase;
+import com.rockburger.cartservice.domain.spi.ICartItemPersistencePort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Carts of many users are deleted with two set-based statements per chunk of users.
+ * Runs without a test transaction, so every chunk commits on its own.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Import({CartAdapter.class, CartCleanupMetrics.class, ReadYourWritesGuard.class, SimpleMeterRegistry.class,
+        ICartEntityMapperImpl.class, ICartItemEntityMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartAdapterDeleteByUsersTest {
+
+    private static final String KEPT_USER = "kept@rockburger.com";
+
+    @Autowired
+    private CartAdapter cartAdapter;
+
+    @Autowired
+    private ICartRepository cartRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        jdbcTemplate.update("DELETE FROM cart_items");
+        jdbcTemplate.update("DELETE FROM carts");
+        storeCarts(KEPT_USER);
+    }
+
+    @Test
+    void cartsAndItemsOfTheUsersAreDeletedWithTwoStatements() {
+        storeCarts("first@rockburger.com");
+        storeCarts("second@rockburger.com");
+
+        statistics.clear();
+        assertEquals(4, cartAdapter.deleteByUserIds(List.of("first@rockburger.com", "second@rockburger.com")));
+
+        // Items first, then carts: cart_items.cart_id references carts, so the other order would fail
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getSuccessfulTransactionCount());
+        assertEquals(2, count("carts"));
+        assertEquals(3, count("cart_items"));
+        assertEquals(2, countOf(KEPT_USER));
+    }
+
+    @Test
+    void manyUsersAreDeletedInChunksOfFiveHundred() {
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            userIds.add("erased-" + i + "@rockburger.com");
+        }
+        storeCarts(userIds.get(0));
+        storeCarts(userIds.get(500));
+        storeCarts(userIds.get(1000));
+
+        CartUseCase cartUseCase = new CartUseCase(cartAdapter, mock(ICartItemPersistencePort.class));
+        statistics.clear();
+        assertEquals(6, cartUseCase.deleteCartsOfUsers(userIds));
+
+        // Chunks of 500, 500 and 1 users, each its own transaction of two statements
+        assertEquals(3, statistics.getSuccessfulTransactionCount());
+        assertEquals(6, statistics.getPrepareStatementCount());
+        assertEquals(2, count("carts"));
+        assertEquals(3, count("cart_items"));
+    }
+
+    @Test
+    void deletedCartsAreNotServedFromThePersistenceContext() {
+        Long cartId = storeCarts("loaded@rockburger.com");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(transaction -> {
+            CartEntity loaded = cartRepository.findById(cartId).orElseThrow();
+            assertTrue(entityManager.contains(loaded));
+
+            cartAdapter.deleteByUserId("loaded@rockburger.com");
+
+            assertFalse(entityManager.contains(loaded));
+            assertTrue(cartRepository.findById(cartId).isEmpty());
+        });
+        assertEquals(0, countOf("loaded@rockburger.com"));
+    }
+
+    /**
+     * One active cart with two items and one completed cart with one item; returns the active cart's id
+     */
+    private Long storeCarts(String userId) {
+        CartEntity active = cartRepository.saveAndFlush(cartWithItems(userId, "ACTIVE", 2));
+        cartRepository.saveAndFlush(cartWithItems(userId, "COMPLETED", 1));
+        return active.getId();
+    }
+
+    private CartEntity cartWithItems(String userId, String status, int items) {
+        CartEntity cart = new CartEntity(userId, status);
+        for (long articleId = 1; articleId <= items; articleId++) {
+            CartItemEntity item = new CartItemEntity();
+            item.setArticleId(articleId);
+            item.setArticleName("Classic Burger");
+            item.setQuantity(1);
+            item.setPrice(5.0);
+            cart.addItem(item);
+        }
+        return cart;
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private int countOf(String userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM carts WHERE user_id = ?", Integer.class, userId);
+    }
+}
@@ -0,0 +1,102 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartRepository;
+import com.rockburger.cartservice.configuration.datasource.ReadYourWritesGuard;
+import com.rockburger.cartservice.domain.model.CartModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pins the number of JDBC statements findOrCreateActive issues in each case
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({CartAdapter.class, CartCleanupMetrics.class, ReadYourWritesGuard.class, SimpleMeterRegistry.class,
+        ICartEntityMapperImpl.class, ICartItemEntityMapperImpl.class})
+class CartAdapterFindOrCreateActiveTest {
+
+    // UPDATE abandoning stale carts, then one SELECT joining the active cart's items
+    private static final long EXISTING_CART_STATEMENTS = 2;
+    // The same two statements, plus the INSERT of the new cart
+    private static final long NEW_CART_STATEMENTS = 3;
+
+    @Autowired
+    private CartAdapter cartAdapter;
+
+    @Autowired
+    private ICartRepository cartRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void createsCartForNewUser() {
+        CartModel cart = countStatements(() -> cartAdapter.findOrCreateActive("new@rockburger.com"));
+
+        assertTrue(cart.isActive());
+        assertEquals(NEW_CART_STATEMENTS, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void returnsExistingActiveCart() {
+        CartEntity existing = cartRepository.saveAndFlush(new CartEntity("active@rockburger.com", "ACTIVE"));
+        entityManager.clear();
+
+        CartModel cart = countStatements(() -> cartAdapter.findOrCreateActive("active@rockburger.com"));
+
+        assertEquals(existing.getId(), cart.getId());
+        assertEquals(EXISTING_CART_STATEMENTS, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void abandonsStaleCartAndCreatesNewOne() {
+        CartEntity stale = cartRepository.saveAndFlush(new CartEntity("stale@rockburger.com", "ACTIVE"));
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE carts SET last_updated = ?1 WHERE id = ?2")
+                .setParameter(1, LocalDateTime.now().minusHours(25))
+                .setParameter(2, stale.getId())
+                .executeUpdate();
+        entityManager.clear();
+
+        CartModel cart = countStatements(() -> cartAdapter.findOrCreateActive("stale@rockburger.com"));
+
+        assertNotEquals(stale.getId(), cart.getId());
+        assertEquals(NEW_CART_STATEMENTS, statistics.getPrepareStatementCount());
+        assertEquals("ABANDONED", cartRepository.findById(stale.getId()).orElseThrow().getStatus());
+    }
+
+    private CartModel countStatements(java.util.function.Supplier<CartModel> operation) {
+        statistics.clear();
+        return operation.get();
+    }
+}
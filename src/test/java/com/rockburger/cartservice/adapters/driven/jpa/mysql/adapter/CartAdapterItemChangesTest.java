@@ -0,0 +1,88 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartItemEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartItemRepository;
+import com.rockburger.cartservice.configuration.datasource.ReadYourWritesGuard;
+import com.rockburger.cartservice.domain.exception.ConcurrentCartModificationException;
+import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.model.CartModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Changed lines of a tracked cart are written together in one JDBC batch
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import({CartAdapter.class, CartCleanupMetrics.class, ReadYourWritesGuard.class, SimpleMeterRegistry.class,
+        ICartEntityMapperImpl.class, ICartItemEntityMapperImpl.class})
+class CartAdapterItemChangesTest {
+
+    private static final String USER = "batch@rockburger.com";
+
+    @Autowired
+    private CartAdapter cartAdapter;
+
+    @Autowired
+    private ICartItemRepository cartItemRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void changedLinesAreWrittenTogether() {
+        CartModel cart = storedCartWithThreeLines();
+        cart.updateItemQuantity(1L, 4);
+        cart.updateItemQuantity(2L, 5);
+
+        CartModel saved = cartAdapter.save(cart);
+        entityManager.clear();
+
+        assertEquals(4, line(saved.getId(), 1L).getQuantity());
+        assertEquals(40.0, line(saved.getId(), 1L).getSubtotal());
+        assertEquals(5, line(saved.getId(), 2L).getQuantity());
+        assertEquals(100.0, line(saved.getId(), 2L).getSubtotal());
+        assertEquals(1, line(saved.getId(), 3L).getQuantity());
+    }
+
+    @Test
+    void missingChangedLineIsAConflict() {
+        CartModel cart = storedCartWithThreeLines();
+        cart.updateItemQuantity(1L, 4);
+        cart.updateItemQuantity(2L, 5);
+
+        // Another session removed one of the lines after this copy was loaded
+        entityManager.getEntityManager()
+                .createNativeQuery("DELETE FROM cart_items WHERE cart_id = ?1 AND article_id = 2")
+                .setParameter(1, cart.getId())
+                .executeUpdate();
+
+        assertThrows(ConcurrentCartModificationException.class, () -> cartAdapter.save(cart));
+    }
+
+    private CartModel storedCartWithThreeLines() {
+        CartModel cart = new CartModel(USER);
+        cart.addItem(new CartItemModel(1L, "Classic burger", 1, 10.0));
+        cart.addItem(new CartItemModel(2L, "Double burger", 1, 20.0));
+        cart.addItem(new CartItemModel(3L, "Fries", 1, 5.0));
+        cartAdapter.save(cart);
+        entityManager.clear();
+
+        return cartAdapter.findByUserIdAndStatus(USER, "ACTIVE").orElseThrow();
+    }
+
+    private CartItemEntity line(Long cartId, Long articleId) {
+        return cartItemRepository.findByCartIdAndArticleId(cartId, articleId).orElseThrow();
+    }
+}
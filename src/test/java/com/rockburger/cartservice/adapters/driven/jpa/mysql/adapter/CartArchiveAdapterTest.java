@@ -0,0 +1,190 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartItemEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartArchiveRepository;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Archival runs without a test transaction, so every chunk commits or rolls back on its own
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartArchiveAdapterTest {
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+    private static final int UNTHROTTLED = 1_000_000;
+    private static final BooleanSupplier NEVER_STOP = () -> false;
+
+    @Autowired
+    private ICartArchiveRepository cartArchiveRepository;
+
+    @Autowired
+    private ICartRepository cartRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private LocalDateTime cutoff;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        cutoff = LocalDateTime.now().minusDays(30);
+        jdbcTemplate.update("DELETE FROM cart_items");
+        jdbcTemplate.update("DELETE FROM carts");
+        jdbcTemplate.update("DELETE FROM cart_items_archive");
+        jdbcTemplate.update("DELETE FROM carts_archive");
+    }
+
+    @Test
+    void chunkIsCopiedAndDeletedInOneTransaction() {
+        storeCart("ABANDONED", 40, 2);
+        storeCart("COMPLETED", 40, 1);
+
+        statistics.clear();
+        assertEquals(2, archiver(10, UNTHROTTLED).archiveTerminalCarts(cutoff, NEVER_STOP));
+
+        // Ids, copy items, copy carts, delete items, delete carts
+        assertEquals(5, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getSuccessfulTransactionCount());
+        assertEquals(0, count("carts"));
+        assertEquals(0, count("cart_items"));
+        assertEquals(2, count("carts_archive"));
+        assertEquals(3, count("cart_items_archive"));
+    }
+
+    @Test
+    void cartsAreMovedInChunksOfTheBatchSize() {
+        for (int i = 0; i < 5; i++) {
+            storeCart("ABANDONED", 40, 1);
+        }
+        storeCart("ACTIVE", 40, 1);
+        storeCart("ABANDONED", 1, 1);
+
+        statistics.clear();
+        assertEquals(5, archiver(2, UNTHROTTLED).archiveTerminalCarts(cutoff, NEVER_STOP));
+
+        // Chunks of 2, 2 and 1; the short chunk ends the run
+        assertEquals(3, statistics.getSuccessfulTransactionCount());
+        assertEquals(5, count("carts_archive"));
+        assertEquals(5, count("cart_items_archive"));
+        // Active carts and terminal carts within the retention stay
+        assertEquals(2, count("carts"));
+        assertEquals(2, count("cart_items"));
+    }
+
+    @Test
+    void runStopsBeforeTheNextChunkOnceTold() {
+        for (int i = 0; i < 5; i++) {
+            storeCart("ABANDONED", 40, 1);
+        }
+
+        // The lease is lost while the first chunk runs
+        AtomicInteger checks = new AtomicInteger();
+        statistics.clear();
+        assertEquals(2, archiver(2, UNTHROTTLED).archiveTerminalCarts(cutoff, () -> checks.incrementAndGet() > 1));
+
+        assertEquals(1, statistics.getSuccessfulTransactionCount());
+        assertEquals(2, count("carts_archive"));
+        assertEquals(3, count("carts"));
+    }
+
+    @Test
+    void failedChunkRollsBackItsCopiesAndKeepsEarlierChunks() {
+        for (int i = 0; i < 4; i++) {
+            storeCart("ABANDONED", 40, 1);
+        }
+
+        AtomicInteger deletes = new AtomicInteger();
+        ICartArchiveRepository failing = mock(ICartArchiveRepository.class, delegatesTo(cartArchiveRepository));
+        doAnswer(invocation -> {
+            if (deletes.incrementAndGet() == 2) {
+                throw new IllegalStateException("connection lost");
+            }
+            return cartArchiveRepository.deleteCarts(invocation.getArgument(0));
+        }).when(failing).deleteCarts(anyList());
+
+        CartArchiveAdapter archiver = new CartArchiveAdapter(failing, transactionManager, 2, UNTHROTTLED);
+        assertThrows(IllegalStateException.class, () -> archiver.archiveTerminalCarts(cutoff, NEVER_STOP));
+
+        // The first chunk committed; the second one's copies and item deletes rolled back
+        assertEquals(2, count("carts_archive"));
+        assertEquals(2, count("cart_items_archive"));
+        assertEquals(2, count("carts"));
+        assertEquals(2, count("cart_items"));
+    }
+
+    @Test
+    void throttleKeepsTheRunUnderTheRowRate() {
+        for (int i = 0; i < 5; i++) {
+            storeCart("ABANDONED", 40, 1);
+        }
+
+        // Two carts and two items per chunk at 20 rows per second: 200 ms per full chunk
+        long start = System.nanoTime();
+        assertEquals(5, archiver(2, 20).archiveTerminalCarts(cutoff, NEVER_STOP));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // The last, short chunk ends the run without a pause
+        assertTrue(elapsedMs >= 400, "took " + elapsedMs + " ms");
+    }
+
+    private CartArchiveAdapter archiver(int batchSize, int maxRowsPerSecond) {
+        return new CartArchiveAdapter(cartArchiveRepository, transactionManager, batchSize, maxRowsPerSecond);
+    }
+
+    private void storeCart(String status, int daysSinceUpdate, int items) {
+        CartEntity cart = new CartEntity("archive-" + USERS.incrementAndGet() + "@rockburger.com", status);
+        cart.setLastUpdated(LocalDateTime.now().minusDays(daysSinceUpdate));
+        for (long articleId = 1; articleId <= items; articleId++) {
+            CartItemEntity item = new CartItemEntity();
+            item.setArticleId(articleId);
+            item.setArticleName("Classic Burger");
+            item.setQuantity(1);
+            item.setPrice(5.0);
+            cart.addItem(item);
+        }
+        cartRepository.saveAndFlush(cart);
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
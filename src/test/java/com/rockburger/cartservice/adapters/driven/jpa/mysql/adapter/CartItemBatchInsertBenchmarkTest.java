@@ -0,0 +1,163 @@
+package com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartItemEntity;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Table;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JDBC statements and latency to insert a cart with 1, 10 and 50 items, with IDENTITY item ids
+ * (one INSERT per item) versus pooled ids and batched INSERTs. Each batch is one round trip.
+ * In-memory H2 has no network hop, so against MySQL the round-trip counts matter more than the times.
+ * Run with ./gradlew benchmark
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartItemBatchInsertBenchmarkTest {
+
+    private static final int[] ITEM_COUNTS = {1, 10, 50};
+    private static final int WARMUP_CARTS = 200;
+    private static final int MEASURED_CARTS = 1_000;
+
+    private static final AtomicLong USER_SEQUENCE = new AtomicLong();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void identityVersusPooledBatchedInserts() {
+        for (int itemCount : ITEM_COUNTS) {
+            Result before = measure(itemCount, this::persistIdentityItems);
+            Result after = measure(itemCount, this::persistPooledItems);
+
+            System.out.printf("Cart insert with %2d item(s) - IDENTITY: %5.2f round trips, %7.1f us;"
+                            + " pooled + batched: %5.2f round trips, %7.1f us%n",
+                    itemCount, before.roundTrips, before.micros, after.roundTrips, after.micros);
+            // A single item pays one id block fetch every 50 carts; past that, batching must win
+            assertTrue(itemCount == 1 || after.roundTrips < before.roundTrips);
+        }
+    }
+
+    private void persistIdentityItems(CartEntity cart, int itemCount) {
+        for (int i = 0; i < itemCount; i++) {
+            IdentityCartItem item = new IdentityCartItem();
+            item.cartId = cart.getId();
+            item.articleId = (long) i;
+            item.quantity = 1;
+            entityManager.persist(item);
+        }
+    }
+
+    private void persistPooledItems(CartEntity cart, int itemCount) {
+        for (int i = 0; i < itemCount; i++) {
+            CartItemEntity item = new CartItemEntity();
+            item.setCart(cart);
+            item.setArticleId((long) i);
+            item.setArticleName("Article " + i);
+            item.setPrice(1.0);
+            item.setQuantity(1);
+            entityManager.persist(item);
+        }
+    }
+
+    private Result measure(int itemCount, BiConsumer<CartEntity, Integer> persistItems) {
+        for (int i = 0; i < WARMUP_CARTS; i++) {
+            insertCart(itemCount, persistItems);
+        }
+
+        statistics.clear();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_CARTS; i++) {
+            insertCart(itemCount, persistItems);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // With at most batch_size rows per statement, every prepared statement is one round trip
+        return new Result((double) statistics.getPrepareStatementCount() / MEASURED_CARTS,
+                elapsed / 1_000.0 / MEASURED_CARTS);
+    }
+
+    private void insertCart(int itemCount, BiConsumer<CartEntity, Integer> persistItems) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // COMPLETED keeps the carts out of the one-active-cart-per-user index
+            CartEntity cart = new CartEntity("bench-" + USER_SEQUENCE.incrementAndGet() + "@rockburger.com",
+                    "COMPLETED");
+            entityManager.persist(cart);
+            persistItems.accept(cart, itemCount);
+        });
+    }
+
+    private static final class Result {
+        final double roundTrips;
+        final double micros;
+
+        Result(double roundTrips, double micros) {
+            this.roundTrips = roundTrips;
+            this.micros = micros;
+        }
+    }
+
+    /**
+     * The cart_items mapping as it was before pooled ids, kept to measure the baseline
+     */
+    @Entity
+    @Table(name = "benchmark_identity_cart_items")
+    static class IdentityCartItem {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+
+        @Column(name = "cart_id", nullable = false)
+        Long cartId;
+
+        @Column(name = "article_id", nullable = false)
+        Long articleId;
+
+        @Column(nullable = false)
+        int quantity;
+    }
+}
@@ -0,0 +1,151 @@
+package com.rockburger.cartservice.configuration;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartCleanupMetrics;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartItemAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartRepository;
+import com.rockburger.cartservice.configuration.datasource.ReadYourWritesGuard;
+import com.rockburger.cartservice.domain.api.ICartServicePort;
+import com.rockburger.cartservice.domain.api.usecase.CartUseCase;
+import com.rockburger.cartservice.domain.model.CartItemModel;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * An 8:1 read:write mix over active carts of three items, with the second-level cache off
+ * and on: JDBC statements, cart and item rows loaded from the database, and the share of
+ * reads served without loading any. In-memory H2 has no network hop, so against MySQL
+ * the rows matter more than the times.
+ * Run with ./gradlew benchmark
+ */
+@Tag("benchmark")
+class CartSecondLevelCacheBenchmarkTest {
+
+    private static final int USERS = 500;
+    private static final int ITEMS_PER_CART = 3;
+    private static final int READS_PER_WRITE = 8;
+    private static final int WARMUP_OPERATIONS = 2_000;
+    private static final int MEASURED_OPERATIONS = 18_000;
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = CartEntity.class)
+    @EnableJpaRepositories(basePackageClasses = ICartRepository.class)
+    @Import({CartSecondLevelCacheConfig.class, CartAdapter.class, CartItemAdapter.class, CartCleanupMetrics.class,
+            ReadYourWritesGuard.class, ICartEntityMapperImpl.class, ICartItemEntityMapperImpl.class})
+    static class CartNode {
+    }
+
+    @Test
+    void readWriteMixWithoutAndWithTheCache() {
+        Result before = run(false);
+        Result after = run(true);
+
+        System.out.printf("8:1 read:write, per operation - no cache: %.2f statements, %.2f rows loaded, %.1f us;"
+                        + " second-level cache: %.2f statements, %.2f rows loaded, %.1f us,"
+                        + " %.1f%% of reads from the cache%n",
+                before.statements, before.rowsLoaded, before.micros,
+                after.statements, after.rowsLoaded, after.micros, after.cachedReadRatio * 100);
+        assertTrue(after.rowsLoaded < before.rowsLoaded);
+    }
+
+    private static Result run(boolean secondLevelCache) {
+        // Passed as arguments so they override application.yml
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CartNode.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:cart-l2-" + secondLevelCache + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.properties.hibernate.generate_statistics=true",
+                        "--spring.sql.init.mode=never",
+                        "--logging.level.com.rockburger.cartservice=WARN",
+                        "--logging.level.org.hibernate.engine.internal=WARN",
+                        "--cart.cache.second-level.enabled=" + secondLevelCache)) {
+            ICartServicePort cartService = CartServiceTransactions.transactional(
+                    new CartUseCase(context.getBean(CartAdapter.class), context.getBean(CartItemAdapter.class)),
+                    context.getBean(PlatformTransactionManager.class));
+            Statistics statistics = context.getBean(EntityManagerFactory.class)
+                    .unwrap(SessionFactory.class).getStatistics();
+
+            for (int user = 0; user < USERS; user++) {
+                for (long article = 1; article <= ITEMS_PER_CART; article++) {
+                    cartService.addItem(user(user), new CartItemModel(article, "Article " + article, 1, 5.0));
+                }
+            }
+
+            // Same seed on both runs, so both see the same operations
+            Random random = new Random(42);
+            runMix(cartService, statistics, random, WARMUP_OPERATIONS);
+            statistics.clear();
+            long start = System.nanoTime();
+            double cachedReadRatio = runMix(cartService, statistics, random, MEASURED_OPERATIONS);
+            long elapsed = System.nanoTime() - start;
+
+            return new Result(
+                    (double) statistics.getPrepareStatementCount() / MEASURED_OPERATIONS,
+                    (double) statistics.getEntityLoadCount() / MEASURED_OPERATIONS,
+                    elapsed / 1_000.0 / MEASURED_OPERATIONS,
+                    cachedReadRatio);
+        }
+    }
+
+    /**
+     * Run the mix and return the share of reads that loaded no rows from the database
+     */
+    private static double runMix(ICartServicePort cartService, Statistics statistics, Random random, int operations) {
+        int reads = 0;
+        int cachedReads = 0;
+        for (int i = 0; i < operations; i++) {
+            String userId = user(random.nextInt(USERS));
+            if (random.nextInt(READS_PER_WRITE + 1) == 0) {
+                cartService.updateItemQuantity(userId, 1L + random.nextInt(ITEMS_PER_CART), 1 + random.nextInt(5));
+            } else {
+                long loaded = statistics.getEntityLoadCount();
+                cartService.getActiveCart(userId);
+                reads++;
+                cachedReads += statistics.getEntityLoadCount() == loaded ? 1 : 0;
+            }
+        }
+        return (double) cachedReads / reads;
+    }
+
+    private static String user(int user) {
+        return "bench-" + user + "@rockburger.com";
+    }
+
+    private static final class Result {
+        final double statements;
+        final double rowsLoaded;
+        final double micros;
+        final double cachedReadRatio;
+
+        Result(double statements, double rowsLoaded, double micros, double cachedReadRatio) {
+            this.statements = statements;
+            this.rowsLoaded = rowsLoaded;
+            this.micros = micros;
+            this.cachedReadRatio = cachedReadRatio;
+        }
+    }
+}
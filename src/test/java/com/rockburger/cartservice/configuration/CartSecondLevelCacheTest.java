@@ -0,0 +1,150 @@
+package com.rockburger.cartservice.configuration;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartCleanupMetrics;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartItemAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapperImpl;
+import com.rockburger.cartservice.configuration.datasource.ReadYourWritesGuard;
+import com.rockburger.cartservice.domain.api.ICartServicePort;
+import com.rockburger.cartservice.domain.api.usecase.CartUseCase;
+import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.model.CartModel;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * With the second-level cache on, repeated reads of an active cart skip the joined
+ * SELECT, and every write, this node's or another's, is seen on the next read
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "cart.cache.second-level.enabled=true"
+})
+@Import({CartSecondLevelCacheConfig.class, CartAdapter.class, CartItemAdapter.class, CartCleanupMetrics.class,
+        ReadYourWritesGuard.class, SimpleMeterRegistry.class, ICartEntityMapperImpl.class,
+        ICartItemEntityMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartSecondLevelCacheTest {
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    private CartAdapter cartAdapter;
+
+    @Autowired
+    private CartItemAdapter cartItemAdapter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterBinder cartSecondLevelCacheMetrics;
+
+    private ICartServicePort cartService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        cartService = CartServiceTransactions.transactional(new CartUseCase(cartAdapter, cartItemAdapter),
+                transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void repeatedReadsComeFromTheCache() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L, 2));
+        cartService.addItem(userId, burger(2L, 1));
+        cartService.getActiveCart(userId);
+
+        // Only the id and version are read; the cart and both items are cache hits
+        CartModel cart = readCart(1, 0, () -> cartService.getActiveCart(userId));
+        assertEquals(2, cart.getItems().size());
+        assertEquals(15.0, cart.getTotal());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        cartSecondLevelCacheMetrics.bindTo(meterRegistry);
+        assertTrue(meterRegistry.get("cache.gets").tag("cache", "hibernate.l2.carts").tag("result", "hit")
+                .functionCounter().count() > 0);
+    }
+
+    @Test
+    void writesAreSeenOnTheNextRead() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L, 2));
+        cartService.getActiveCart(userId);
+
+        cartService.updateItemQuantity(userId, 1L, 5);
+        // The update read the cart back after writing it, so the new version is already cached
+        assertEquals(5, readCart(1, 0, () -> cartService.getActiveCart(userId))
+                .getItems().get(0).getQuantity());
+        assertEquals(5, readCart(1, 0, () -> cartService.getActiveCart(userId))
+                .getItems().get(0).getQuantity());
+
+        cartService.removeItem(userId, 1L);
+        assertTrue(cartService.getActiveCart(userId).getItems().isEmpty());
+    }
+
+    @Test
+    void anotherNodesWriteIsSeenOnTheNextRead() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L, 2));
+        cartService.getActiveCart(userId);
+        cartService.getActiveCart(userId);
+
+        // What another node's updateItemQuantity leaves behind, unseen by this node's cache
+        jdbcTemplate.update("UPDATE cart_items SET quantity = 3, subtotal = 15.0, version = version + 1 " +
+                "WHERE article_id = 1 AND cart_id = (SELECT id FROM carts WHERE active_user_id = ?)", userId);
+        jdbcTemplate.update("UPDATE carts SET total = 15.0, version = version + 1 WHERE active_user_id = ?", userId);
+
+        CartModel cart = cartService.getActiveCart(userId);
+        assertEquals(3, cart.getItems().get(0).getQuantity());
+        assertEquals(15.0, cart.getTotal());
+    }
+
+    /**
+     * Read the cart with the given number of statements and cart or item rows loaded from the database
+     */
+    private CartModel readCart(long statements, long entityLoads, Supplier<CartModel> read) {
+        statistics.clear();
+        CartModel cart = read.get();
+        assertEquals(statements, statistics.getPrepareStatementCount(), "statements");
+        assertEquals(entityLoads, statistics.getEntityLoadCount(), "entities loaded from the database");
+        return cart;
+    }
+
+    private static String newUser() {
+        return "l2-" + USERS.incrementAndGet() + "@rockburger.com";
+    }
+
+    private static CartItemModel burger(Long articleId, int quantity) {
+        return new CartItemModel(articleId, "Classic Burger", quantity, 5.0);
+    }
+}
@@ -0,0 +1,251 @@
+package com.rockburger.cartservice.configuration;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartCleanupMetrics;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartItemAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapperImpl;
+import com.rockburger.cartservice.configuration.datasource.ReadYourWritesGuard;
+import com.rockburger.cartservice.domain.api.ICartServicePort;
+import com.rockburger.cartservice.domain.api.usecase.CartUseCase;
+import com.rockburger.cartservice.domain.exception.CartItemNotFoundException;
+import com.rockburger.cartservice.domain.exception.CartNotFoundException;
+import com.rockburger.cartservice.domain.exception.DuplicateArticleException;
+import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.model.CartModel;
+import com.rockburger.cartservice.domain.spi.ICartPersistencePort;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Pins the JDBC statements and commits of every ICartServicePort operation, each
+ * run through the transaction CartServiceTransactions gives it
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@Import({CartAdapter.class, CartItemAdapter.class, CartCleanupMetrics.class, ReadYourWritesGuard.class,
+        SimpleMeterRegistry.class, ICartEntityMapperImpl.class, ICartItemEntityMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartServiceTransactionsTest {
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    private CartAdapter cartAdapter;
+
+    @Autowired
+    private CartItemAdapter cartItemAdapter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ICartServicePort cartService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        cartService = CartServiceTransactions.transactional(new CartUseCase(cartAdapter, cartItemAdapter),
+                transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Take the first block of item ids so no measured add pays for one
+        cartService.addItem(newUser(), burger(99L));
+    }
+
+    @Test
+    void createCart() {
+        String userId = newUser();
+        // Abandon stale carts, read the active cart, insert it
+        assertRoundTrips(3, () -> cartService.createCart(userId));
+        // The same without the insert
+        assertRoundTrips(2, () -> cartService.createCart(userId));
+    }
+
+    @Test
+    void addItem() {
+        String userId = newUser();
+        cartService.createCart(userId);
+        // Guarded total update, the cart joined with its items, item insert
+        assertRoundTrips(3, () -> cartService.addItem(userId, burger(1L)));
+
+        // No active cart: the guarded update matches nothing, find-or-create (3), then the same three
+        String newUserId = newUser();
+        assertRoundTrips(7, () -> cartService.addItem(newUserId, burger(1L)));
+    }
+
+    @Test
+    void duplicateArticleRollsBackTheTotal() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L));
+
+        assertThrows(DuplicateArticleException.class, () -> cartService.addItem(userId, burger(1L)));
+        assertEquals(10.0, jdbcTemplate.queryForObject("SELECT total FROM carts WHERE user_id = ?",
+                Double.class, userId));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items ci JOIN carts c " +
+                "ON c.id = ci.cart_id WHERE c.user_id = ?", Integer.class, userId));
+    }
+
+    @Test
+    void updateAndRemoveItem() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L));
+        // Guarded total update, line update, the cart joined with its items; nothing is read first
+        assertRoundTrips(3, () -> cartService.updateItemQuantity(userId, 1L, 4));
+        assertEquals(20.0, jdbcTemplate.queryForObject("SELECT total FROM carts WHERE user_id = ?",
+                Double.class, userId));
+        // Guarded total update, line delete, the cart joined with its items
+        assertRoundTrips(3, () -> cartService.removeItem(userId, 1L));
+        assertEquals(0.0, jdbcTemplate.queryForObject("SELECT total FROM carts WHERE user_id = ?",
+                Double.class, userId));
+    }
+
+    @Test
+    void missingArticleWritesNothing() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L));
+
+        // The guarded update matches nothing, then the cart's last update tells why
+        statistics.clear();
+        assertThrows(CartItemNotFoundException.class, () -> cartService.updateItemQuantity(userId, 2L, 4));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertThrows(CartItemNotFoundException.class, () -> cartService.removeItem(userId, 2L));
+        assertEquals(4, statistics.getPrepareStatementCount());
+
+        assertThrows(CartNotFoundException.class, () -> cartService.removeItem(newUser(), 1L));
+        assertEquals(10.0, jdbcTemplate.queryForObject("SELECT total FROM carts WHERE user_id = ?",
+                Double.class, userId));
+    }
+
+    @Test
+    void clearAndAbandonCart() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L));
+        // Read the cart, delete its lines, update it
+        assertRoundTrips(3, () -> cartService.clearCart(userId));
+        // Read the cart, update it
+        assertRoundTrips(2, () -> cartService.abandonCart(userId));
+    }
+
+    @Test
+    void versionConflictIsRetriedInANewTransaction() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L));
+
+        // Another session changes the cart after the first attempt has read it
+        AtomicInteger reads = new AtomicInteger();
+        ICartPersistencePort racing = mock(ICartPersistencePort.class, delegatesTo(cartAdapter));
+        doAnswer(invocation -> {
+            Optional<CartModel> cart = cartAdapter.findByUserIdAndStatus(userId, "ACTIVE");
+            if (reads.incrementAndGet() == 1) {
+                CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                        "UPDATE carts SET version = version + 1 WHERE user_id = ?", userId)).join();
+            }
+            return cart;
+        }).when(racing).findByUserIdAndStatus(userId, "ACTIVE");
+        ICartServicePort racingService = CartServiceTransactions.transactional(
+                new CartUseCase(racing, cartItemAdapter), transactionManager);
+
+        statistics.clear();
+        racingService.clearCart(userId);
+
+        // The first attempt rolled back, the second one read the new version and committed
+        assertEquals(2, reads.get());
+        assertEquals(2, statistics.getTransactionCount());
+        assertEquals(1, statistics.getSuccessfulTransactionCount());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart_items ci JOIN carts c " +
+                "ON c.id = ci.cart_id WHERE c.user_id = ?", Integer.class, userId));
+    }
+
+    @Test
+    void reads() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L));
+        // The active cart joined with its items
+        assertRoundTrips(1, () -> cartService.getActiveCart(userId));
+        cartService.abandonCart(userId);
+        // The latest abandoned cart's id, then the cart with its items
+        assertRoundTrips(2, () -> cartService.getCartByUserAndStatus(userId, "ABANDONED"));
+    }
+
+    @Test
+    void staleCartIsNotFoundWithinOneTransaction() {
+        String userId = newUser();
+        cartService.addItem(userId, burger(1L));
+        jdbcTemplate.update("UPDATE carts SET last_updated = ? WHERE user_id = ?",
+                LocalDateTime.now().minusHours(25), userId);
+
+        assertRoundTrips(1, () -> assertThrows(CartNotFoundException.class, () -> cartService.getActiveCart(userId)));
+        // Stale carts are abandoned by the update, in the same transaction as the rest
+        assertRoundTrips(3, () -> cartService.createCart(userId));
+        assertEquals(1, abandonedCarts(userId));
+    }
+
+    @Test
+    void maintenanceCommitsPerChunk() {
+        List<String> userIds = List.of(newUser(), newUser());
+        userIds.forEach(cartService::createCart);
+
+        statistics.clear();
+        cartService.deleteCartsOfUsers(userIds);
+        // Lines, then carts, in the chunk's own transaction
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getSuccessfulTransactionCount());
+    }
+
+    /**
+     * The operation must commit exactly one transaction with the given number of statements
+     */
+    private void assertRoundTrips(long statements, Runnable operation) {
+        statistics.clear();
+        operation.run();
+        assertEquals(statements, statistics.getPrepareStatementCount(), "statements");
+        assertEquals(1, statistics.getTransactionCount(), "transactions");
+        assertEquals(1, statistics.getSuccessfulTransactionCount(), "commits");
+    }
+
+    private int abandonedCarts(String userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM carts WHERE user_id = ? AND status = 'ABANDONED'",
+                Integer.class, userId);
+    }
+
+    private static String newUser() {
+        return "tx-" + USERS.incrementAndGet() + "@rockburger.com";
+    }
+
+    private static CartItemModel burger(Long articleId) {
+        return new CartItemModel(articleId, "Classic Burger", 2, 5.0);
+    }
+}
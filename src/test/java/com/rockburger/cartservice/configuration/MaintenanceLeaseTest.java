@@ -0,0 +1,187 @@
+package com.rockburger.cartservice.configuration;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.MaintenanceLeaseAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.MaintenanceLeaseEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.IMaintenanceLeaseRepository;
+import com.rockburger.cartservice.domain.spi.IMaintenanceLeasePersistencePort;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two application contexts play two service nodes sharing one embedded database
+ */
+class MaintenanceLeaseTest {
+
+    private static final int TTL_SECONDS = 3;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = MaintenanceLeaseEntity.class)
+    @EnableJpaRepositories(basePackageClasses = IMaintenanceLeaseRepository.class)
+    @Import({MaintenanceLeaseAdapter.class, MaintenanceLease.class})
+    static class LeaseNode {
+    }
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @Test
+    void onlyOneNodeRunsWhileTheLeaseIsHeld() {
+        boolean[] nodeBRanInside = {true};
+
+        boolean nodeARan = lease(nodeA).runExclusively("exclusive", leaseLost ->
+                nodeBRanInside[0] = lease(nodeB).runExclusively("exclusive", nodeBLeaseLost -> { }));
+
+        assertTrue(nodeARan);
+        assertFalse(nodeBRanInside[0]);
+        // Released when node A finished, so node B does not wait for the TTL
+        assertTrue(lease(nodeB).runExclusively("exclusive", leaseLost -> { }));
+    }
+
+    @Test
+    void heartbeatKeepsTheLeasePastItsTtl() {
+        boolean[] nodeBRanInside = {true};
+
+        lease(nodeA).runExclusively("long-job", leaseLost -> {
+            sleep(TimeUnit.SECONDS.toMillis(TTL_SECONDS) + 2_000);
+            nodeBRanInside[0] = lease(nodeB).runExclusively("long-job", nodeBLeaseLost -> { });
+        });
+
+        assertFalse(nodeBRanInside[0]);
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverByAnotherNode() {
+        // Node A takes the lease and dies: no heartbeat, no release
+        assertTrue(leasePort(nodeA).tryAcquire("crashed-job", "node-a", TTL_SECONDS));
+        assertFalse(lease(nodeB).runExclusively("crashed-job", leaseLost -> { }));
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TTL_SECONDS * 3L);
+        boolean takenOver = false;
+        while (!takenOver && System.currentTimeMillis() < deadline) {
+            sleep(250);
+            takenOver = lease(nodeB).runExclusively("crashed-job", leaseLost -> { });
+        }
+        assertTrue(takenOver);
+    }
+
+    @Test
+    void jobStopsAtTheNextChunkOnceItsLeaseIsTakenOver() {
+        int[] chunks = {0};
+
+        boolean ran = lease(nodeA).runExclusively("taken-over", leaseLost -> {
+            // Node A stalled past its TTL and node B took the lease in the meantime
+            LocalDateTime now = LocalDateTime.now();
+            leaseRepository(nodeB).save(new MaintenanceLeaseEntity("taken-over", "node-b", now, now,
+                    now.plusMinutes(1)));
+
+            while (chunks[0] < 50 && !leaseLost.getAsBoolean()) {
+                chunks[0]++;
+                sleep(100);
+            }
+        });
+
+        assertTrue(ran);
+        // The next heartbeat, a third of the TTL later, finds the lease gone
+        assertTrue(chunks[0] < 50, "stopped after " + chunks[0] + " chunks");
+        // Node A's release left node B's lease alone
+        assertFalse(lease(nodeA).runExclusively("taken-over", leaseLost -> { }));
+    }
+
+    @Test
+    void concurrentFirstAcquireHasOneWinner() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 20; round++) {
+                String leaseName = "race-" + round;
+                CountDownLatch start = new CountDownLatch(1);
+                Callable<Boolean> acquireA = () -> {
+                    start.await();
+                    return leasePort(nodeA).tryAcquire(leaseName, "node-a", TTL_SECONDS);
+                };
+                Callable<Boolean> acquireB = () -> {
+                    start.await();
+                    return leasePort(nodeB).tryAcquire(leaseName, "node-b", TTL_SECONDS);
+                };
+
+                Future<Boolean> a = executor.submit(acquireA);
+                Future<Boolean> b = executor.submit(acquireB);
+                start.countDown();
+
+                assertNotEquals(a.get(10, TimeUnit.SECONDS), b.get(10, TimeUnit.SECONDS),
+                        "exactly one node should win " + leaseName);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(String ownerId) {
+        // Passed as arguments so they override application.yml
+        return new SpringApplicationBuilder(LeaseNode.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:maintenance-lease;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.sql.init.mode=never",
+                        "--cart.maintenance.lease.ttl-seconds=" + TTL_SECONDS,
+                        "--cart.maintenance.lease.owner-id=" + ownerId);
+    }
+
+    private static MaintenanceLease lease(ConfigurableApplicationContext node) {
+        return node.getBean(MaintenanceLease.class);
+    }
+
+    private static IMaintenanceLeaseRepository leaseRepository(ConfigurableApplicationContext node) {
+        return node.getBean(IMaintenanceLeaseRepository.class);
+    }
+
+    private static IMaintenanceLeasePersistencePort leasePort(ConfigurableApplicationContext node) {
+        return node.getBean(IMaintenanceLeasePersistencePort.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
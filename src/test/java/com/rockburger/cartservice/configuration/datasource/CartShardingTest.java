@@ -0,0 +1,251 @@
+package com.rockburger.cartservice.configuration.datasource;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartCleanupMetrics;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartShardRouter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapperImpl;
+import com.rockburger.cartservice.configuration.CartServiceTransactions;
+import com.rockburger.cartservice.domain.api.ICartServicePort;
+import com.rockburger.cartservice.domain.api.usecase.CartUseCase;
+import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.model.CartModel;
+import com.rockburger.cartservice.domain.spi.ICartArchivePersistencePort;
+import com.rockburger.cartservice.domain.spi.ICartItemPersistencePort;
+import com.rockburger.cartservice.domain.spi.ICartPersistencePort;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Three embedded databases play the cart shards; a fourth is the main database
+ */
+class CartShardingTest {
+
+    private static final int SHARDS = 3;
+
+    private static ConfigurableApplicationContext context;
+    private static final List<JdbcTemplate> shards = new ArrayList<>();
+    private static final CartShardRouter router = new CartShardRouter(SHARDS);
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = CartEntity.class)
+    @Import({CartShardingConfig.class, CartCleanupMetrics.class,
+            ICartEntityMapperImpl.class, ICartItemEntityMapperImpl.class})
+    static class ShardedNode {
+    }
+
+    @BeforeAll
+    static void start() {
+        String urls = IntStream.range(0, SHARDS)
+                .mapToObj(CartShardingTest::shardUrl)
+                .collect(Collectors.joining(","));
+
+        // Passed as arguments so they override application.yml
+        context = new SpringApplicationBuilder(ShardedNode.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:cart-main;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--cart.sharding.enabled=true",
+                        "--cart.sharding.urls=" + urls,
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.sql.init.mode=never");
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shards.add(new JdbcTemplate(new DriverManagerDataSource(shardUrl(shard), "sa", "")));
+        }
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @BeforeEach
+    void emptyShards() {
+        for (JdbcTemplate shard : shards) {
+            shard.update("DELETE FROM cart_items");
+            shard.update("DELETE FROM carts");
+            shard.update("DELETE FROM cart_items_archive");
+            shard.update("DELETE FROM carts_archive");
+        }
+    }
+
+    @Test
+    void eachUserLivesOnExactlyOneShard() {
+        List<String> users = users("placement", 30);
+        Set<Integer> usedShards = new HashSet<>();
+
+        for (String userId : users) {
+            int shard = router.shardOf(userId);
+            usedShards.add(shard);
+
+            CartModel cart = cartPort().findOrCreateActive(userId);
+            assertEquals(shard, router.shardOfCart(cart.getId()));
+
+            for (int other = 0; other < SHARDS; other++) {
+                assertEquals(other == shard ? 1 : 0, cartRows(other, userId), userId + " on shard " + other);
+            }
+        }
+        assertEquals(SHARDS, usedShards.size(), "30 users should cover every shard");
+    }
+
+    @Test
+    void itemWritesFollowTheGlobalCartId() {
+        for (String userId : users("items", 6)) {
+            CartModel cart = cartPort().findOrCreateActive(userId);
+
+            CartModel added = cartItemPort().addItem(userId, new CartItemModel(7L, "Classic Burger", 2, 5.0))
+                    .orElseThrow();
+            assertEquals(cart.getId(), added.getId());
+            CartModel updated = cartItemPort().updateItemQuantity(userId, 7L, 3);
+            assertEquals(cart.getId(), updated.getId());
+
+            CartModel stored = cartPort().findByUserIdAndStatus(userId, "ACTIVE").orElseThrow();
+            assertEquals(cart.getId(), stored.getId());
+            assertEquals(3, stored.getItems().get(0).getQuantity());
+            assertEquals(15.0, stored.getTotal());
+
+            // Saving through the global id lands on the same shard row
+            stored.removeItem(7L);
+            cartPort().save(stored);
+            assertEquals(0.0, cartPort().findByUserIdAndStatus(userId, "ACTIVE").orElseThrow().getTotal());
+        }
+    }
+
+    @Test
+    void serviceOperationsRunInOneTransactionOnTheUsersShard() {
+        // The item port is called inside the operation's transaction, not the shard adapter's own
+        List<Integer> isolationLevels = new ArrayList<>();
+        ICartItemPersistencePort recording = mock(ICartItemPersistencePort.class, delegatesTo(cartItemPort()));
+        doAnswer(invocation -> {
+            assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+            isolationLevels.add(TransactionSynchronizationManager.getCurrentTransactionIsolationLevel());
+            return cartItemPort().addItem(invocation.getArgument(0), invocation.getArgument(1));
+        }).when(recording).addItem(anyString(), any(CartItemModel.class));
+        ICartServicePort cartService = CartServiceTransactions.transactional(
+                new CartUseCase(cartPort(), recording), context.getBean(CartShardTransactionManagers.class));
+
+        for (String userId : users("service", 6)) {
+            CartModel cart = cartService.addItem(userId, new CartItemModel(7L, "Classic Burger", 2, 5.0));
+
+            assertEquals(router.shardOf(userId), router.shardOfCart(cart.getId()));
+            assertEquals(1, cartRows(router.shardOf(userId), userId));
+            assertEquals(10.0, cartService.getActiveCart(userId).getTotal());
+        }
+        assertTrue(isolationLevels.stream().allMatch(level -> level == TransactionDefinition.ISOLATION_READ_COMMITTED));
+    }
+
+    @Test
+    void maintenanceAndCountsAddUpOverAllShards() {
+        List<String> users = users("maintenance", 12);
+        users.forEach(cartPort()::findOrCreateActive);
+        for (JdbcTemplate shard : shards) {
+            shard.update("UPDATE carts SET last_updated = ?", LocalDateTime.now().minusHours(25));
+        }
+
+        assertEquals(users.size(), cartPort().countByStatus("ACTIVE"));
+        assertEquals(users.size(), cartPort().cleanupExpiredCarts(() -> false));
+        assertEquals(users.size(), cartPort().countByStatus("ABANDONED"));
+        assertEquals(0, cartPort().countActiveCartsSince(LocalDateTime.now().minusDays(3)));
+
+        assertEquals(users.size(), cartPort().deleteByUserIds(users));
+        assertEquals(0, cartPort().countByStatus("ABANDONED"));
+    }
+
+    @Test
+    void lostLeaseStopsTheSweepOnEveryShard() {
+        List<String> users = users("lease", 12);
+        users.forEach(cartPort()::findOrCreateActive);
+        for (JdbcTemplate shard : shards) {
+            shard.update("UPDATE carts SET last_updated = ?", LocalDateTime.now().minusHours(25));
+        }
+
+        // The shards are swept on fan-out threads, which must see the lease the scheduler's thread holds
+        Set<String> checkingThreads = ConcurrentHashMap.newKeySet();
+        BooleanSupplier leaseLost = () -> {
+            checkingThreads.add(Thread.currentThread().getName());
+            return true;
+        };
+        assertEquals(0, cartPort().cleanupExpiredCarts(leaseLost));
+
+        assertEquals(SHARDS, checkingThreads.size());
+        assertEquals(users.size(), cartPort().countByStatus("ACTIVE"));
+    }
+
+    @Test
+    void eachShardArchivesItsOwnCarts() {
+        List<String> users = users("archive", 12);
+        users.forEach(cartPort()::findOrCreateActive);
+        for (JdbcTemplate shard : shards) {
+            shard.update("UPDATE carts SET status = 'ABANDONED', last_updated = ?", LocalDateTime.now().minusDays(40));
+        }
+
+        ICartArchivePersistencePort archive = context.getBean(ICartArchivePersistencePort.class);
+        assertEquals(users.size(), archive.archiveTerminalCarts(LocalDateTime.now().minusDays(30), () -> false));
+
+        for (String userId : users) {
+            int shard = router.shardOf(userId);
+            assertEquals(0, cartRows(shard, userId));
+            assertEquals(1, shards.get(shard).queryForObject("SELECT COUNT(*) FROM carts_archive WHERE user_id = ?",
+                    Integer.class, userId));
+        }
+    }
+
+    private static String shardUrl(int shard) {
+        return "jdbc:h2:mem:cart-shard-" + shard + ";DB_CLOSE_DELAY=-1";
+    }
+
+    private static List<String> users(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> prefix + "-" + i + "@rockburger.com")
+                .collect(Collectors.toList());
+    }
+
+    private static int cartRows(int shard, String userId) {
+        return shards.get(shard).queryForObject("SELECT COUNT(*) FROM carts WHERE user_id = ?",
+                Integer.class, userId);
+    }
+
+    private static ICartPersistencePort cartPort() {
+        return context.getBean(ICartPersistencePort.class);
+    }
+
+    private static ICartItemPersistencePort cartItemPort() {
+        return context.getBean(ICartItemPersistencePort.class);
+    }
+}
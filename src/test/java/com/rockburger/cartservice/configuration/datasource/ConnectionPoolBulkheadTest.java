@@ -0,0 +1,110 @@
+package com.rockburger.cartservice.configuration.datasource;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartCleanupMetrics;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The request pool is kept tiny so the test can exhaust it and see maintenance carry on
+ */
+class ConnectionPoolBulkheadTest {
+
+    private static ConfigurableApplicationContext context;
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = CartEntity.class)
+    @EnableJpaRepositories(basePackageClasses = ICartRepository.class)
+    @Import({CartDataSourceConfig.class, ReadYourWritesGuard.class, CartAdapter.class, CartCleanupMetrics.class,
+            ICartEntityMapperImpl.class, ICartItemEntityMapperImpl.class})
+    static class PooledNode {
+    }
+
+    @BeforeAll
+    static void start() {
+        // Passed as arguments so they override application.yml
+        context = new SpringApplicationBuilder(PooledNode.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:cart-pools;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.hikari.maximum-pool-size=2",
+                        "--spring.datasource.hikari.connection-timeout=250",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.sql.init.mode=never");
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @Test
+    void maintenanceRunsWhileRequestPoolIsExhausted() throws Exception {
+        cartAdapter().findOrCreateActive("bulkhead@rockburger.com");
+        HikariDataSource requestPool = context.getBean("requestDataSource", HikariDataSource.class);
+
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < requestPool.getMaximumPoolSize(); i++) {
+                held.add(requestPool.getConnection());
+            }
+
+            // Would time out waiting for a request connection if it shared the pool
+            assertEquals(0, cartAdapter().cleanupExpiredCarts(() -> false));
+            assertEquals(1, cartAdapter().deleteByUserIds(List.of("bulkhead@rockburger.com")));
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    void eachPoolPublishesItsOwnMetrics() {
+        cartAdapter().findOrCreateActive("metrics@rockburger.com");
+        cartAdapter().cleanupExpiredCarts(() -> false);
+
+        MeterRegistry registry = context.getBean(MeterRegistry.class);
+        for (String pool : List.of("cart-request", "cart-maintenance")) {
+            assertNotNull(registry.find("hikaricp.connections.active").tag("pool", pool).gauge(), pool);
+            assertNotNull(registry.find("hikaricp.connections.idle").tag("pool", pool).gauge(), pool);
+            assertNotNull(registry.find("hikaricp.connections.pending").tag("pool", pool).gauge(), pool);
+
+            Timer acquire = registry.find("hikaricp.connections.acquire").tag("pool", pool).timer();
+            assertNotNull(acquire, pool);
+            assertTrue(acquire.count() > 0, pool + " was never used");
+        }
+    }
+
+    private static CartAdapter cartAdapter() {
+        return context.getBean(CartAdapter.class);
+    }
+}
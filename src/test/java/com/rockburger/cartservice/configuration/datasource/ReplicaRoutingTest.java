@@ -0,0 +1,215 @@
+package com.rockburger.cartservice.configuration.datasource;
+
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartAdapter;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.adapter.CartCleanupMetrics;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.entity.CartEntity;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.mapper.ICartItemEntityMapperImpl;
+import com.rockburger.cartservice.adapters.driven.jpa.mysql.repository.ICartRepository;
+import com.rockburger.cartservice.domain.model.CartItemModel;
+import com.rockburger.cartservice.domain.model.CartModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two embedded databases play the primary and its replica. Nothing replicates between
+ * them; the test copies rows when it wants the replica to have caught up.
+ */
+class ReplicaRoutingTest {
+
+    private static final long READ_YOUR_WRITES_MS = 1_000;
+    private static final String CART_COLUMNS =
+            "id, user_id, total, created_at, last_updated, status, session_id, version, expiry_warning_sent";
+    private static final String ITEM_COLUMNS =
+            "id, cart_id, article_id, article_name, quantity, price, subtotal, created_at, updated_at, version";
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    private static ConfigurableApplicationContext context;
+    private static JdbcTemplate primary;
+    private static JdbcTemplate replica;
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = CartEntity.class)
+    @EnableJpaRepositories(basePackageClasses = ICartRepository.class)
+    @Import({CartDataSourceConfig.class, ReadYourWritesGuard.class, CartAdapter.class, CartCleanupMetrics.class,
+            ICartEntityMapperImpl.class, ICartItemEntityMapperImpl.class})
+    static class RoutingNode {
+    }
+
+    @BeforeAll
+    static void start() {
+        // Passed as arguments so they override application.yml
+        context = new SpringApplicationBuilder(RoutingNode.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:cart-primary;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--cart.datasource.replica.enabled=true",
+                        "--cart.datasource.replica.url=jdbc:h2:mem:cart-replica;DB_CLOSE_DELAY=-1",
+                        "--cart.datasource.replica.read-your-writes-ms=" + READ_YOUR_WRITES_MS,
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.sql.init.mode=never");
+
+        primary = new JdbcTemplate(context.getBean("requestDataSource", DataSource.class));
+        replica = new JdbcTemplate(context.getBean("replicaDataSource", DataSource.class));
+
+        // Hibernate created the schema on the primary; give the replica the same one
+        List<String> schema = primary.queryForList("SCRIPT NODATA", String.class);
+        schema.forEach(replica::execute);
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @AfterEach
+    void endRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyReadsAreServedByTheReplica() {
+        String userId = newUser();
+        CartModel cart = cartAdapter().findOrCreateActive(userId);
+        replicate();
+        // Only the replica's copy carries this total
+        replica.update("UPDATE carts SET total = 99 WHERE id = ?", cart.getId());
+
+        assertEquals(99.0, cartAdapter().findByUserIdAndStatus(userId, "ACTIVE").orElseThrow().getTotal());
+        // Read-write transactions stay on the primary
+        assertEquals(0.0, cartAdapter().findOrCreateActive(userId).getTotal());
+    }
+
+    @Test
+    void sessionThatJustWroteReadsFromThePrimary() throws InterruptedException {
+        String writer = newUser();
+        startRequest(writer);
+        cartAdapter().findOrCreateActive(writer);
+
+        // Not replicated yet, but the writing session still sees its cart
+        assertTrue(cartAdapter().findByUserIdAndStatus(writer, "ACTIVE").isPresent());
+
+        // Another session gets the replica's view
+        startRequest(newUser());
+        assertTrue(cartAdapter().findByUserIdAndStatus(writer, "ACTIVE").isEmpty());
+
+        // Once the window has passed, the writer is back on the replica
+        Thread.sleep(READ_YOUR_WRITES_MS + 200);
+        startRequest(writer);
+        assertTrue(cartAdapter().findByUserIdAndStatus(writer, "ACTIVE").isEmpty());
+    }
+
+    @Test
+    void replicaBehindAWrittenVersionFallsBackToThePrimary() {
+        String userId = newUser();
+        CartModel cart = cartAdapter().findOrCreateActive(userId);
+        replicate();
+
+        cart.addItem(new CartItemModel(1L, "Classic Burger", 2, 5.0));
+        CartModel saved = cartAdapter().save(cart);
+        double fallbacksBefore = versionBehindFallbacks();
+
+        // The replica still holds the cart at its previous version, without the item
+        Optional<CartModel> read = cartAdapter().findByUserIdAndStatus(userId, "ACTIVE");
+
+        assertEquals(saved.getVersion(), read.orElseThrow().getVersion());
+        assertEquals(1, read.get().getItems().size());
+        assertEquals(fallbacksBefore + 1, versionBehindFallbacks());
+
+        replicate();
+        assertEquals(1, cartAdapter().findByUserIdAndStatus(userId, "ACTIVE").orElseThrow().getItems().size());
+        assertEquals(fallbacksBefore + 1, versionBehindFallbacks());
+    }
+
+    @Test
+    void rolledBackWriteLeavesReadsOnTheReplica() {
+        String userId = newUser();
+        CartModel cart = cartAdapter().findOrCreateActive(userId);
+        replicate();
+        double fallbacksBefore = versionBehindFallbacks();
+
+        new TransactionTemplate(context.getBean("transactionManager", PlatformTransactionManager.class))
+                .executeWithoutResult(status -> {
+                    cart.addItem(new CartItemModel(1L, "Classic Burger", 2, 5.0));
+                    cartAdapter().save(cart);
+                    status.setRollbackOnly();
+                });
+
+        // The version the rolled back save wrote was never committed, so the replica is not behind
+        assertTrue(cartAdapter().findByUserIdAndStatus(userId, "ACTIVE").orElseThrow().getItems().isEmpty());
+        assertEquals(fallbacksBefore, versionBehindFallbacks());
+    }
+
+    private static String newUser() {
+        return "replica-" + USERS.incrementAndGet() + "@rockburger.com";
+    }
+
+    /**
+     * Make the current thread serve a request of the given session, as the JWT filter would
+     */
+    private static void startRequest(String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(ReadYourWritesGuard.SESSION_ATTRIBUTE, userId);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    /**
+     * Bring the replica up to date with the primary
+     */
+    private static void replicate() {
+        replica.update("DELETE FROM cart_items");
+        replica.update("DELETE FROM carts");
+        copy("carts", CART_COLUMNS);
+        copy("cart_items", ITEM_COLUMNS);
+    }
+
+    private static void copy(String table, String columns) {
+        String placeholders = String.join(", ", Collections.nCopies(columns.split(",").length, "?"));
+        for (Map<String, Object> row : primary.queryForList("SELECT " + columns + " FROM " + table)) {
+            replica.update("INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")",
+                    row.values().toArray());
+        }
+    }
+
+    private static double versionBehindFallbacks() {
+        return context.getBean(MeterRegistry.class)
+                .get("cart.replica.primary.fallbacks").tag("reason", "version-behind")
+                .functionCounter().count();
+    }
+
+    private static CartAdapter cartAdapter() {
+        return context.getBean(CartAdapter.class);
+    }
+}
@@ -0,0 +1,34 @@
+package com.rockburger.cartservice.configuration.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AuthenticationRejectionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void preSerializedBodiesAreCompleteJson() throws Exception {
+        for (AuthenticationRejection rejection : AuthenticationRejection.values()) {
+            String body = new String(AuthenticationRejection.bodyPrefix(), StandardCharsets.UTF_8)
+                    + "2024-06-01T12:00:00"
+                    + new String(rejection.bodySuffix(), StandardCharsets.UTF_8);
+
+            JsonNode json = objectMapper.readTree(body);
+
+            assertEquals(401, rejection.getStatus().value());
+            assertEquals("2024-06-01T12:00:00", json.get("timestamp").asText());
+            assertEquals(401, json.get("status").asInt());
+            assertEquals("Unauthorized", json.get("error").asText());
+            assertEquals(rejection.getMessage(), json.get("message").asText());
+            assertEquals("cart-authentication", json.get("path").asText());
+            assertEquals("cart-service", json.get("service").asText());
+            assertEquals(rejection.getErrorCode(), json.get("errorCode").asText());
+        }
+    }
+}
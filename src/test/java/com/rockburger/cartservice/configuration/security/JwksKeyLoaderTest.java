@@ -0,0 +1,148 @@
+package com.rockburger.cartservice.configuration.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwksKeyLoaderTest {
+
+    private static final String SECRET =
+            "9qZgHlZ5Kg+POpcNp1YWlN5F/mkDoYysAaMAzvCydswRhE+tzLXytB/bNiU+NjPiCbKN7UZWFkgtw0wXSDYWQg==";
+
+    private final KeyPair rsaKeyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+    private final KeyPair ecKeyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void loadsRsaAndEcSigningKeys() throws IOException {
+        Map<String, PublicKey> keys = JwksKeyLoader.load(jwks(rsaJwk("rsa-1", "sig"), ecJwk("ec-1")));
+
+        assertEquals(2, keys.size());
+        assertEquals(rsaKeyPair.getPublic(), keys.get("rsa-1"));
+        assertEquals(ecKeyPair.getPublic(), keys.get("ec-1"));
+    }
+
+    @Test
+    void skipsEncryptionKeysAndKeysWithoutKid() throws IOException {
+        RSAPublicKey rsaPublicKey = (RSAPublicKey) rsaKeyPair.getPublic();
+        String withoutKid = "{\"kty\":\"RSA\","
+                + "\"n\":\"" + base64Url(rsaPublicKey.getModulus(), 0) + "\","
+                + "\"e\":\"" + base64Url(rsaPublicKey.getPublicExponent(), 0) + "\"}";
+
+        Map<String, PublicKey> keys = JwksKeyLoader.load(jwks(rsaJwk("rsa-enc", "enc"), withoutKid, ecJwk("ec-1")));
+
+        assertEquals(Map.of("ec-1", ecKeyPair.getPublic()), keys);
+    }
+
+    @Test
+    void skipsUnusableKeysAndKeepsTheRest() throws IOException {
+        String octetKey = "{\"kty\":\"oct\",\"kid\":\"hmac-1\",\"k\":\"c2VjcmV0\"}";
+        String unknownCurve = "{\"kty\":\"EC\",\"kid\":\"ec-k1\",\"crv\":\"secp256k1\",\"x\":\"AQ\",\"y\":\"AQ\"}";
+        String missingModulus = "{\"kty\":\"RSA\",\"kid\":\"rsa-broken\",\"e\":\"AQAB\"}";
+
+        Map<String, PublicKey> keys = JwksKeyLoader.load(
+                jwks(octetKey, unknownCurve, missingModulus, rsaJwk("rsa-1", "sig")));
+
+        assertEquals(Map.of("rsa-1", rsaKeyPair.getPublic()), keys);
+    }
+
+    @Test
+    void documentWithoutKeysIsRejected() throws IOException {
+        Path file = tempDir.resolve("jwks.json");
+        Files.writeString(file, "{\"kid\":\"rsa-1\"}");
+
+        assertThrows(IllegalArgumentException.class, () -> JwksKeyLoader.load(file));
+    }
+
+    @Test
+    void providerVerifiesTokensSignedWithJwksKeys() throws IOException {
+        JwtCartKeyProvider keyProvider = new JwtCartKeyProvider(SECRET);
+        assertFalse(keyProvider.reloadJwks(jwks(rsaJwk("rsa-1", "sig"), ecJwk("ec-1"))));
+
+        Claims rsaClaims = keyProvider.getJwtParser().parseClaimsJws(token("rsa-1", rsaKeyPair.getPrivate())).getBody();
+        Claims ecClaims = keyProvider.getJwtParser().parseClaimsJws(token("ec-1", ecKeyPair.getPrivate())).getBody();
+
+        assertEquals("client@rockburger.com", rsaClaims.getSubject());
+        assertEquals("client@rockburger.com", ecClaims.getSubject());
+    }
+
+    @Test
+    void droppedJwksKeyIsReportedAndNoLongerTrusted() throws IOException {
+        JwtCartKeyProvider keyProvider = new JwtCartKeyProvider(SECRET);
+        keyProvider.reloadJwks(jwks(rsaJwk("rsa-1", "sig"), ecJwk("ec-1")));
+        String rsaToken = token("rsa-1", rsaKeyPair.getPrivate());
+
+        assertTrue(keyProvider.reloadJwks(jwks(ecJwk("ec-1"))));
+        assertThrows(JwtException.class, () -> keyProvider.getJwtParser().parseClaimsJws(rsaToken));
+    }
+
+    private Path jwks(String... jwks) throws IOException {
+        Path file = tempDir.resolve("jwks.json");
+        Files.writeString(file, "{\"keys\":[" + String.join(",", jwks) + "]}");
+        return file;
+    }
+
+    private String rsaJwk(String kid, String use) {
+        RSAPublicKey rsaPublicKey = (RSAPublicKey) rsaKeyPair.getPublic();
+        return "{\"kty\":\"RSA\",\"kid\":\"" + kid + "\",\"use\":\"" + use + "\",\"alg\":\"RS256\","
+                + "\"n\":\"" + base64Url(rsaPublicKey.getModulus(), 0) + "\","
+                + "\"e\":\"" + base64Url(rsaPublicKey.getPublicExponent(), 0) + "\"}";
+    }
+
+    private String ecJwk(String kid) {
+        ECPublicKey ecPublicKey = (ECPublicKey) ecKeyPair.getPublic();
+        return "{\"kty\":\"EC\",\"kid\":\"" + kid + "\",\"use\":\"sig\",\"alg\":\"ES256\",\"crv\":\"P-256\","
+                + "\"x\":\"" + base64Url(ecPublicKey.getW().getAffineX(), 32) + "\","
+                + "\"y\":\"" + base64Url(ecPublicKey.getW().getAffineY(), 32) + "\"}";
+    }
+
+    private static String token(String kid, Key key) {
+        return Jwts.builder()
+                .setHeaderParam("kid", kid)
+                .setSubject("client@rockburger.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(key)
+                .compact();
+    }
+
+    /**
+     * Unsigned big-endian base64url, left-padded to a fixed width when one is given
+     */
+    private static String base64Url(BigInteger value, int width) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length < width) {
+            byte[] padded = new byte[width];
+            System.arraycopy(bytes, 0, padded, width - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
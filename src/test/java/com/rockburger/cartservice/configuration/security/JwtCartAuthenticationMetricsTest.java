@@ -0,0 +1,49 @@
+package com.rockburger.cartservice.configuration.security;
+
+import com.rockburger.cartservice.configuration.security.JwtCartAuthenticationMetrics.Outcome;
+import com.rockburger.cartservice.domain.model.TokenVerificationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class JwtCartAuthenticationMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtCartAuthenticationMetrics metrics = new JwtCartAuthenticationMetrics(meterRegistry);
+
+    @Test
+    void allMetersAreRegisteredUpFront() {
+        for (String outcome : new String[]{"valid", "expired", "bad_signature", "malformed", "missing", "revoked", "invalid"}) {
+            assertNotNull(meterRegistry.find("cart.auth.requests").tag("outcome", outcome).counter(), outcome);
+            assertNotNull(meterRegistry.find("cart.auth.verification").tag("outcome", outcome).timer(), outcome);
+        }
+        assertNotNull(meterRegistry.find("cart.auth.extraction").timer());
+        assertNotNull(meterRegistry.find("cart.auth.authorities").timer());
+    }
+
+    @Test
+    void outcomesAndTimingsAreRecorded() {
+        metrics.recordOutcome(Outcome.VALID);
+        metrics.recordOutcome(Outcome.VALID);
+        metrics.recordOutcome(Outcome.MISSING);
+        metrics.recordVerification(TokenVerificationResult.Status.EXPIRED, 1_000);
+        metrics.recordExtraction(1_000);
+
+        assertEquals(2.0, meterRegistry.get("cart.auth.requests").tag("outcome", "valid").counter().count());
+        assertEquals(1.0, meterRegistry.get("cart.auth.requests").tag("outcome", "missing").counter().count());
+        assertEquals(1, meterRegistry.get("cart.auth.verification").tag("outcome", "expired").timer().count());
+        assertEquals(0, meterRegistry.get("cart.auth.verification").tag("outcome", "valid").timer().count());
+        assertEquals(1, meterRegistry.get("cart.auth.extraction").timer().count());
+    }
+
+    @Test
+    void verificationStatusMapsToOutcome() {
+        assertEquals(Outcome.VALID, Outcome.of(TokenVerificationResult.Status.VALID));
+        assertEquals(Outcome.EXPIRED, Outcome.of(TokenVerificationResult.Status.EXPIRED));
+        assertEquals(Outcome.BAD_SIGNATURE, Outcome.of(TokenVerificationResult.Status.BAD_SIGNATURE));
+        assertEquals(Outcome.MALFORMED, Outcome.of(TokenVerificationResult.Status.MALFORMED));
+        assertEquals(Outcome.INVALID, Outcome.of(TokenVerificationResult.Status.INVALID));
+    }
+}
@@ -0,0 +1,147 @@
+package com.rockburger.cartservice.configuration.security;
+
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Single-threaded verification throughput, i.e. verifications per second per core.
+ * Run with ./gradlew benchmark
+ */
+@Tag("benchmark")
+class JwtCartKeyProviderBenchmarkTest {
+
+    private static final String SECRET =
+            "9qZgHlZ5Kg+POpcNp1YWlN5F/mkDoYysAaMAzvCydswRhE+tzLXytB/bNiU+NjPiCbKN7UZWFkgtw0wXSDYWQg==";
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURED_ITERATIONS = 100_000;
+    // Public-key verification is orders of magnitude slower, so fewer iterations suffice
+    private static final int ASYMMETRIC_WARMUP_ITERATIONS = 1_000;
+    private static final int ASYMMETRIC_MEASURED_ITERATIONS = 5_000;
+
+    @Test
+    void sharedParserVersusParserPerCall() {
+        String token = Jwts.builder()
+                .setSubject("client@rockburger.com")
+                .claim("userId", 42)
+                .claim("role", "client")
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET)))
+                .compact();
+
+        JwtCartKeyProvider keyProvider = new JwtCartKeyProvider(SECRET);
+
+        Runnable before = () -> Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(
+                        Base64.getDecoder().decode(SECRET.getBytes(StandardCharsets.UTF_8))))
+                .build()
+                .parseClaimsJws(token);
+        Runnable after = () -> keyProvider.getJwtParser().parseClaimsJws(token);
+
+        double beforeOps = measure(before);
+        double afterOps = measure(after);
+
+        System.out.printf("JWT verify (per core) - parser per call: %.0f ops/s, shared parser: %.0f ops/s (x%.2f)%n",
+                beforeOps, afterOps, afterOps / beforeOps);
+        assertTrue(afterOps > 0);
+    }
+
+    @Test
+    void hmacVersusPublicKeyVerification(@TempDir Path tempDir) throws IOException {
+        KeyPair rsaKeyPair = Keys.keyPairFor(SignatureAlgorithm.RS256);
+        KeyPair ecKeyPair = Keys.keyPairFor(SignatureAlgorithm.ES256);
+
+        RSAPublicKey rsaPublicKey = (RSAPublicKey) rsaKeyPair.getPublic();
+        ECPublicKey ecPublicKey = (ECPublicKey) ecKeyPair.getPublic();
+        Path jwksFile = tempDir.resolve("jwks.json");
+        Files.writeString(jwksFile, "{\"keys\":["
+                + "{\"kty\":\"RSA\",\"kid\":\"rsa-1\",\"use\":\"sig\",\"alg\":\"RS256\","
+                + "\"n\":\"" + base64Url(rsaPublicKey.getModulus(), 0) + "\","
+                + "\"e\":\"" + base64Url(rsaPublicKey.getPublicExponent(), 0) + "\"},"
+                + "{\"kty\":\"EC\",\"kid\":\"ec-1\",\"use\":\"sig\",\"alg\":\"ES256\",\"crv\":\"P-256\","
+                + "\"x\":\"" + base64Url(ecPublicKey.getW().getAffineX(), 32) + "\","
+                + "\"y\":\"" + base64Url(ecPublicKey.getW().getAffineY(), 32) + "\"}]}");
+
+        JwtCartKeyProvider keyProvider = new JwtCartKeyProvider(SECRET);
+        keyProvider.reloadJwks(jwksFile);
+
+        String hmacToken = signedToken(null, Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET)));
+        String rsaToken = signedToken("rsa-1", rsaKeyPair.getPrivate());
+        String ecToken = signedToken("ec-1", ecKeyPair.getPrivate());
+
+        double hmacOps = measure(() -> keyProvider.getJwtParser().parseClaimsJws(hmacToken));
+        double rsaOps = measure(() -> keyProvider.getJwtParser().parseClaimsJws(rsaToken),
+                ASYMMETRIC_WARMUP_ITERATIONS, ASYMMETRIC_MEASURED_ITERATIONS);
+        double ecOps = measure(() -> keyProvider.getJwtParser().parseClaimsJws(ecToken),
+                ASYMMETRIC_WARMUP_ITERATIONS, ASYMMETRIC_MEASURED_ITERATIONS);
+
+        System.out.printf("JWT verify (per core) - HS256: %.0f ops/s, RS256: %.0f ops/s, ES256: %.0f ops/s%n",
+                hmacOps, rsaOps, ecOps);
+        assertTrue(rsaOps > 0 && ecOps > 0);
+    }
+
+    private static String signedToken(String kid, Key key) {
+        JwtBuilder builder = Jwts.builder();
+        if (kid != null) {
+            builder.setHeaderParam("kid", kid);
+        }
+        return builder
+                .setSubject("client@rockburger.com")
+                .claim("userId", 42)
+                .claim("role", "client")
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(key)
+                .compact();
+    }
+
+    /**
+     * Unsigned big-endian base64url, left-padded to a fixed width when one is given
+     */
+    private static String base64Url(BigInteger value, int width) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length < width) {
+            byte[] padded = new byte[width];
+            System.arraycopy(bytes, 0, padded, width - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static double measure(Runnable verification) {
+        return measure(verification, WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+    }
+
+    private static double measure(Runnable verification, int warmupIterations, int measuredIterations) {
+        for (int i = 0; i < warmupIterations; i++) {
+            verification.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < measuredIterations; i++) {
+            verification.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        return measuredIterations / (elapsed / 1_000_000_000.0);
+    }
+}
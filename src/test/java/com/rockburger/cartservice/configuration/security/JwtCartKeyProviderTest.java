@@ -0,0 +1,54 @@
+package com.rockburger.cartservice.configuration.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtCartKeyProviderTest {
+
+    private static final String SECRET =
+            "9qZgHlZ5Kg+POpcNp1YWlN5F/mkDoYysAaMAzvCydswRhE+tzLXytB/bNiU+NjPiCbKN7UZWFkgtw0wXSDYWQg==";
+
+    private final JwtCartKeyProvider keyProvider = new JwtCartKeyProvider(SECRET);
+
+    @Test
+    void parserIsBuiltOnce() {
+        assertSame(keyProvider.getJwtParser(), keyProvider.getJwtParser());
+    }
+
+    @Test
+    void sharedParserVerifiesTokensSignedWithTheSecret() {
+        Claims claims = keyProvider.getJwtParser()
+                .parseClaimsJws(token(Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET))))
+                .getBody();
+
+        assertEquals("client@rockburger.com", claims.getSubject());
+    }
+
+    @Test
+    void sharedParserRejectsTokensSignedWithAnotherKey() {
+        String forged = token(Keys.secretKeyFor(SignatureAlgorithm.HS256));
+
+        assertThrows(JwtException.class, () -> keyProvider.getJwtParser().parseClaimsJws(forged));
+    }
+
+    private static String token(Key key) {
+        return Jwts.builder()
+                .setSubject("client@rockburger.com")
+                .claim("role", "client")
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(key)
+                .compact();
+    }
+}
@@ -0,0 +1,165 @@
+package com.rockburger.cartservice.configuration.security;
+
+import com.rockburger.cartservice.domain.model.CartUserModel;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.Key;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtCartKeyRingTest {
+
+    private static final String SECRET =
+            "9qZgHlZ5Kg+POpcNp1YWlN5F/mkDoYysAaMAzvCydswRhE+tzLXytB/bNiU+NjPiCbKN7UZWFkgtw0wXSDYWQg==";
+
+    private static final CartUserModel CLIENT = new CartUserModel(42L, "client@rockburger.com", "ROLE_client");
+
+    private final String january = newSecret();
+    private final String june = newSecret();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resolvesOneKeyByKid() throws IOException {
+        Key fallback = key(SECRET);
+        JwtCartKeyRing ring = JwtCartKeyRing.load(keyRingFile(Map.of("2024-01", january, "2024-06", june)), fallback);
+
+        assertEquals(key(january), ring.resolve("2024-01"));
+        assertEquals(key(june), ring.resolve("2024-06"));
+        assertSame(fallback, ring.resolve(null));
+        assertThrows(JwtException.class, () -> ring.resolve("2023-12"));
+    }
+
+    @Test
+    void fileCanNameTheDefaultKey() throws IOException {
+        JwtCartKeyRing ring = JwtCartKeyRing.load(
+                keyRingFile(Map.of("2024-06", june, JwtCartKeyRing.DEFAULT_KID_PROPERTY, "2024-06")), key(SECRET));
+
+        assertEquals(key(june), ring.resolve(null));
+        assertEquals(1, ring.size());
+    }
+
+    @Test
+    void unknownDefaultKidIsRejected() throws IOException {
+        Path file = keyRingFile(Map.of("2024-06", june, JwtCartKeyRing.DEFAULT_KID_PROPERTY, "2024-01"));
+
+        assertThrows(IllegalArgumentException.class, () -> JwtCartKeyRing.load(file, key(SECRET)));
+    }
+
+    @Test
+    void trustsAllOfDetectsRetiredAndReplacedKeys() {
+        Key fallback = key(SECRET);
+        JwtCartKeyRing both = new JwtCartKeyRing(Map.of("2024-01", key(january), "2024-06", key(june)), fallback);
+        JwtCartKeyRing added = new JwtCartKeyRing(
+                Map.of("2024-01", key(january), "2024-06", key(june), "2024-12", key(newSecret())), fallback);
+        JwtCartKeyRing retired = new JwtCartKeyRing(Map.of("2024-06", key(june)), fallback);
+        JwtCartKeyRing replaced = new JwtCartKeyRing(Map.of("2024-01", key(newSecret()), "2024-06", key(june)), fallback);
+
+        assertTrue(added.trustsAllOf(both));
+        assertFalse(retired.trustsAllOf(both));
+        assertFalse(replaced.trustsAllOf(both));
+    }
+
+    @Test
+    void reloaderRotatesKeysWithoutRestart() throws IOException {
+        Path file = keyRingFile(Map.of("2024-01", january));
+        JwtCartKeyProvider keyProvider = new JwtCartKeyProvider(SECRET);
+        JwtCartTokenCache tokenCache = new JwtCartTokenCache(true, 100, 300, new SimpleMeterRegistry());
+        JwtCartKeyRingReloader reloader = new JwtCartKeyRingReloader(keyProvider, tokenCache, file.toString(), "");
+        reloader.init();
+
+        String januaryToken = token("2024-01", january);
+        String juneToken = token("2024-06", june);
+        assertNotNull(keyProvider.getJwtParser().parseClaimsJws(januaryToken));
+        assertThrows(JwtException.class, () -> keyProvider.getJwtParser().parseClaimsJws(juneToken));
+
+        // June is added: both verify, and verified tokens stay cached
+        tokenCache.put("cached", CLIENT, List.of(), Instant.now().plusSeconds(60));
+        rewrite(file, Map.of("2024-01", january, "2024-06", june));
+        reloader.reloadIfChanged();
+        assertNotNull(keyProvider.getJwtParser().parseClaimsJws(januaryToken));
+        assertNotNull(keyProvider.getJwtParser().parseClaimsJws(juneToken));
+        assertNotNull(tokenCache.get("cached"));
+
+        // January is retired: its tokens fail and the cache no longer vouches for them
+        rewrite(file, Map.of("2024-06", june));
+        reloader.reloadIfChanged();
+        assertThrows(JwtException.class, () -> keyProvider.getJwtParser().parseClaimsJws(januaryToken));
+        assertNotNull(keyProvider.getJwtParser().parseClaimsJws(juneToken));
+        assertNull(tokenCache.get("cached"));
+    }
+
+    @Test
+    void reloaderKeepsKeysWhenTheFileIsBroken() throws IOException {
+        Path file = keyRingFile(Map.of("2024-01", january));
+        JwtCartKeyProvider keyProvider = new JwtCartKeyProvider(SECRET);
+        JwtCartKeyRingReloader reloader = new JwtCartKeyRingReloader(keyProvider,
+                new JwtCartTokenCache(true, 100, 300, new SimpleMeterRegistry()), file.toString(), "");
+        reloader.init();
+
+        rewrite(file, Map.of("2024-06", "not base64!", JwtCartKeyRing.DEFAULT_KID_PROPERTY, "2024-06"));
+        reloader.reloadIfChanged();
+
+        assertEquals(key(january), keyProvider.getKeyRing().resolve("2024-01"));
+    }
+
+    private Path keyRingFile(Map<String, String> entries) throws IOException {
+        Path file = tempDir.resolve("keyring.properties");
+        write(file, entries);
+        return file;
+    }
+
+    /**
+     * Rewrite the file and move its modification time forward, which is what the reloader polls
+     */
+    private static void rewrite(Path file, Map<String, String> entries) throws IOException {
+        FileTime previous = Files.getLastModifiedTime(file);
+        write(file, entries);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(previous.toMillis() + 1_000));
+    }
+
+    private static void write(Path file, Map<String, String> entries) throws IOException {
+        StringBuilder content = new StringBuilder();
+        entries.forEach((kid, secret) -> content.append(kid).append('=').append(secret).append('\n'));
+        Files.writeString(file, content);
+    }
+
+    private static String token(String kid, String secret) {
+        return Jwts.builder()
+                .setHeaderParam("kid", kid)
+                .setSubject("client@rockburger.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(key(secret))
+                .compact();
+    }
+
+    private static Key key(String secret) {
+        return Keys.hmacShaKeyFor(Base64.getDecoder().decode(secret));
+    }
+
+    private static String newSecret() {
+        return Base64.getEncoder().encodeToString(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+    }
+}
@@ -0,0 +1,143 @@
+package com.rockburger.cartservice.configuration.security;
+
+import com.rockburger.cartservice.domain.spi.ICartTokenRevocationPersistencePort;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class JwtCartRevocationListTest {
+
+    private static final long NEVER_REBUILD = 3_600_000;
+    private static final long ALWAYS_REBUILD = 0;
+
+    private static final String REVOKED = JwtTokenHashes.sha256Hex("revoked.token.signature");
+    private static final String LATER_REVOKED = JwtTokenHashes.sha256Hex("later.token.signature");
+    private static final String ACTIVE = JwtTokenHashes.sha256Hex("active.token.signature");
+
+    private final ICartTokenRevocationPersistencePort port = mock(ICartTokenRevocationPersistencePort.class);
+
+    @Test
+    void revokedHashIsRejectedAndOthersPass() {
+        when(port.findRevokedTokenHashesSince(any(LocalDateTime.class))).thenReturn(List.of(REVOKED));
+
+        JwtCartRevocationList revocationList = revocationList(true, 1_000, 0.01, NEVER_REBUILD);
+
+        assertTrue(revocationList.isRevoked(REVOKED));
+        assertFalse(revocationList.isRevoked(ACTIVE));
+        assertEquals(1, revocationList.size());
+    }
+
+    @Test
+    void incrementalRefreshAddsNewRevocations() {
+        when(port.findRevokedTokenHashesSince(any(LocalDateTime.class)))
+                .thenReturn(List.of(REVOKED))
+                .thenReturn(List.of(REVOKED, LATER_REVOKED));
+
+        JwtCartRevocationList revocationList = revocationList(true, 1_000, 0.01, NEVER_REBUILD);
+        assertFalse(revocationList.isRevoked(LATER_REVOKED));
+
+        revocationList.refresh();
+
+        assertTrue(revocationList.isRevoked(REVOKED));
+        assertTrue(revocationList.isRevoked(LATER_REVOKED));
+        assertEquals(2, revocationList.size());
+    }
+
+    @Test
+    void rebuildDropsHashesNoLongerRevoked() {
+        when(port.findRevokedTokenHashesSince(any(LocalDateTime.class)))
+                .thenReturn(List.of(REVOKED))
+                .thenReturn(List.of(LATER_REVOKED));
+
+        JwtCartRevocationList revocationList = revocationList(true, 1_000, 0.01, ALWAYS_REBUILD);
+        revocationList.refresh();
+
+        assertFalse(revocationList.isRevoked(REVOKED));
+        assertTrue(revocationList.isRevoked(LATER_REVOKED));
+        assertEquals(1, revocationList.size());
+    }
+
+    @Test
+    void failedRefreshKeepsCurrentView() {
+        when(port.findRevokedTokenHashesSince(any(LocalDateTime.class)))
+                .thenReturn(List.of(REVOKED))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        JwtCartRevocationList revocationList = revocationList(true, 1_000, 0.01, ALWAYS_REBUILD);
+        revocationList.refresh();
+
+        assertTrue(revocationList.isRevoked(REVOKED));
+    }
+
+    @Test
+    void malformedHashesAreIgnored() {
+        when(port.findRevokedTokenHashesSince(any(LocalDateTime.class)))
+                .thenReturn(List.of("too-short", "z".repeat(64), REVOKED));
+
+        JwtCartRevocationList revocationList = revocationList(true, 1_000, 0.01, NEVER_REBUILD);
+
+        assertEquals(1, revocationList.size());
+        assertTrue(revocationList.isRevoked(REVOKED));
+    }
+
+    @Test
+    void disabledListNeverQueriesOrRejects() {
+        JwtCartRevocationList revocationList = revocationList(false, 1_000, 0.01, NEVER_REBUILD);
+        revocationList.refresh();
+
+        assertFalse(revocationList.isRevoked(REVOKED));
+        verifyNoInteractions(port);
+    }
+
+    @Test
+    void bloomFilterFalsePositiveIsConfirmedAgainstExactSet() {
+        List<String> revoked = IntStream.range(0, 20)
+                .mapToObj(i -> JwtTokenHashes.sha256Hex("revoked-" + i))
+                .collect(Collectors.toList());
+        when(port.findRevokedTokenHashesSince(any(LocalDateTime.class))).thenReturn(revoked);
+
+        // A tiny, lossy filter: the rebuild sizes it for twice the loaded hashes
+        JwtCartRevocationList revocationList = revocationList(true, 1, 0.5, NEVER_REBUILD);
+        RevokedTokenBloomFilter sameFilter = new RevokedTokenBloomFilter(revoked.size() * 2L, 0.5);
+        revoked.forEach(sameFilter::put);
+
+        String falsePositive = findFalsePositive(sameFilter, revoked);
+        assertNotNull(falsePositive, "a lossy filter yields a false positive");
+
+        assertFalse(revocationList.isRevoked(falsePositive));
+        revoked.forEach(hash -> assertTrue(revocationList.isRevoked(hash)));
+    }
+
+    private JwtCartRevocationList revocationList(boolean enabled, long expectedInsertions,
+                                                 double falsePositiveRate, long rebuildIntervalMs) {
+        JwtCartRevocationList revocationList = new JwtCartRevocationList(
+                port, enabled, expectedInsertions, falsePositiveRate, rebuildIntervalMs);
+        revocationList.init();
+        return revocationList;
+    }
+
+    private static String findFalsePositive(RevokedTokenBloomFilter filter, List<String> inserted) {
+        List<String> candidates = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            candidates.add(JwtTokenHashes.sha256Hex("candidate-" + i));
+        }
+        return candidates.stream()
+                .filter(candidate -> !inserted.contains(candidate))
+                .filter(filter::mightContain)
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -0,0 +1,93 @@
+package com.rockburger.cartservice.configuration.security;
+
+import com.rockburger.cartservice.domain.model.CartUserModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtCartTokenCacheTest {
+
+    private static final String TOKEN_HASH = JwtTokenHashes.sha256Hex("header.payload.signature");
+    private static final CartUserModel CLIENT = new CartUserModel(42L, "client@rockburger.com", "ROLE_client");
+    private static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_client"));
+
+    @Test
+    void missThenHit() {
+        JwtCartTokenCache cache = cache(true, 300);
+
+        assertNull(cache.get(TOKEN_HASH));
+        cache.put(TOKEN_HASH, CLIENT, AUTHORITIES, Instant.now().plusSeconds(60));
+        JwtCartTokenCache.CachedAuthentication cached = cache.get(TOKEN_HASH);
+
+        assertNotNull(cached);
+        assertEquals("client@rockburger.com", cached.getUser().getEmail());
+        assertEquals(AUTHORITIES, cached.getAuthorities());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void entryExpiresWithItsToken() throws InterruptedException {
+        JwtCartTokenCache cache = cache(true, 300);
+
+        cache.put(TOKEN_HASH, CLIENT, AUTHORITIES, Instant.now().plusMillis(100));
+        assertNotNull(cache.get(TOKEN_HASH));
+
+        Thread.sleep(200);
+        assertNull(cache.get(TOKEN_HASH));
+    }
+
+    @Test
+    void expiredTokensAreNotCached() {
+        JwtCartTokenCache cache = cache(true, 300);
+
+        cache.put(TOKEN_HASH, CLIENT, AUTHORITIES, Instant.now().minusSeconds(1));
+
+        assertNull(cache.get(TOKEN_HASH));
+    }
+
+    @Test
+    void lifetimeIsCappedByMaxTtl() {
+        JwtCartTokenCache cache = cache(true, 1);
+        long before = System.currentTimeMillis();
+
+        cache.put(TOKEN_HASH, CLIENT, AUTHORITIES, Instant.now().plusSeconds(3600));
+        cache.put("no-exp-" + TOKEN_HASH, CLIENT, AUTHORITIES, null);
+
+        assertTrue(cache.get(TOKEN_HASH).getExpiresAtMillis() <= System.currentTimeMillis() + 1_000);
+        assertTrue(cache.get("no-exp-" + TOKEN_HASH).getExpiresAtMillis() >= before + 1_000);
+        assertTrue(cache.get("no-exp-" + TOKEN_HASH).getExpiresAtMillis() <= System.currentTimeMillis() + 1_000);
+    }
+
+    @Test
+    void invalidateDropsEntries() {
+        JwtCartTokenCache cache = cache(true, 300);
+        cache.put(TOKEN_HASH, CLIENT, AUTHORITIES, Instant.now().plusSeconds(60));
+
+        cache.invalidateAll();
+
+        assertNull(cache.get(TOKEN_HASH));
+    }
+
+    @Test
+    void disabledCacheNeverHits() {
+        JwtCartTokenCache cache = cache(false, 300);
+
+        cache.put(TOKEN_HASH, CLIENT, AUTHORITIES, Instant.now().plusSeconds(60));
+
+        assertNull(cache.get(TOKEN_HASH));
+    }
+
+    private static JwtCartTokenCache cache(boolean enabled, long maxTtlSeconds) {
+        return new JwtCartTokenCache(enabled, 100, maxTtlSeconds, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,35 @@
+package com.rockburger.cartservice.configuration.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RejectionLogLimiterTest {
+
+    @Test
+    void permitsUpToTheLimitAndCountsTheRest() {
+        RejectionLogLimiter limiter = new RejectionLogLimiter(2, 60_000);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        assertEquals(2, limiter.drainSuppressed());
+        assertEquals(0, limiter.drainSuppressed());
+    }
+
+    @Test
+    void newWindowPermitsAgain() throws InterruptedException {
+        RejectionLogLimiter limiter = new RejectionLogLimiter(1, 50);
+
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        Thread.sleep(100);
+        assertTrue(limiter.tryAcquire());
+        assertEquals(1, limiter.drainSuppressed());
+    }
+}